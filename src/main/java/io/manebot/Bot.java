@@ -2,6 +2,7 @@ package io.manebot;
 
 import io.manebot.artifact.Artifact;
 import io.manebot.artifact.ArtifactIdentifier;
+import io.manebot.cache.CacheManager;
 import io.manebot.chat.ChatDispatcher;
 import io.manebot.command.CommandDispatcher;
 import io.manebot.conversation.ConversationProvider;
@@ -126,6 +127,19 @@ public interface Bot {
      */
     ConversationProvider getConversationProvider();
 
+    /**
+     * Gets the system cache manager.
+     *
+     * By default, a manager is created for the bot on first request (see <b>CacheManager.of</b>), which only
+     * invalidates caches on this node.  Bots sharing a database with other nodes should override this with a manager
+     * connected to a shared <b>InvalidationBus</b>.
+     *
+     * @return cache manager.
+     */
+    default CacheManager getCacheManager() {
+        return CacheManager.of(this);
+    }
+
     /**
      * Starts the bot.
      *
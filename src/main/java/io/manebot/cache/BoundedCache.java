@@ -0,0 +1,294 @@
+package io.manebot.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A size- and time-bounded cache with frequency-aware eviction.
+ *
+ * Reads are lock-free.  Writes which change the set of keys are serialized.  When the cache is full, a small random
+ * sample of entries is taken and the one accessed least often recently, according to a <b>FrequencySketch</b>, is the
+ * eviction candidate; the new entry is only admitted if it has been requested at least as often as that candidate.
+ * This keeps one-off lookups (i.e. a scan over many users) from flushing the entries that are used constantly.
+ *
+ * A value loaded by <b>get</b> is not cached if its key is invalidated while the loader runs, since the loader may have
+ * read the state the invalidation replaced; it is still returned to the callers waiting on that load.
+ *
+ * @param <K> key type.
+ * @param <V> value type.
+ */
+public final class BoundedCache<K, V> implements Cache<K, V> {
+    private static final int SAMPLE_SIZE = 8;
+
+    private final String name;
+    private final long maximumSize;
+    private final long expireAfterWrite;
+
+    private final Map<K, Node<K, V>> entries = new ConcurrentHashMap<>();
+    private final Map<K, Load<V>> loading = new ConcurrentHashMap<>();
+    private final List<Node<K, V>> nodes = new ArrayList<>(); // guarded by writeLock, for uniform sampling
+    private final Object writeLock = new Object();
+    private final FrequencySketch sketch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    private BoundedCache(String name, long maximumSize, long expireAfterWrite) {
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Gets the time, in nanoseconds, a value remains fresh after it is written.
+     * @return expiry time, or 0 if values do not expire.
+     */
+    public long getExpireAfterWriteNanoseconds() {
+        return expireAfterWrite;
+    }
+
+    @Override
+    public long size() {
+        return entries.size();
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return expireAfterWrite > 0L && now - node.written >= expireAfterWrite;
+    }
+
+    @Override
+    public V getIfPresent(K key) {
+        sketch.increment(key);
+
+        Node<K, V> node = entries.get(key);
+        if (node != null) {
+            if (!isExpired(node, System.nanoTime())) {
+                hits.increment();
+                return node.value;
+            }
+
+            remove(node);
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) return value;
+
+        Load<V> load = new Load<>();
+        Load<V> existing = loading.putIfAbsent(key, load);
+
+        if (existing != null) {
+            try {
+                return existing.future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                throw e;
+            }
+        }
+
+        try {
+            loads.increment();
+            value = loader.apply(key);
+
+            if (value != null) {
+                synchronized (writeLock) {
+                    if (!load.invalidated) put(key, value);
+                }
+            }
+
+            load.future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            load.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        if (value == null) throw new NullPointerException("value");
+
+        synchronized (writeLock) {
+            Node<K, V> node = new Node<>(key, value, System.nanoTime());
+            Node<K, V> existing = entries.get(key);
+
+            if (existing != null) {
+                node.index = existing.index;
+                nodes.set(node.index, node);
+                entries.put(key, node);
+                return;
+            }
+
+            if (nodes.size() >= maximumSize) {
+                Node<K, V> victim = sampleVictim();
+
+                if (sketch.frequency(key) < sketch.frequency(victim.key)) {
+                    rejections.increment();
+                    return;
+                }
+
+                removeLocked(victim);
+                evictions.increment();
+            }
+
+            node.index = nodes.size();
+            nodes.add(node);
+            entries.put(key, node);
+        }
+    }
+
+    private Node<K, V> sampleVictim() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = System.nanoTime();
+
+        Node<K, V> victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+
+        for (int i = 0; i < Math.min(SAMPLE_SIZE, nodes.size()); i ++) {
+            Node<K, V> candidate = nodes.get(random.nextInt(nodes.size()));
+            if (isExpired(candidate, now)) return candidate;
+
+            int frequency = sketch.frequency(candidate.key);
+            if (frequency < victimFrequency ||
+                    (frequency == victimFrequency && candidate.written < victim.written)) {
+                victim = candidate;
+                victimFrequency = frequency;
+            }
+        }
+
+        return victim;
+    }
+
+    private void remove(Node<K, V> node) {
+        synchronized (writeLock) {
+            if (entries.get(node.key) == node) removeLocked(node);
+        }
+    }
+
+    private void removeLocked(Node<K, V> node) {
+        entries.remove(node.key, node);
+
+        Node<K, V> last = nodes.remove(nodes.size() - 1);
+        if (last != node) {
+            last.index = node.index;
+            nodes.set(node.index, last);
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        synchronized (writeLock) {
+            Node<K, V> node = entries.get(key);
+            if (node != null) removeLocked(node);
+
+            Load<V> load = loading.get(key);
+            if (load != null) load.invalidated = true;
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (writeLock) {
+            entries.clear();
+            nodes.clear();
+
+            for (Load<V> load : loading.values()) load.invalidated = true;
+        }
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(
+                hits.sum(),
+                misses.sum(),
+                loads.sum(),
+                loadFailures.sum(),
+                evictions.sum(),
+                rejections.sum()
+        );
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final long written;
+        private int index; // guarded by writeLock
+
+        private Node(K key, V value, long written) {
+            this.key = key;
+            this.value = value;
+            this.written = written;
+        }
+    }
+
+    private static final class Load<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private boolean invalidated = false; // guarded by writeLock
+    }
+
+    /**
+     * Builds bounded caches.
+     */
+    public static final class Builder {
+        private long maximumSize = 1024L;
+        private long expireAfterWrite = 0L;
+
+        public Builder setMaximumSize(long maximumSize) {
+            if (maximumSize <= 0) throw new IllegalArgumentException("maximumSize must be positive");
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        /**
+         * Sets the time a value remains fresh after it is written.
+         * @param duration duration, or 0 for values which do not expire.
+         * @param unit duration unit.
+         * @return Builder instance.
+         */
+        public Builder setExpireAfterWrite(long duration, TimeUnit unit) {
+            if (duration < 0) throw new IllegalArgumentException("duration must not be negative");
+            this.expireAfterWrite = unit.toNanos(duration);
+            return this;
+        }
+
+        public <K, V> BoundedCache<K, V> build(String name) {
+            return new BoundedCache<>(name, maximumSize, expireAfterWrite);
+        }
+    }
+}
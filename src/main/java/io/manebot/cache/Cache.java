@@ -0,0 +1,72 @@
+package io.manebot.cache;
+
+import java.util.function.Function;
+
+/**
+ * A named, bounded key-value cache obtained from the <b>CacheManager</b>.
+ *
+ * @param <K> key type.
+ * @param <V> value type.
+ */
+public interface Cache<K, V> {
+
+    /**
+     * Gets the name this cache is registered under.
+     * @return cache name.
+     */
+    String getName();
+
+    /**
+     * Gets the maximum number of entries this cache holds.
+     * @return maximum size.
+     */
+    long getMaximumSize();
+
+    /**
+     * Gets the number of entries currently held.
+     * @return cache size.
+     */
+    long size();
+
+    /**
+     * Gets a value if it is cached and fresh.
+     * @param key key to look up.
+     * @return cached value, or null if none is held.
+     */
+    V getIfPresent(K key);
+
+    /**
+     * Gets a value, loading it on a miss.  Concurrent misses on the same key run the loader once and share its result.
+     * A null result is returned but not cached.
+     *
+     * @param key key to look up.
+     * @param loader function loading the value for the key.
+     * @return value, or null if the loader found none.
+     */
+    V get(K key, Function<? super K, ? extends V> loader);
+
+    /**
+     * Caches a value.  The value may not be admitted if the cache is full of more frequently accessed entries.
+     * @param key key.
+     * @param value value to cache.
+     */
+    void put(K key, V value);
+
+    /**
+     * Removes a value.
+     * @param key key to remove.
+     */
+    void invalidate(K key);
+
+    /**
+     * Removes all values.
+     */
+    void invalidateAll();
+
+    /**
+     * Gets a snapshot of this cache's counters.
+     * @return CacheStats instance.
+     */
+    CacheStats getStats();
+
+}
@@ -0,0 +1,199 @@
+package io.manebot.cache;
+
+import com.google.common.collect.MapMaker;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Registry of the named caches shared by the core model and plugins.
+ *
+ * Caches are created on first request and live for as long as the manager.  Because every cache is bounded, the
+ * memory held by caching is the sum of their maximum sizes, which operators can inspect through <b>getCaches()</b>.
+ * Plugins should prefix their cache names with their own identifier to avoid collisions.
+ *
+ * The manager also connects caches to an <b>InvalidationBus</b>.  Code which changes an entity publishes the change
+ * here after updating its own caches, and code which caches an entity subscribes to its kind; subscribers are only
+ * notified of changes made by other nodes.
+ */
+public final class CacheManager {
+    private static final Map<Object, CacheManager> defaults = new MapMaker().weakKeys().makeMap();
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Cache<?, ?>> caches = new ConcurrentHashMap<>();
+    private final Map<String, Collection<Consumer<EntityChange>>> subscribers = new ConcurrentHashMap<>();
+    private final Consumer<EntityChange> dispatcher = this::dispatch;
+    private final Object busLock = new Object();
+
+    private volatile InvalidationBus bus;
+
+    public CacheManager() {
+        this(new LoopbackInvalidationBus());
+    }
+
+    public CacheManager(InvalidationBus bus) {
+        this.bus = bus;
+        bus.subscribe(dispatcher);
+    }
+
+    /**
+     * Gets the cache manager kept for an owner which does not provide one of its own, such as a <b>Bot</b>
+     * implementation written before <b>Bot.getCacheManager</b> existed.  The manager is created on first request, with
+     * a <b>LoopbackInvalidationBus</b>, and lives for as long as its owner.
+     * @param owner owner of the manager.
+     * @return cache manager.
+     */
+    public static CacheManager of(Object owner) {
+        return defaults.computeIfAbsent(owner, key -> new CacheManager());
+    }
+
+    /**
+     * Gets the ID identifying this node on the invalidation bus.
+     * @return node ID.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Gets the invalidation bus changes are published on.
+     * @return InvalidationBus instance.
+     */
+    public InvalidationBus getInvalidationBus() {
+        return bus;
+    }
+
+    /**
+     * Replaces the invalidation bus, such as with one reaching other nodes once the system database is available.
+     * Subscriptions are carried over.
+     *
+     * @param bus new InvalidationBus instance.
+     */
+    public void setInvalidationBus(InvalidationBus bus) {
+        synchronized (busLock) {
+            InvalidationBus old = this.bus;
+            if (old == bus) return;
+
+            bus.subscribe(dispatcher);
+            this.bus = bus;
+            old.unsubscribe(dispatcher);
+        }
+    }
+
+    /**
+     * Subscribes to changes of one kind of entity made by other nodes.
+     * @param kind entity kind.
+     * @param subscriber change subscriber.
+     */
+    public void subscribe(String kind, Consumer<EntityChange> subscriber) {
+        subscribers.computeIfAbsent(kind, key -> new CopyOnWriteArrayList<>()).add(subscriber);
+    }
+
+    /**
+     * Removes a change subscriber.
+     * @param kind entity kind.
+     * @param subscriber change subscriber.
+     * @return true if the subscriber was removed, false otherwise.
+     */
+    public boolean unsubscribe(String kind, Consumer<EntityChange> subscriber) {
+        Collection<Consumer<EntityChange>> subscribers = this.subscribers.get(kind);
+        return subscribers != null && subscribers.remove(subscriber);
+    }
+
+    /**
+     * Publishes a change to other nodes.
+     * @param kind entity kind.
+     * @param id entity ID.
+     * @param version entity version after the change.
+     */
+    public void publish(String kind, String id, long version) {
+        bus.publish(new EntityChange(kind, id, version, nodeId));
+    }
+
+    /**
+     * Publishes a change to other nodes, versioned by the current time.
+     * @param kind entity kind.
+     * @param id entity ID.
+     */
+    public void publish(String kind, String id) {
+        publish(kind, id, System.currentTimeMillis());
+    }
+
+    private void dispatch(EntityChange change) {
+        if (change.getOrigin().equals(nodeId)) return;
+
+        Collection<Consumer<EntityChange>> subscribers = this.subscribers.get(change.getKind());
+        if (subscribers == null) return;
+
+        for (Consumer<EntityChange> subscriber : subscribers)
+            subscriber.accept(change);
+    }
+
+    /**
+     * Gets a cache by name, creating it with the given settings if it does not exist yet.  Settings are ignored if the
+     * cache already exists.
+     *
+     * @param name cache name.
+     * @param builder consumer configuring the cache.
+     * @param <K> key type.
+     * @param <V> value type.
+     * @return Cache instance.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> Cache<K, V> getCache(String name, Consumer<BoundedCache.Builder> builder) {
+        return (Cache<K, V>) caches.computeIfAbsent(name, key -> {
+            BoundedCache.Builder cacheBuilder = new BoundedCache.Builder();
+            builder.accept(cacheBuilder);
+            return cacheBuilder.build(key);
+        });
+    }
+
+    /**
+     * Gets an existing cache by name.
+     * @param name cache name.
+     * @return Cache instance if one exists, null otherwise.
+     */
+    public Cache<?, ?> getCache(String name) {
+        return caches.get(name);
+    }
+
+    /**
+     * Gets all caches registered to this manager.
+     * @return immutable collection of caches.
+     */
+    public Collection<Cache<?, ?>> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+    /**
+     * Removes a cache from this manager, discarding its values.
+     * @param name cache name.
+     * @return true if the cache was removed, false otherwise.
+     */
+    public boolean removeCache(String name) {
+        Cache<?, ?> cache = caches.remove(name);
+        if (cache == null) return false;
+        cache.invalidateAll();
+        return true;
+    }
+
+    /**
+     * Discards the values held by every cache.
+     */
+    public void invalidateAll() {
+        caches.values().forEach(Cache::invalidateAll);
+    }
+
+    /**
+     * Gets the sum of the maximum sizes of every cache.
+     * @return total entry capacity.
+     */
+    public long getMaximumSize() {
+        return caches.values().stream().mapToLong(Cache::getMaximumSize).sum();
+    }
+}
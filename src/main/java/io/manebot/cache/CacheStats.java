@@ -0,0 +1,95 @@
+package io.manebot.cache;
+
+/**
+ * A snapshot of a cache's counters.
+ */
+public final class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long loadFailureCount;
+    private final long evictionCount;
+    private final long rejectionCount;
+
+    public CacheStats(long hitCount,
+                      long missCount,
+                      long loadCount,
+                      long loadFailureCount,
+                      long evictionCount,
+                      long rejectionCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.loadFailureCount = loadFailureCount;
+        this.evictionCount = evictionCount;
+        this.rejectionCount = rejectionCount;
+    }
+
+    /**
+     * Gets the number of lookups which found a fresh value.
+     * @return hit count.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of lookups which found no value, or an expired one.
+     * @return miss count.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Gets the number of times a loader was run.  Concurrent misses on the same key share one load.
+     * @return load count.
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * Gets the number of times a loader threw an exception.
+     * @return load failure count.
+     */
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * Gets the number of entries evicted to make room for others.
+     * @return eviction count.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Gets the number of new entries not admitted because they were accessed less often than the entry they would
+     * have replaced.
+     * @return rejection count.
+     */
+    public long getRejectionCount() {
+        return rejectionCount;
+    }
+
+    /**
+     * Gets the ratio of hits to lookups.
+     * @return hit rate between 0 and 1, or 1 if there have been no lookups.
+     */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests <= 0 ? 1D : (double) hitCount / (double) requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + hitCount +
+                ", misses=" + missCount +
+                ", loads=" + loadCount +
+                ", loadFailures=" + loadFailureCount +
+                ", evictions=" + evictionCount +
+                ", rejections=" + rejectionCount + "}";
+    }
+}
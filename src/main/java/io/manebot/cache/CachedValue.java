@@ -1,35 +1,170 @@
 package io.manebot.cache;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
+/**
+ * Holds a value produced by a supplier for a fixed period of time.
+ *
+ * Reads of a fresh value are a single volatile read.  When the value expires, one caller runs the supplier while
+ * concurrent callers continue to receive the stale value; callers only wait when there is no value at all.  Optionally,
+ * the value can be refreshed ahead of expiry on an executor, so that readers never see it expire, and a <i>null</i>
+ * result can be cached like any other instead of being supplied again on every call.
+ *
+ * A value supplied while <b>unset()</b> is called is not cached, since the supplier may have read the state the unset
+ * replaced; it is still returned to the caller which supplied it.
+ *
+ * @param <T> value type.
+ */
 public class CachedValue<T> {
     private final long timeout;
+    private final long refreshAhead;
+    private final Executor executor;
+    private final boolean cacheNull;
     private final Supplier<T> supplier;
-    private final Object accessLock = new Object();
 
-    private T value = null;
-    private long lastSupplied = 0L;
+    private final Object loadLock = new Object();
+    private final Object writeLock = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    private volatile Entry<T> entry = null;
+    private long generation = 0L; // guarded by writeLock, moved on by every unset
 
     public CachedValue(long timeoutMs, Supplier<T> supplier) {
+        this(timeoutMs, supplier, false);
+    }
+
+    /**
+     * @param timeoutMs time, in milliseconds, a supplied value remains fresh.
+     * @param supplier value supplier.
+     * @param cacheNull true if a null value should be cached, false to supply it again on every call.
+     */
+    public CachedValue(long timeoutMs, Supplier<T> supplier, boolean cacheNull) {
+        this(timeoutMs, 0L, null, supplier, cacheNull);
+    }
+
+    /**
+     * @param timeoutMs time, in milliseconds, a supplied value remains fresh.
+     * @param refreshAheadMs time, in milliseconds, before expiry at which the value is refreshed on the executor.
+     * @param executor executor to refresh the value on ahead of expiry, or null to only refresh on expiry.
+     * @param supplier value supplier.
+     * @param cacheNull true if a null value should be cached, false to supply it again on every call.
+     */
+    public CachedValue(long timeoutMs, long refreshAheadMs, Executor executor, Supplier<T> supplier, boolean cacheNull) {
+        if (refreshAheadMs < 0 || refreshAheadMs > timeoutMs)
+            throw new IllegalArgumentException("refreshAheadMs must be between 0 and timeoutMs");
+
         this.timeout = timeoutMs * 1_000_000L;
+        this.refreshAhead = executor == null ? 0L : refreshAheadMs * 1_000_000L;
+        this.executor = executor;
         this.supplier = supplier;
+        this.cacheNull = cacheNull;
     }
 
+    /**
+     * Discards the current value, so that the next call to <b>get()</b> supplies it again.
+     */
     public void unset() {
-        synchronized (accessLock) {
-            value = null;
+        synchronized (writeLock) {
+            generation++;
+            entry = null;
         }
     }
 
+    /**
+     * Finds if a value is currently held, fresh or not.
+     * @return true if a value is held, false otherwise.
+     */
+    public boolean isSet() {
+        return entry != null;
+    }
+
+    /**
+     * Gets the cached value, supplying it if none is held.
+     * @return value.
+     */
     public T get() {
-        synchronized (accessLock) {
-            long time = System.nanoTime();
-            if (value == null || time - lastSupplied >= timeout) {
-                value = supplier.get();
-                if (value != null) lastSupplied = time;
+        Entry<T> entry = this.entry;
+
+        if (entry != null) {
+            long age = System.nanoTime() - entry.supplied;
+
+            if (age < timeout) {
+                if (refreshAhead > 0L && age >= timeout - refreshAhead) refreshAsync();
+                return entry.value;
+            }
+
+            // Expired: one caller refreshes, everyone else is served the stale value meanwhile
+            if (!refreshing.compareAndSet(false, true)) return entry.value;
+
+            try {
+                return load(entry);
+            } finally {
+                refreshing.set(false);
             }
+        }
+
+        return load(null);
+    }
+
+    private void refreshAsync() {
+        if (!refreshing.compareAndSet(false, true)) return;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    synchronized (loadLock) {
+                        long generation = getGeneration();
+                        store(supplier.get(), System.nanoTime(), generation);
+                    }
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+        }
+    }
+
+    private T load(Entry<T> expired) {
+        synchronized (loadLock) {
+            // Another caller may have supplied the value while we waited
+            Entry<T> entry = this.entry;
+            if (entry != null && entry != expired && System.nanoTime() - entry.supplied < timeout)
+                return entry.value;
+
+            long generation = getGeneration();
+            long time = System.nanoTime();
+            return store(supplier.get(), time, generation);
+        }
+    }
+
+    private long getGeneration() {
+        synchronized (writeLock) {
+            return generation;
+        }
+    }
+
+    private T store(T value, long time, long generation) {
+        synchronized (writeLock) {
+            // Unset while the supplier ran
+            if (generation != this.generation) return value;
+
+            entry = value != null || cacheNull ? new Entry<>(value, time) : null;
+        }
+
+        return value;
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final long supplied;
 
-            return value;
+        private Entry(T value, long supplied) {
+            this.value = value;
+            this.supplied = supplied;
         }
     }
 }
@@ -0,0 +1,59 @@
+package io.manebot.cache;
+
+import java.util.Objects;
+
+/**
+ * A notice that an entity has changed, published on an <b>InvalidationBus</b> so that other nodes sharing the same
+ * database can discard what they have cached about it.
+ */
+public final class EntityChange {
+    private final String kind;
+    private final String id;
+    private final long version;
+    private final String origin;
+
+    public EntityChange(String kind, String id, long version, String origin) {
+        this.kind = Objects.requireNonNull(kind);
+        this.id = Objects.requireNonNull(id);
+        this.version = version;
+        this.origin = Objects.requireNonNull(origin);
+    }
+
+    /**
+     * Gets the kind of entity which changed, such as <i>manebot:userBan</i>.  Subscribers are registered per kind.
+     * @return entity kind.
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the identifier of the entity which changed, in a form defined by its kind.
+     * @return entity ID.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the version of the entity after the change, or the time of the change in milliseconds if the entity is not
+     * versioned.
+     * @return entity version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the ID of the node which published this change.
+     * @return origin node ID.
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public String toString() {
+        return kind + "/" + id + "@" + version + " from " + origin;
+    }
+}
@@ -0,0 +1,87 @@
+package io.manebot.cache;
+
+/**
+ * A count-min sketch estimating how often keys have been accessed recently, used by <b>BoundedCache</b> to decide which
+ * entries to evict and whether a new entry is worth admitting.
+ *
+ * Each key maps to one small counter in each of four rows, and its frequency is the minimum of those counters, so
+ * collisions can only overestimate.  Counters saturate at 15, and every counter is halved once the number of recorded
+ * accesses reaches ten times the table width, so that frequency reflects recent history rather than all time.
+ *
+ * Updates are not atomic; concurrent increments may occasionally be lost, which only affects the estimate.
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAXIMUM_COUNT = 15;
+    private static final int[] SEEDS = { 0x97cb3127, 0xb3c4e36d, 0x8ebc6af1, 0xd5a0e1a3 };
+
+    private final int[] table;
+    private final int width;
+    private final int mask;
+    private final int sampleSize;
+
+    private int additions = 0;
+
+    FrequencySketch(long maximumSize) {
+        // Two counters per entry in each row keeps collisions between cached keys rare
+        int width = 64;
+        while (width < maximumSize * 2L && width < (1 << 26)) width <<= 1;
+
+        this.width = width;
+        this.mask = width - 1;
+        this.table = new int[width * DEPTH];
+        this.sampleSize = width * 10;
+    }
+
+    private static int spread(int hash, int seed) {
+        hash = (hash ^ seed) * 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    private int index(int hash, int row) {
+        return row * width + (spread(hash, SEEDS[row]) & mask);
+    }
+
+    /**
+     * Records an access to a key.
+     * @param key key accessed.
+     */
+    void increment(Object key) {
+        int hash = key.hashCode();
+        boolean added = false;
+
+        for (int row = 0; row < DEPTH; row ++) {
+            int index = index(hash, row);
+            if (table[index] < MAXIMUM_COUNT) {
+                table[index] ++;
+                added = true;
+            }
+        }
+
+        if (added && ++additions >= sampleSize) reset();
+    }
+
+    /**
+     * Estimates the recent access frequency of a key.
+     * @param key key to estimate.
+     * @return estimated frequency, between 0 and 15.
+     */
+    int frequency(Object key) {
+        int hash = key.hashCode();
+        int frequency = MAXIMUM_COUNT;
+
+        for (int row = 0; row < DEPTH; row ++)
+            frequency = Math.min(frequency, table[index(hash, row)]);
+
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i ++)
+            table[i] >>>= 1;
+
+        additions = additions >>> 1;
+    }
+}
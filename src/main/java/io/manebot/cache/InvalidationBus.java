@@ -0,0 +1,39 @@
+package io.manebot.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Transports entity-change notices between the bot instances sharing one system database, so that a change made on
+ * one node invalidates the caches of every other node.
+ *
+ * A bus delivers every published change to every subscriber, including subscribers on the publishing node; the
+ * <b>CacheManager</b> filters out changes which originated locally.  Delivery may be asynchronous and may be delayed,
+ * but a bus should not drop changes.
+ */
+public interface InvalidationBus extends AutoCloseable {
+
+    /**
+     * Publishes a change to all nodes.
+     * @param change change to publish.
+     */
+    void publish(EntityChange change);
+
+    /**
+     * Subscribes to changes published by any node.
+     * @param subscriber change subscriber.
+     */
+    void subscribe(Consumer<EntityChange> subscriber);
+
+    /**
+     * Removes a subscriber.
+     * @param subscriber change subscriber.
+     * @return true if the subscriber was removed, false otherwise.
+     */
+    boolean unsubscribe(Consumer<EntityChange> subscriber);
+
+    @Override
+    default void close() {
+        // Nothing to release by default
+    }
+
+}
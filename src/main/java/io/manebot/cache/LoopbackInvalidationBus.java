@@ -0,0 +1,31 @@
+package io.manebot.cache;
+
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An invalidation bus which delivers changes synchronously to subscribers in the same process.
+ *
+ * This is the default bus for a single bot instance.  Several cache managers may share one loopback bus, i.e. to run
+ * more than one node in the same process.
+ */
+public final class LoopbackInvalidationBus implements InvalidationBus {
+    private final Collection<Consumer<EntityChange>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(EntityChange change) {
+        for (Consumer<EntityChange> subscriber : subscribers)
+            subscriber.accept(change);
+    }
+
+    @Override
+    public void subscribe(Consumer<EntityChange> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public boolean unsubscribe(Consumer<EntityChange> subscriber) {
+        return subscribers.remove(subscriber);
+    }
+}
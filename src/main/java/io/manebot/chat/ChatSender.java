@@ -103,6 +103,9 @@ public interface ChatSender extends ChatMessageReceiver {
                         .elementsPerPage(result.getPageSize())
                         .totalElements(result.getTotalResults())
                         .page(result.getPage())
+                        .continuation(result.getContinuation())
+                        .countStrategy(result.getCountStrategy())
+                        .hasMore(result.hasMore())
         );
     }
 
@@ -47,7 +47,10 @@ public class DefaultChatSender implements ChatSender {
                             getPage(),
                             getElementsPerPage(),
                             createListAccessor(),
-                            getResponder()
+                            getResponder(),
+                            getContinuation(),
+                            getCountStrategy(),
+                            hasMore()
                     );
                 }
             };
@@ -61,7 +64,10 @@ public class DefaultChatSender implements ChatSender {
                             getPage(),
                             getElementsPerPage(),
                             createListAccessor(),
-                            getResponder()
+                            getResponder(),
+                            getContinuation(),
+                            getCountStrategy(),
+                            hasMore()
                     );
                 }
             };
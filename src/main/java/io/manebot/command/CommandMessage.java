@@ -3,6 +3,7 @@ package io.manebot.command;
 import io.manebot.chat.ChatEmbed;
 import io.manebot.chat.ChatMessage;
 import io.manebot.platform.PlatformUser;
+import io.manebot.user.SenderContext;
 
 import java.util.Collection;
 import java.util.Date;
@@ -11,10 +12,16 @@ import java.util.function.Consumer;
 public class CommandMessage implements ChatMessage {
     private final ChatMessage chatMessage;
     private final CommandSender sender;
+    private final SenderContext senderContext;
 
     public CommandMessage(ChatMessage chatMessage, CommandSender sender) {
+        this(chatMessage, sender, null);
+    }
+
+    public CommandMessage(ChatMessage chatMessage, CommandSender sender, SenderContext senderContext) {
         this.chatMessage = chatMessage;
         this.sender = sender;
+        this.senderContext = senderContext;
     }
 
     @Override
@@ -22,6 +29,14 @@ public class CommandMessage implements ChatMessage {
         return sender;
     }
 
+    /**
+     * Gets the snapshot of the sender's user, memberships and ban loaded when this message was received.
+     * @return SenderContext instance if one was loaded, null otherwise.
+     */
+    public SenderContext getSenderContext() {
+        return senderContext;
+    }
+
     @Override
     public void delete() throws UnsupportedOperationException {
         chatMessage.delete();
@@ -2,6 +2,7 @@ package io.manebot.command.response;
 
 import io.manebot.chat.ChatSender;
 import io.manebot.chat.TextBuilder;
+import io.manebot.database.search.CountStrategy;
 
 import java.util.List;
 import java.util.function.Supplier;
@@ -13,6 +14,9 @@ public abstract class CommandListResponse<T> extends CommandResponse {
 
     private final ListAccessor<T> accessor;
     private final ListElementFormatter<T> responder;
+    private final String continuation;
+    private final CountStrategy countStrategy;
+    private final boolean hasMore;
 
     public CommandListResponse(ChatSender sender,
                                long actualTotal,
@@ -20,8 +24,35 @@ public abstract class CommandListResponse<T> extends CommandResponse {
                                int elementsPerPage,
                                ListAccessor<T> accessor,
                                ListElementFormatter<T> responder) {
+        this(sender, actualTotal, page, elementsPerPage, accessor, responder, null);
+    }
+
+    public CommandListResponse(ChatSender sender,
+                               long actualTotal,
+                               long page,
+                               int elementsPerPage,
+                               ListAccessor<T> accessor,
+                               ListElementFormatter<T> responder,
+                               String continuation) {
+        this(sender, actualTotal, page, elementsPerPage, accessor, responder, continuation,
+                CountStrategy.EXACT, continuation != null || page * (long) elementsPerPage < actualTotal);
+    }
+
+    public CommandListResponse(ChatSender sender,
+                               long actualTotal,
+                               long page,
+                               int elementsPerPage,
+                               ListAccessor<T> accessor,
+                               ListElementFormatter<T> responder,
+                               String continuation,
+                               CountStrategy countStrategy,
+                               boolean hasMore) {
         super(sender);
 
+        this.continuation = continuation;
+        this.countStrategy = countStrategy;
+        this.hasMore = hasMore;
+
         this.page = page;
         this.totalElements = actualTotal;
         this.elementsPerPage = elementsPerPage;
@@ -50,6 +81,63 @@ public abstract class CommandListResponse<T> extends CommandResponse {
         return responder;
     }
 
+    /**
+     * Gets the continuation token for the next page, if the list was paged by keyset.
+     * @return continuation token, or null if the list is paged by page number or has no further pages.
+     */
+    public String getContinuation() {
+        return continuation;
+    }
+
+    /**
+     * Gets the way the total element count was found.
+     * @return count strategy.
+     */
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    /**
+     * Finds if more elements follow this page.
+     * @return true if there are further pages.
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Describes the total number of elements in the list, such as <i>12 items</i> or <i>about 1200 items</i>.
+     * @return total description.
+     */
+    protected String describeTotal() {
+        long total = getTotalElements();
+        String items = total == 1 ? "item" : "items";
+
+        switch (countStrategy) {
+            case ESTIMATED:
+                return "about " + total + " " + items;
+            case HAS_MORE:
+                return hasMore ? total + "+ items" : total + " " + items;
+            default:
+                return total + " " + items;
+        }
+    }
+
+    /**
+     * Describes the position of this page in the list, such as <i>page 2 of 5</i>.
+     * @return page description.
+     */
+    protected String describePage() {
+        if (continuation != null)
+            return "more with after:" + continuation;
+
+        if (countStrategy == CountStrategy.HAS_MORE)
+            return "page " + getPage() + (hasMore ? ", more with page:" + (getPage() + 1) : "");
+
+        long totalPages = (long) Math.ceil((double)getTotalElements() / (double)getElementsPerPage());
+        return "page " + getPage() + " of " + (countStrategy == CountStrategy.ESTIMATED ? "about " : "") + totalPages;
+    }
+
     public interface ListElementFormatter<T> {
         void line(TextBuilder builder, T o);
     }
@@ -113,6 +201,10 @@ public abstract class CommandListResponse<T> extends CommandResponse {
 
         private Supplier<ListAccessor<T>> accessorSupplier;
 
+        private String continuation;
+        private CountStrategy countStrategy = CountStrategy.EXACT;
+        private Boolean hasMore;
+
         public Builder() { }
 
         public long getPage() {
@@ -157,6 +249,38 @@ public abstract class CommandListResponse<T> extends CommandResponse {
             return responder;
         }
 
+        public String getContinuation() {
+            return continuation;
+        }
+
+        public Builder<T> continuation(String continuation) {
+            this.continuation = continuation;
+            return this;
+        }
+
+        public CountStrategy getCountStrategy() {
+            return countStrategy;
+        }
+
+        public Builder<T> countStrategy(CountStrategy countStrategy) {
+            this.countStrategy = countStrategy;
+            return this;
+        }
+
+        /**
+         * Finds if more elements follow the page, if set, or otherwise from the page and total element count.
+         * @return true if there are further pages.
+         */
+        public boolean hasMore() {
+            if (hasMore != null) return hasMore;
+            return continuation != null || page * (long) elementsPerPage < totalElements;
+        }
+
+        public Builder<T> hasMore(boolean hasMore) {
+            this.hasMore = hasMore;
+            return this;
+        }
+
         public Builder<T> responder(ListElementFormatter<T> responder) {
             this.responder = responder;
             return this;
@@ -3,6 +3,7 @@ package io.manebot.command.response;
 import io.manebot.chat.ChatMessage;
 import io.manebot.chat.ChatSender;
 import io.manebot.command.exception.CommandExecutionException;
+import io.manebot.database.search.CountStrategy;
 
 import java.util.Collection;
 import java.util.LinkedList;
@@ -17,6 +18,28 @@ public class DefaultBasicCommandListResponse<T> extends CommandListResponse<T> {
         super(sender, actualTotal, page, elementsPerPage, accessor, responder);
     }
 
+    public DefaultBasicCommandListResponse(ChatSender sender,
+                                           long actualTotal,
+                                           long page,
+                                           int elementsPerPage,
+                                           ListAccessor<T> accessor,
+                                           ListElementFormatter<T> responder,
+                                           String continuation) {
+        super(sender, actualTotal, page, elementsPerPage, accessor, responder, continuation);
+    }
+
+    public DefaultBasicCommandListResponse(ChatSender sender,
+                                           long actualTotal,
+                                           long page,
+                                           int elementsPerPage,
+                                           ListAccessor<T> accessor,
+                                           ListElementFormatter<T> responder,
+                                           String continuation,
+                                           CountStrategy countStrategy,
+                                           boolean hasMore) {
+        super(sender, actualTotal, page, elementsPerPage, accessor, responder, continuation, countStrategy, hasMore);
+    }
+
     @Override
     public Collection<ChatMessage> send() throws CommandExecutionException {
         long totalPages = (long) Math.ceil((double)getTotalElements() / (double)getElementsPerPage());
@@ -26,8 +49,7 @@ public class DefaultBasicCommandListResponse<T> extends CommandListResponse<T> {
         else if (elements == 0) throw new CommandExecutionException("No results found.");
 
         getSender().sendMessage(
-                "Discovered " + getTotalElements() + " " + (getTotalElements() == 1 ? "item" : "items")
-                        + " (showing " + elements + ", page " + getPage() + " of " + totalPages + ")" + ":"
+                "Discovered " + describeTotal() + " (showing " + elements + ", " + describePage() + ")" + ":"
         );
 
         Collection<ChatMessage> chatMessages = new LinkedList<>();
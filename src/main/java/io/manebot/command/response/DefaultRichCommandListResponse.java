@@ -3,6 +3,7 @@ package io.manebot.command.response;
 import io.manebot.chat.ChatMessage;
 import io.manebot.chat.ChatSender;
 import io.manebot.command.exception.CommandExecutionException;
+import io.manebot.database.search.CountStrategy;
 
 import java.util.Collection;
 import java.util.stream.Collectors;
@@ -15,6 +16,19 @@ public class DefaultRichCommandListResponse<T> extends CommandListResponse<T> {
         super(sender, actualTotal, page, elementsPerPage, accessor, responder);
     }
 
+    public DefaultRichCommandListResponse(ChatSender sender, long actualTotal, long page,
+                                          int elementsPerPage, ListAccessor<T> accessor,
+                                          ListElementFormatter<T> responder, String continuation) {
+        super(sender, actualTotal, page, elementsPerPage, accessor, responder, continuation);
+    }
+
+    public DefaultRichCommandListResponse(ChatSender sender, long actualTotal, long page,
+                                          int elementsPerPage, ListAccessor<T> accessor,
+                                          ListElementFormatter<T> responder, String continuation,
+                                          CountStrategy countStrategy, boolean hasMore) {
+        super(sender, actualTotal, page, elementsPerPage, accessor, responder, continuation, countStrategy, hasMore);
+    }
+
     @Override
     public Collection<ChatMessage> send() throws CommandExecutionException {
         int totalPages = (int) Math.ceil((double)getTotalElements() / (double)getElementsPerPage());
@@ -29,11 +43,7 @@ public class DefaultRichCommandListResponse<T> extends CommandListResponse<T> {
                         builder.message(textBuilder -> textBuilder.appendMention(getSender().getPlatformUser()));
 
                     builder.embed(embedBuilder -> {
-                        embedBuilder.title(
-                                "Discovered " +
-                                        getTotalElements() + " " +
-                                        (getTotalElements() == 1 ? "item" : "items")
-                        );
+                        embedBuilder.title("Discovered " + describeTotal());
 
                         embedBuilder.description(textBuilder -> {
                             for (int i = 0; i < elements; i++) {
@@ -43,7 +53,7 @@ public class DefaultRichCommandListResponse<T> extends CommandListResponse<T> {
                             }
                         });
 
-                        embedBuilder.footer("showing " + elements + ", page " + getPage() + " of " + totalPages);
+                        embedBuilder.footer("showing " + elements + ", " + describePage());
                     });
                 }
         );
@@ -5,6 +5,8 @@ import io.manebot.command.executor.chained.ChainPriority;
 import io.manebot.command.executor.chained.ChainState;
 import io.manebot.command.executor.chained.argument.CommandArgument;
 import io.manebot.database.search.Search;
+import io.manebot.database.search.SearchLimits;
+import io.manebot.database.search.SearchOptimizer;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -18,8 +20,22 @@ public class CommandArgumentSearch extends CommandArgument {
     private static final char STRING_CHARACTER = '"';
     private static final char ESCAPE_CHARACTER = '\\';
 
-    public CommandArgumentSearch() { }
-    public CommandArgumentSearch(Argument argument) { }
+    private final SearchLimits limits;
+
+    public CommandArgumentSearch() {
+        this(SearchLimits.DEFAULT);
+    }
+
+    public CommandArgumentSearch(Argument argument) {
+        this(new SearchLimits.Builder()
+                .setMaximumDepth(argument.maximumDepth())
+                .setMaximumPredicates(argument.maximumPredicates())
+                .build());
+    }
+
+    public CommandArgumentSearch(SearchLimits limits) {
+        this.limits = limits;
+    }
 
     @Override
     public String getHelpString() {
@@ -30,11 +46,13 @@ public class CommandArgumentSearch extends CommandArgument {
      * Parses a search lexically; does NOT execute any search or validate arguments.
      *
      * This behavior defaults to the lexical parser statically defined in the <b>Search</b> class, on the <i>parse</i>
-     * method.
+     * method.  The parsed search is checked against this argument's <b>SearchLimits</b>, and then simplified by
+     * <b>SearchOptimizer</b>.
      *
      * @param state State to parse.  Since this argument parses multiple lines, it is entirely consumed.
      * @return ChainPriority instance that was determined.
-     * @throws IllegalArgumentException if there was a problem <i>lexically</i> parsing the chain state.
+     * @throws IllegalArgumentException if there was a problem <i>lexically</i> parsing the chain state, or the search
+     *                                  is too deeply nested or has too many terms.
      */
     @Override
     public ChainPriority cast(ChainState state)  {
@@ -44,7 +62,12 @@ public class CommandArgumentSearch extends CommandArgument {
         }
 
         String queryString = String.join(" ", state.getArguments());
-        state.extend(state.size(), Search.parse(queryString));
+        Search search = Search.parse(queryString);
+
+        // Checked before optimizing, which recurses through the clauses
+        limits.check(search);
+
+        state.extend(state.size(), SearchOptimizer.optimize(search));
         return ChainPriority.LOW;
     }
 
@@ -62,5 +85,7 @@ public class CommandArgumentSearch extends CommandArgument {
     @Target(ElementType.PARAMETER)
     @AnnotatedCommandExecutor.Argument(type = CommandArgumentSearch.class)
     public @interface Argument {
+        int maximumDepth() default SearchLimits.DEFAULT_MAXIMUM_DEPTH;
+        int maximumPredicates() default SearchLimits.DEFAULT_MAXIMUM_PREDICATES;
     }
 }
@@ -0,0 +1,132 @@
+package io.manebot.database;
+
+import io.manebot.lambda.ThrowingConsumer;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects many database operations and executes them together in a single transaction.
+ *
+ * Operations are applied in the order they were added.  Every <i>batchSize</i> operations the session is flushed,
+ * allowing the persistence provider to send the pending statements as JDBC batches, and then cleared so that the
+ * persistence context does not grow with the size of the batch.  Entities added to a batch are therefore detached
+ * once the batch has been executed.  When executed inside a unit of work, the unit's session is only flushed, since
+ * clearing it would detach every entity the unit has loaded.
+ *
+ * Once the batch commits, the classes of the entities it persisted or merged are reported to
+ * <b>Database.notifyWritten</b>; operations added with <b>add</b> report the entity class given alongside them.  A
+ * batch executed inside a unit of work's transaction reports them when that transaction commits.
+ */
+public final class Batch {
+    private final Database database;
+    private final int batchSize;
+    private final List<ThrowingConsumer<EntityManager, ? extends Exception>> operations = new ArrayList<>();
+    private final Set<Class<?>> written = new LinkedHashSet<>();
+
+    Batch(Database database, int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive");
+
+        this.database = database;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Gets the number of operations flushed together in each chunk of this batch.
+     * @return batch size.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Gets the number of operations waiting to be executed.
+     * @return pending operation count.
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * Adds an operation to this batch.
+     * @param operation operation to execute against the batch session.
+     * @return Batch instance.
+     */
+    public Batch add(ThrowingConsumer<EntityManager, ? extends Exception> operation) {
+        operations.add(operation);
+        return this;
+    }
+
+    /**
+     * Adds an operation to this batch which writes rows of the given entity class.
+     * @param entityClass entity class written by the operation.
+     * @param operation operation to execute against the batch session.
+     * @return Batch instance.
+     */
+    public Batch add(Class<?> entityClass, ThrowingConsumer<EntityManager, ? extends Exception> operation) {
+        written.add(entityClass);
+        return add(operation);
+    }
+
+    /**
+     * Adds a new entity to be persisted by this batch.
+     * @param entity entity to persist.
+     * @return Batch instance.
+     */
+    public Batch persist(Object entity) {
+        return add(entity.getClass(), s -> s.persist(entity));
+    }
+
+    /**
+     * Adds an entity to be merged by this batch.
+     * @param entity entity to merge.
+     * @return Batch instance.
+     */
+    public Batch merge(Object entity) {
+        return add(entity.getClass(), s -> s.merge(entity));
+    }
+
+    /**
+     * Executes all pending operations in one transaction, rolling back all of them on failure.  The batch is empty
+     * afterwards, and may be reused.
+     *
+     * @return number of operations executed.
+     * @throws SQLException if there was a problem executing any operation, or committing the transaction.
+     */
+    public int execute() throws SQLException {
+        if (operations.isEmpty()) return 0;
+
+        List<ThrowingConsumer<EntityManager, ? extends Exception>> operations = new ArrayList<>(this.operations);
+        this.operations.clear();
+
+        List<Class<?>> written = new ArrayList<>(this.written);
+        this.written.clear();
+
+        int total = database.executeTransaction(s -> {
+            boolean shared = s == UnitOfWork.getSession(database);
+            int executed = 0;
+
+            for (ThrowingConsumer<EntityManager, ? extends Exception> operation : operations) {
+                operation.acceptChecked(s);
+
+                if (++executed % batchSize == 0) {
+                    s.flush();
+                    if (!shared) s.clear();
+                }
+            }
+
+            // Deferred to this transaction's commit, or that of the unit of work's transaction it joined
+            database.afterCommit(() -> {
+                for (Class<?> entityClass : written) database.notifyWritten(entityClass);
+            });
+
+            return executed;
+        });
+
+        return total;
+    }
+}
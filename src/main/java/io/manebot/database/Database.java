@@ -1,15 +1,36 @@
 package io.manebot.database;
 
+import io.manebot.database.search.SearchCursor;
 import io.manebot.database.search.SearchHandler;
+import io.manebot.lambda.ThrowingCallable;
 import io.manebot.lambda.ThrowingConsumer;
 import io.manebot.lambda.ThrowingFunction;
 
 import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.TypedQuery;
+import javax.sql.DataSource;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 public interface Database extends AutoCloseable {
+    /**
+     * Persistence provider hint marking a session or query as read-only.
+     */
+    String READ_ONLY_HINT = "org.hibernate.readOnly";
+
+    /**
+     * Persistence provider hint setting the number of rows a query fetches from the server at a time.
+     */
+    String FETCH_SIZE_HINT = "org.hibernate.fetchSize";
+
+    /**
+     * JDBC batch size used by databases which do not configure one.
+     */
+    int DEFAULT_BATCH_SIZE = 50;
 
     /**
      * Gets the classloader used by this database to load entity model classes associated with it.
@@ -50,6 +71,8 @@ public interface Database extends AutoCloseable {
     /**
      * Executes a function on the database, using a session and returning the session to the pool fairly.
      *
+     * If a unit of work is open for this database on the current thread, its session is used instead.
+     *
      * @param function Function to execute.
      * @param <T> Return type of the function.
      *
@@ -58,6 +81,9 @@ public interface Database extends AutoCloseable {
      * @return User-defined result.
      */
     default <T, E extends Exception> T execute(ThrowingFunction<EntityManager, T, E> function) throws E {
+        EntityManager shared = UnitOfWork.getSession(this);
+        if (shared != null) return function.applyChecked(shared);
+
         EntityManager session = null;
 
         try {
@@ -71,11 +97,19 @@ public interface Database extends AutoCloseable {
     /**
      * Executes a function on the database, using a session and returning the session to the pool fairly.
      *
+     * If a unit of work is open for this database on the current thread, its session is used instead.
+     *
      * @throws E user-defined exception
      *
      * @param function Function to execute.
      */
     default <E extends Exception> void execute(ThrowingConsumer<EntityManager, E> function) throws E {
+        EntityManager shared = UnitOfWork.getSession(this);
+        if (shared != null) {
+            function.acceptChecked(shared);
+            return;
+        }
+
         EntityManager session = null;
 
         try {
@@ -87,58 +121,172 @@ public interface Database extends AutoCloseable {
     }
 
     /**
-     * Executes a function on the database, using a transactional
-     * session and returning the session to the pool fairly, automatically rolling back on failure.
+     * Executes a read-only function on the database, using a read-only session and returning the session to the pool
+     * fairly.  Changes made to entities within the function are never flushed.
+     *
+     * If a unit of work is open for this database on the current thread, its session is used instead, so that reads
+     * observe the unit's own writes.
      *
      * @param function Function to execute.
-     * @throws SQLException failure to execute <b>function</b> or transactional behavior.
+     * @param <T> Return type of the function.
+     *
+     * @throws E user-defined exception
+     *
+     * @return User-defined result.
      */
-    default <E extends Exception> void executeTransaction(ThrowingConsumer<EntityManager, E> function)
-            throws SQLException {
+    default <T, E extends Exception> T executeReadOnly(ThrowingFunction<EntityManager, T, E> function) throws E {
+        EntityManager shared = UnitOfWork.getSession(this);
+        if (shared != null) return function.applyChecked(shared);
+
         EntityManager session = null;
 
         try {
-            session = openSession();
-            session.getTransaction().begin();
-            function.acceptChecked(session);
-            session.getTransaction().commit();
-        } catch (Throwable e) {
-            if (session != null && session.getTransaction().isActive())
-                session.getTransaction().rollback();
-
-            throw new SQLException("Problem executing transaction", e);
+            session = openReadOnlySession();
+            return function.applyChecked(session);
         } finally {
             if (session != null) session.close();
         }
     }
+
+    /**
+     * Executes a function on the database, using a transactional
+     * session and returning the session to the pool fairly, automatically rolling back on failure.
+     *
+     * If a unit of work is open for this database on the current thread, the transaction is run on its session, or
+     * joins the transaction already active on it.
+     *
+     * @param function Function to execute.
+     * @throws SQLException failure to execute <b>function</b> or transactional behavior.
+     */
+    default <E extends Exception> void executeTransaction(ThrowingConsumer<EntityManager, E> function)
+            throws SQLException {
+        executeTransaction((ThrowingFunction<EntityManager, Void, E>) s -> {
+            function.acceptChecked(s);
+            return null;
+        });
+    }
+
     /**
      * Executes a function on the database, using a transactional
      * session and returning the session to the pool fairly, automatically rolling back on failure.
      *
+     * If a unit of work is open for this database on the current thread, the transaction is run on its session, or
+     * joins the transaction already active on it.  Actions deferred with <b>afterCommit</b> run once the outermost
+     * transaction on the unit's session commits.
+     *
      * @param function Function to execute.
      * @return User-defined result.
      * @throws SQLException failure to execute <b>function</b> or transactional behavior.
      */
     default <T, E extends Exception> T executeTransaction(ThrowingFunction<EntityManager, T, E> function)
             throws SQLException {
+        EntityManager shared = UnitOfWork.getSession(this);
+        boolean joined = shared != null && shared.getTransaction().isActive();
         EntityManager session = null;
+        List<Runnable> afterCommit = null;
         T o;
 
         try {
-            session = openSession();
+            if (joined) return function.applyChecked(shared);
+
+            session = shared != null ? shared : openSession();
             session.getTransaction().begin();
-            o = function.apply(session);
+            afterCommit = UnitOfWork.beginTransaction(this);
+            o = function.applyChecked(session);
             session.getTransaction().commit();
-            return o;
         } catch (Throwable e) {
-            if (session != null && session.getTransaction().isActive())
+            if (joined) {
+                if (shared.getTransaction().isActive()) shared.getTransaction().setRollbackOnly();
+            } else if (session != null && session.getTransaction().isActive()) {
                 session.getTransaction().rollback();
+            }
+
+            // A rolled back shared session may hold entities which no longer match the database
+            if (shared != null && !joined) {
+                shared.clear();
+                UnitOfWork.rolledBack(this);
+            }
 
             throw new SQLException("Problem executing transaction", e);
         } finally {
-            if (session != null)
+            if (afterCommit != null) UnitOfWork.endTransaction(this, afterCommit);
+
+            if (session != null && session != shared)
                 session.close();
         }
+
+        if (session == shared) UnitOfWork.committed(this);
+        for (Runnable action : afterCommit) action.run();
+        return o;
+    }
+
+    /**
+     * Gets the executor used to run this database's asynchronous work.  The executor is sized to the database's
+     * connection pool.
+     *
+     * By default, the database is given an executor of its own with <b>DatabaseExecutor.DEFAULT_THREADS</b> threads
+     * (see <b>DatabaseExecutor.of</b>); implementations knowing the size of their pool should override this.
+     *
+     * @return DatabaseExecutor instance.
+     */
+    default DatabaseExecutor getExecutor() {
+        return DatabaseExecutor.of(this);
+    }
+
+    /**
+     * Executes a function on the database executor, using a session and returning the session to the pool fairly.
+     *
+     * @param function Function to execute.
+     * @param <T> Return type of the function.
+     * @return future completed with the user-defined result.
+     */
+    @SuppressWarnings("overloads") // As with execute, a lambda's body selects the consumer or the function overload
+    default <T, E extends Exception> CompletableFuture<T> executeAsync(ThrowingFunction<EntityManager, T, E> function) {
+        return getExecutor().submit(() -> execute(function));
+    }
+
+    /**
+     * Executes a function on the database executor, using a session and returning the session to the pool fairly.
+     *
+     * @param function Function to execute.
+     * @return future completed when the function has executed.
+     */
+    @SuppressWarnings("overloads")
+    default <E extends Exception> CompletableFuture<Void> executeAsync(ThrowingConsumer<EntityManager, E> function) {
+        return getExecutor().submit(() -> {
+            execute(function);
+            return null;
+        });
+    }
+
+    /**
+     * Executes a function on the database executor, using a transactional session and returning the session to the
+     * pool fairly, automatically rolling back on failure.
+     *
+     * @param function Function to execute.
+     * @param <T> Return type of the function.
+     * @return future completed with the user-defined result, or exceptionally with a <b>SQLException</b>.
+     */
+    @SuppressWarnings("overloads") // As with executeTransaction, a lambda's body selects the overload
+    default <T, E extends Exception> CompletableFuture<T> executeTransactionAsync(
+            ThrowingFunction<EntityManager, T, E> function) {
+        return getExecutor().submit(() -> executeTransaction(function));
+    }
+
+    /**
+     * Executes a function on the database executor, using a transactional session and returning the session to the
+     * pool fairly, automatically rolling back on failure.
+     *
+     * @param function Function to execute.
+     * @return future completed when the transaction has committed, or exceptionally with a <b>SQLException</b>.
+     */
+    @SuppressWarnings("overloads")
+    default <E extends Exception> CompletableFuture<Void> executeTransactionAsync(
+            ThrowingConsumer<EntityManager, E> function) {
+        return getExecutor().submit(() -> {
+            executeTransaction(function);
+            return null;
+        });
     }
 
     /**
@@ -148,6 +296,161 @@ public interface Database extends AutoCloseable {
      */
     EntityManager openSession();
 
+    /**
+     * Opens a read-only session to the database.  Read-only sessions never flush, and carry the provider's read-only
+     * hint so that loaded entities are not tracked for dirty checking.
+     *
+     * Implementations route read-only sessions to the read-only data source configured by
+     * <b>ModelConstructor.setReadOnlyDataSource</b>, if any, such as a replica of the primary database.  By default,
+     * a session is opened against the primary database.
+     *
+     * @return Session instance.
+     */
+    default EntityManager openReadOnlySession() {
+        EntityManager session = openSession();
+        session.setFlushMode(FlushModeType.COMMIT);
+        session.setProperty(READ_ONLY_HINT, true);
+        return session;
+    }
+
+    /**
+     * Creates a single-statement update for one row of an entity, which is applied without loading the row.
+     *
+     * @param entityClass entity class to update.
+     * @param idAttribute name of the entity's identifier attribute.
+     * @param id identifier of the row to update.
+     * @param <T> entity type.
+     * @return EntityUpdate instance.
+     */
+    default <T> EntityUpdate<T> createUpdate(Class<T> entityClass, String idAttribute, Object id) {
+        return new EntityUpdate<>(this, entityClass, idAttribute, id);
+    }
+
+    /**
+     * Runs an action once the current write is durable.  Inside <b>executeTransaction</b>, the action runs when that
+     * transaction commits (for transactions joining a unit of work's, the outermost one), and is discarded if it rolls
+     * back.  Outside of one, it runs when a transaction active on this database's unit of work commits, if there is
+     * one, and immediately otherwise.
+     *
+     * @param action action to run, such as <b>notifyWritten</b>.
+     */
+    default void afterCommit(Runnable action) {
+        UnitOfWork.afterCommit(this, action);
+    }
+
+    /**
+     * Records that rows of an entity class were written, so that results cached from that class are no longer served.
+     * <b>EntityUpdate</b> and <b>Batch</b> do this themselves, through <b>afterCommit</b>; code writing in
+     * <b>executeTransaction</b> should call this after the transaction has committed.
+     *
+     * @param entityClass entity class written to.
+     */
+    default void notifyWritten(Class<?> entityClass) {
+        EntityWrites.of(this).written(entityClass);
+    }
+
+    /**
+     * Gets the JDBC batch size configured for this database.  By default, <b>DEFAULT_BATCH_SIZE</b> is used.
+     * @return batch size.
+     */
+    default int getBatchSize() {
+        return DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Creates a batch of operations which are executed together in one transaction, flushed in chunks of this
+     * database's configured batch size.
+     *
+     * @return Batch instance.
+     */
+    default Batch createBatch() {
+        return createBatch(getBatchSize());
+    }
+
+    /**
+     * Creates a batch of operations which are executed together in one transaction.
+     *
+     * @param batchSize number of operations to flush and clear from the session at a time.
+     * @return Batch instance.
+     */
+    default Batch createBatch(int batchSize) {
+        return new Batch(this, batchSize);
+    }
+
+    /**
+     * Opens a cursor over the results of a query, which are fetched as the cursor is read rather than all at once.
+     * The cursor uses its own read-only session, even inside a unit of work, and must be closed.
+     *
+     * The session holds a transaction open for the lifetime of the cursor, and rolls it back when the cursor is closed;
+     * PostgreSQL's driver ignores the fetch size in autocommit mode, and would otherwise read every row at once.  MySQL's
+     * driver reads every row at once regardless, unless the connection URL sets <i>useCursorFetch=true</i> (or the fetch
+     * size is <b>Integer.MIN_VALUE</b>, streaming rows one at a time).
+     *
+     * @param function function creating the query in the cursor's session.
+     * @param fetchSize number of rows to fetch from the server at a time.
+     * @param <T> row type.
+     * @param <E> user-defined exception.
+     * @return SearchCursor instance.
+     * @throws SQLException if there was a problem executing the query.
+     * @throws E user-defined exception.
+     */
+    default <T, E extends Exception> SearchCursor<T> openCursor(
+            ThrowingFunction<EntityManager, TypedQuery<T>, E> function,
+            int fetchSize
+    ) throws SQLException, E {
+        if (fetchSize <= 0) throw new IllegalArgumentException("fetchSize must be positive");
+
+        EntityManager session = openReadOnlySession();
+
+        try {
+            session.getTransaction().begin();
+
+            TypedQuery<T> query = function.applyChecked(session);
+            query.setHint(READ_ONLY_HINT, true);
+            query.setHint(FETCH_SIZE_HINT, fetchSize);
+            return new SearchCursor<>(session, query.getResultStream(), fetchSize);
+        } catch (Throwable e) {
+            if (session.getTransaction().isActive()) session.getTransaction().rollback();
+            session.close();
+
+            // Invalid searches are reported as they are, not as database problems
+            if (e instanceof RuntimeException && !(e instanceof IllegalArgumentException))
+                throw new SQLException("Problem opening cursor", e);
+
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a unit of work on the current thread, in which <b>execute</b> and <b>executeTransaction</b> share a single
+     * session until the unit is closed.
+     *
+     * @return UnitOfWork instance, which must be closed by the calling thread.
+     */
+    default UnitOfWork openUnitOfWork() {
+        return UnitOfWork.open(this);
+    }
+
+    /**
+     * Runs a function in a unit of work on the current thread, so that every read and write it makes through this
+     * database shares one session on the primary database.
+     *
+     * @param function function to run.
+     * @param <T> Return type of the function.
+     * @param <E> user-defined exception.
+     * @return User-defined result.
+     * @throws E user-defined exception.
+     */
+    default <T, E extends Exception> T inUnitOfWork(ThrowingCallable<T, E> function) throws E {
+        UnitOfWork unit = openUnitOfWork();
+
+        try {
+            return function.call();
+        } finally {
+            unit.close();
+        }
+    }
+
     /**
      * Creates a search, which accepts certain arguments to construct results in queryable commands.
      * @param entityClass Search entity class.
@@ -243,6 +546,49 @@ public interface Database extends AutoCloseable {
          */
         ModelConstructor setUpdateSchema(boolean updateSchema);
 
+        /**
+         * Gets the data source used for read-only sessions.  By default, none is set.
+         * @return read-only data source, or null if read-only sessions use the primary database.
+         */
+        default DataSource getReadOnlyDataSource() {
+            return null;
+        }
+
+        /**
+         * Sets the data source used for read-only sessions, such as a replica of the primary database.
+         *
+         * Reads made outside of a unit of work are routed to this data source, so they may not yet observe writes
+         * made moments earlier if the replica lags behind the primary.
+         *
+         * @param dataSource read-only data source, or null to use the primary database.
+         * @return ModelConstructor instance.
+         * @throws UnsupportedOperationException if this model constructor cannot route read-only sessions, which is the
+         *                                       default.
+         */
+        default ModelConstructor setReadOnlyDataSource(DataSource dataSource) {
+            throw new UnsupportedOperationException("read-only data sources are not supported");
+        }
+
+        /**
+         * Gets the JDBC batch size used when flushing inserts and updates for this database.  By default,
+         * <b>Database.DEFAULT_BATCH_SIZE</b> is used.
+         * @return batch size.
+         */
+        default int getBatchSize() {
+            return DEFAULT_BATCH_SIZE;
+        }
+
+        /**
+         * Sets the JDBC batch size used when flushing inserts and updates for this database.
+         * @param batchSize batch size, which must be positive.
+         * @return ModelConstructor instance.
+         * @throws UnsupportedOperationException if this model constructor does not configure JDBC batching, which is
+         *                                       the default.
+         */
+        default ModelConstructor setBatchSize(int batchSize) {
+            throw new UnsupportedOperationException("JDBC batching is not configurable");
+        }
+
     }
 
 }
@@ -0,0 +1,234 @@
+package io.manebot.database;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.manebot.lambda.ThrowingCallable;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded executor dedicated to database work, used by the asynchronous methods on <b>Database</b>.
+ *
+ * The executor runs a fixed number of threads, which should match the size of the database's connection pool, and
+ * holds at most <i>queueCapacity</i> waiting tasks.  Work submitted while the queue is full is rejected, completing the
+ * returned future exceptionally with a <b>RejectedExecutionException</b>, rather than stalling the caller.  Queue
+ * depth, wait time and rejections are recorded so that pool saturation is visible.
+ *
+ * Tasks run outside of any virtual process, so they should not depend on the calling process's user or permissions.
+ *
+ * Databases which do not provide an executor of their own are each given one by <b>of</b>, with
+ * <b>DEFAULT_THREADS</b> threads and room for <b>DEFAULT_QUEUE_CAPACITY</b> waiting tasks.  The <b>SYNCHRONOUS</b>
+ * executor instead runs each task on the thread submitting it, returning a future which is already complete.
+ */
+public final class DatabaseExecutor implements AutoCloseable {
+    public static final int DEFAULT_THREADS = 4;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Executor running tasks on the submitting thread, for databases which should not run work in the background.
+     * Its metrics are shared by every database using it.
+     */
+    public static final DatabaseExecutor SYNCHRONOUS = new DatabaseExecutor();
+
+    private static final Map<Database, DatabaseExecutor> defaults = new MapMaker().weakKeys().makeMap();
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder totalWaitNanoseconds = new LongAdder();
+    private final LongAdder totalRunNanoseconds = new LongAdder();
+    private final LongAccumulator maximumWaitNanoseconds = new LongAccumulator(Math::max, 0L);
+
+    public DatabaseExecutor(String name, int threads, int queueCapacity) {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be positive");
+        if (queueCapacity <= 0) throw new IllegalArgumentException("queueCapacity must be positive");
+
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("database-" + name + "-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private DatabaseExecutor() {
+        this.executor = null;
+    }
+
+    /**
+     * Gets the executor kept for a database which does not provide one of its own, creating it if necessary.  Its
+     * threads time out when idle, so an unused executor holds no threads.
+     * @param database database to execute work for.
+     * @return DatabaseExecutor instance.
+     */
+    public static DatabaseExecutor of(Database database) {
+        return defaults.computeIfAbsent(database, key ->
+                new DatabaseExecutor(key.getName(), DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY));
+    }
+
+    /**
+     * Submits a task to the executor.
+     * @param callable task to execute.
+     * @param <T> result type.
+     * @return future completed with the task's result, or exceptionally with its failure or rejection.
+     */
+    public <T> CompletableFuture<T> submit(ThrowingCallable<T, ? extends Exception> callable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queued = System.nanoTime();
+
+        submitted.increment();
+
+        Runnable task = () -> {
+            long started = System.nanoTime();
+            long waited = started - queued;
+            totalWaitNanoseconds.add(waited);
+            maximumWaitNanoseconds.accumulate(waited);
+
+            try {
+                future.complete(callable.call());
+            } catch (Throwable e) {
+                failed.increment();
+                future.completeExceptionally(e);
+            } finally {
+                totalRunNanoseconds.add(System.nanoTime() - started);
+                completed.increment();
+            }
+        };
+
+        if (executor == null) {
+            task.run();
+            return future;
+        }
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Finds if this executor runs tasks on the submitting thread.
+     * @return true if tasks run synchronously, false if they run on the executor's own threads.
+     */
+    public boolean isSynchronous() {
+        return executor == null;
+    }
+
+    /**
+     * Gets the number of threads this executor runs.
+     * @return thread count, or 0 if tasks run on the submitting thread.
+     */
+    public int getThreads() {
+        return executor == null ? 0 : executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Gets the number of tasks currently executing.
+     * @return active task count.
+     */
+    public int getActiveCount() {
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    /**
+     * Gets the number of tasks waiting for a thread.
+     * @return queued task count.
+     */
+    public int getQueuedCount() {
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    /**
+     * Gets the number of further tasks that can be queued before submissions are rejected.
+     * @return remaining queue capacity.
+     */
+    public int getRemainingCapacity() {
+        return executor == null ? Integer.MAX_VALUE : executor.getQueue().remainingCapacity();
+    }
+
+    /**
+     * Gets the total number of tasks submitted, including rejected tasks.
+     * @return submitted task count.
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * Gets the total number of tasks which have finished executing.
+     * @return completed task count.
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Gets the total number of tasks rejected because the queue was full.
+     * @return rejected task count.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Gets the total number of tasks which completed exceptionally.
+     * @return failed task count.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Gets the average time, in nanoseconds, tasks waited in the queue before executing.
+     * @return average queue wait time.
+     */
+    public double getAverageWaitNanoseconds() {
+        long completed = getCompletedCount();
+        if (completed <= 0) return 0D;
+        return (double) totalWaitNanoseconds.sum() / (double) completed;
+    }
+
+    /**
+     * Gets the longest time, in nanoseconds, any task waited in the queue before executing.
+     * @return maximum queue wait time.
+     */
+    public long getMaximumWaitNanoseconds() {
+        return maximumWaitNanoseconds.get();
+    }
+
+    /**
+     * Gets the average time, in nanoseconds, tasks spent executing.
+     * @return average execution time.
+     */
+    public double getAverageRunNanoseconds() {
+        long completed = getCompletedCount();
+        if (completed <= 0) return 0D;
+        return (double) totalRunNanoseconds.sum() / (double) completed;
+    }
+
+    /**
+     * Finds if every thread is busy and further tasks will wait in the queue.
+     * @return true if the executor is saturated, false otherwise.
+     */
+    public boolean isSaturated() {
+        return executor != null && getActiveCount() >= getThreads();
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) executor.shutdown();
+    }
+}
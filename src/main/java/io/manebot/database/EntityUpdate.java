@@ -0,0 +1,156 @@
+package io.manebot.database;
+
+import io.manebot.database.search.SearchTextIndex;
+
+import javax.persistence.EntityManager;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes a single-statement bulk update against one row of an entity table, issued as
+ * <i>UPDATE ... SET ... WHERE id = :id</i> without first loading the row into a session.
+ *
+ * Optional expectations may be added, which are appended to the WHERE clause as an optimistic version check.  If an
+ * update with expectations matches no rows, it fails with an <b>OptimisticLockException</b>.
+ *
+ * Bulk updates bypass the persistence context.  When an update runs in the session of a unit of work, the session is
+ * flushed first, and a managed copy of the row is refreshed afterwards, so that the rest of the unit sees the update.
+ *
+ * @param <T> entity type being updated.
+ */
+public final class EntityUpdate<T> {
+    private final Database database;
+    private final Class<T> entityClass;
+    private final String idAttribute;
+    private final Object id;
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+    private final Map<String, Object> expectations = new LinkedHashMap<>();
+
+    EntityUpdate(Database database, Class<T> entityClass, String idAttribute, Object id) {
+        this.database = database;
+        this.entityClass = entityClass;
+        this.idAttribute = idAttribute;
+        this.id = id;
+    }
+
+    /**
+     * Gets the entity class this update applies to.
+     * @return entity class.
+     */
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Sets an attribute on the target row.
+     * @param attribute attribute name.
+     * @param value new value, may be null.
+     * @return EntityUpdate instance.
+     */
+    public EntityUpdate<T> set(String attribute, Object value) {
+        values.put(attribute, value);
+        return this;
+    }
+
+    /**
+     * Sets the <i>updated</i> timestamp column of a <b>TimedRow</b> to the current time.  Model setters touch every
+     * row they update, so that the column records the row's last change.
+     * @return EntityUpdate instance.
+     */
+    public EntityUpdate<T> touch() {
+        return set("updated", (int) (System.currentTimeMillis() / 1000L));
+    }
+
+    /**
+     * Requires the target row to hold the given value when the update is applied, such as a version or timestamp
+     * column read earlier.
+     * @param attribute attribute name.
+     * @param value expected value, may be null.
+     * @return EntityUpdate instance.
+     */
+    public EntityUpdate<T> expect(String attribute, Object value) {
+        expectations.put(attribute, value);
+        return this;
+    }
+
+    /**
+     * Executes the update in its own transaction.
+     * @return number of rows updated.
+     * @throws SQLException if there was a problem executing the update, or an expectation was not met.
+     */
+    public int execute() throws SQLException {
+        if (values.isEmpty()) throw new IllegalStateException("no attributes set");
+
+        return database.executeTransaction(s -> {
+            boolean shared = s == UnitOfWork.getSession(database);
+
+            // Pending changes to the row must reach the database before the update overwrites them
+            if (shared) s.flush();
+
+            CriteriaBuilder criteriaBuilder = s.getCriteriaBuilder();
+            CriteriaUpdate<T> update = criteriaBuilder.createCriteriaUpdate(entityClass);
+            Root<T> root = update.from(entityClass);
+
+            for (Map.Entry<String, Object> value : values.entrySet())
+                update.set(root.get(value.getKey()), value.getValue());
+
+            List<Predicate> predicates = new ArrayList<>(expectations.size() + 1);
+            predicates.add(criteriaBuilder.equal(root.get(idAttribute), id));
+
+            for (Map.Entry<String, Object> expectation : expectations.entrySet()) {
+                if (expectation.getValue() == null)
+                    predicates.add(criteriaBuilder.isNull(root.get(expectation.getKey())));
+                else
+                    predicates.add(criteriaBuilder.equal(root.get(expectation.getKey()), expectation.getValue()));
+            }
+
+            update.where(predicates.toArray(new Predicate[0]));
+
+            int rows = s.createQuery(update).executeUpdate();
+            if (rows <= 0 && !expectations.isEmpty())
+                throw new OptimisticLockException(
+                        entityClass.getSimpleName() + " " + id + " was modified or removed concurrently"
+                );
+
+            if (rows > 0) {
+                if (shared) synchronize(s);
+
+                Map<String, Object> written = new LinkedHashMap<>(values);
+
+                // Deferred to this transaction's commit, or that of the unit of work's transaction it joined
+                database.afterCommit(() -> {
+                    SearchTextIndex.updated(database, entityClass, id, written);
+                    database.notifyWritten(entityClass);
+                });
+            }
+
+            return rows;
+        });
+    }
+
+    /**
+     * Brings the session's copy of the updated row, if any, in line with the database.
+     * @param session session the update was executed in.
+     */
+    private void synchronize(EntityManager session) {
+        PersistenceUnitUtil util = session.getEntityManagerFactory().getPersistenceUnitUtil();
+
+        // Returns the managed instance if the session holds one, and an uninitialized reference otherwise
+        T reference = session.getReference(entityClass, id);
+
+        if (util.isLoaded(reference))
+            session.refresh(reference);
+        else
+            session.detach(reference);
+    }
+}
@@ -0,0 +1,147 @@
+package io.manebot.database;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.manebot.cache.CacheManager;
+import io.manebot.cache.EntityChange;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks writes made to the entities of one database, by entity class.
+ *
+ * Each entity class has a write version, which changes whenever rows of that class are written through
+ * <b>Database.notifyWritten</b>.  Caches of query results, such as <b>SearchResultCache</b>, remember the version they
+ * were loaded at, and treat an entry as stale once the version has moved on.  Writes are also published on the
+ * invalidation bus, so the versions held by other nodes move on as well.
+ *
+ * The local version moves on with every write, but publishes are coalesced per class: the first write to a class is
+ * published at once, in the background, and any further writes to it within <b>PUBLISH_INTERVAL_MS</b> are published
+ * together once the interval has passed.  A class written constantly (i.e. users' last seen times) therefore costs the
+ * bus one change per interval, rather than one per write.
+ *
+ * <b>EntityUpdate</b> and <b>Batch</b> report their writes automatically.  Writes made directly in
+ * <b>Database.executeTransaction</b> cannot be seen here, and should be reported with <b>Database.notifyWritten</b>
+ * once the transaction has committed.
+ */
+public final class EntityWrites {
+    /**
+     * Minimum time between two publishes of writes to the same entity class.
+     */
+    public static final long PUBLISH_INTERVAL_MS = 500L;
+
+    private static final Map<Database, EntityWrites> writes = new MapMaker().weakKeys().makeMap();
+
+    private static final ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("entity-writes-%d").setDaemon(true).build()
+    );
+
+    private final CacheManager cacheManager;
+    private final String changeKind;
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<String, Publish> publishes = new ConcurrentHashMap<>();
+
+    private EntityWrites(Database database) {
+        this.cacheManager = database.getDatabaseManager().getBot().getCacheManager();
+        this.changeKind = "manebot:entityWrite:" + database.getName();
+
+        cacheManager.subscribe(changeKind, this::onChange);
+    }
+
+    private void onChange(EntityChange change) {
+        // ID is the entity class name
+        getCounter(change.getId()).incrementAndGet();
+    }
+
+    /**
+     * Gets the write tracker for the given database, creating it if necessary.
+     * @param database database to track writes to.
+     * @return EntityWrites instance.
+     */
+    public static EntityWrites of(Database database) {
+        return writes.computeIfAbsent(database, EntityWrites::new);
+    }
+
+    /**
+     * Gets the kind under which writes to this database are published on the invalidation bus.  The ID of each change
+     * is the name of the entity class written to.
+     * @return change kind.
+     */
+    public String getChangeKind() {
+        return changeKind;
+    }
+
+    private AtomicLong getCounter(String entityClassName) {
+        return versions.computeIfAbsent(entityClassName, key -> new AtomicLong());
+    }
+
+    /**
+     * Gets the current write version of an entity class.  Callers caching results read from the class should read the
+     * version before running their query, so that a write made while the query runs leaves the result stale.
+     * @param entityClass entity class.
+     * @return write version.
+     */
+    public long getVersion(Class<?> entityClass) {
+        return getCounter(entityClass.getName()).get();
+    }
+
+    /**
+     * Records that rows of an entity class have been written, here and on other nodes.
+     * @param entityClass entity class written to.
+     */
+    public void written(Class<?> entityClass) {
+        String name = entityClass.getName();
+        getCounter(name).incrementAndGet();
+        publishes.computeIfAbsent(name, Publish::new).written();
+    }
+
+    /**
+     * Coalesces the publishes of writes to one entity class.
+     */
+    private final class Publish {
+        private final String entityClassName;
+        private boolean dirty = false; // guarded by this
+        private boolean scheduled = false; // guarded by this
+
+        private Publish(String entityClassName) {
+            this.entityClassName = entityClassName;
+        }
+
+        private void written() {
+            synchronized (this) {
+                dirty = true;
+                if (scheduled) return;
+                scheduled = true;
+            }
+
+            publisher.execute(this::flush);
+        }
+
+        private void flush() {
+            synchronized (this) {
+                if (!dirty) {
+                    scheduled = false;
+                    return;
+                }
+
+                dirty = false;
+            }
+
+            try {
+                cacheManager.publish(changeKind, entityClassName, getCounter(entityClassName).get());
+            } catch (Throwable e) {
+                Logger.getGlobal().log(Level.WARNING, "Problem publishing writes to " + entityClassName, e);
+            } finally {
+                // Writes made until then are published together
+                publisher.schedule(this::flush, PUBLISH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package io.manebot.database;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A unit of work binds one session of a database to the current thread, and so to the current virtual process.
+ *
+ * While a unit of work is open, <b>Database.execute</b> and <b>Database.executeTransaction</b> reuse its session
+ * instead of opening their own, so entities loaded once (i.e. by model getters during a single command) are served from
+ * the session's first-level cache for the rest of the unit.  Units are opt-in, and are typically opened by a command
+ * dispatcher around a single command execution:
+ *
+ * <pre>
+ *     try (UnitOfWork unit = database.openUnitOfWork()) {
+ *         executor.execute(...);
+ *     }
+ * </pre>
+ *
+ * Code which only needs the unit around a block of work can use <b>Database.inUnitOfWork</b> instead.
+ *
+ * Opening a unit while one is already open for the same database on the same thread joins the existing unit; the
+ * session is closed when the outermost unit is closed.  Units must be closed on the thread that opened them.
+ *
+ * Work which must only happen once a write is durable, such as invalidating caches on other nodes, is deferred with
+ * <b>Database.afterCommit</b>.  Inside <b>Database.executeTransaction</b>, with or without a unit of work, it runs when
+ * that transaction commits (the outermost one, for transactions joining the unit's), and is discarded if the
+ * transaction rolls back.
+ */
+public final class UnitOfWork implements AutoCloseable {
+    private static final ThreadLocal<Map<Database, UnitOfWork>> units = ThreadLocal.withInitial(IdentityHashMap::new);
+    private static final ThreadLocal<Map<Database, Deque<List<Runnable>>>> transactions =
+            ThreadLocal.withInitial(IdentityHashMap::new);
+
+    private final Database database;
+    private final Thread thread;
+
+    private final List<Runnable> afterCommit = new ArrayList<>();
+
+    private EntityManager session;
+    private int depth = 1;
+
+    private UnitOfWork(Database database) {
+        this.database = database;
+        this.thread = Thread.currentThread();
+    }
+
+    /**
+     * Opens or joins the unit of work for the given database on the current thread.
+     * @param database database to open a unit of work for.
+     * @return UnitOfWork instance.
+     */
+    static UnitOfWork open(Database database) {
+        Map<Database, UnitOfWork> units = UnitOfWork.units.get();
+        UnitOfWork unit = units.get(database);
+
+        if (unit != null) {
+            unit.depth ++;
+            return unit;
+        }
+
+        unit = new UnitOfWork(database);
+        units.put(database, unit);
+        return unit;
+    }
+
+    /**
+     * Gets the session bound to the current thread for the given database, opening it if necessary.
+     * @param database database to find a session for.
+     * @return bound session if a unit of work is open for the database on this thread, null otherwise.
+     */
+    static EntityManager getSession(Database database) {
+        UnitOfWork unit = units.get().get(database);
+        if (unit == null) return null;
+        return unit.getSession();
+    }
+
+    /**
+     * Marks the start of a transaction executed by <b>Database.executeTransaction</b> on the current thread.  Actions
+     * deferred with <b>afterCommit</b> until the transaction ends are collected in the returned list.
+     * @param database database the transaction is executed on.
+     * @return actions to run once the transaction commits.
+     */
+    static List<Runnable> beginTransaction(Database database) {
+        List<Runnable> actions = new ArrayList<>();
+        transactions.get().computeIfAbsent(database, key -> new ArrayDeque<>()).push(actions);
+        return actions;
+    }
+
+    /**
+     * Marks the end of a transaction started with <b>beginTransaction</b>, whether it committed or not.
+     * @param database database the transaction was executed on.
+     * @param actions actions returned by <b>beginTransaction</b>.
+     */
+    static void endTransaction(Database database, List<Runnable> actions) {
+        Map<Database, Deque<List<Runnable>>> transactions = UnitOfWork.transactions.get();
+        Deque<List<Runnable>> stack = transactions.get(database);
+        if (stack == null) return;
+
+        // Lists are compared by identity; two empty lists are equal
+        stack.removeIf(list -> list == actions);
+        if (stack.isEmpty()) transactions.remove(database);
+    }
+
+    /**
+     * Runs an action once the innermost transaction executed on the current thread for the given database commits, or
+     * the transaction active on its unit of work's session, or immediately if there is no such transaction.
+     * @param database database written to.
+     * @param action action to run.
+     */
+    static void afterCommit(Database database, Runnable action) {
+        Deque<List<Runnable>> stack = transactions.get().get(database);
+
+        if (stack != null && !stack.isEmpty()) {
+            stack.peek().add(action);
+            return;
+        }
+
+        UnitOfWork unit = units.get().get(database);
+
+        if (unit != null && unit.session != null && unit.session.getTransaction().isActive())
+            unit.afterCommit.add(action);
+        else
+            action.run();
+    }
+
+    /**
+     * Runs the actions deferred until the transaction on the current thread's unit of work committed.
+     * @param database database committed to.
+     */
+    static void committed(Database database) {
+        UnitOfWork unit = units.get().get(database);
+        if (unit != null) unit.runAfterCommit();
+    }
+
+    /**
+     * Discards the actions deferred until the transaction on the current thread's unit of work committed.
+     * @param database database rolled back.
+     */
+    static void rolledBack(Database database) {
+        UnitOfWork unit = units.get().get(database);
+        if (unit != null) unit.afterCommit.clear();
+    }
+
+    private void runAfterCommit() {
+        List<Runnable> actions = new ArrayList<>(afterCommit);
+        afterCommit.clear();
+
+        for (Runnable action : actions) action.run();
+    }
+
+    /**
+     * Gets the database this unit of work is bound to.
+     * @return Database instance.
+     */
+    public Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * Gets the session shared by this unit of work, opening it on first use.
+     * @return shared session.
+     */
+    public EntityManager getSession() {
+        if (Thread.currentThread() != thread)
+            throw new IllegalStateException("unit of work is bound to another thread");
+
+        if (session == null)
+            session = database.openSession();
+
+        return session;
+    }
+
+    /**
+     * Detaches all entities held by this unit's session, forcing them to be loaded again on next access.
+     */
+    public void clear() {
+        if (session != null) session.clear();
+    }
+
+    @Override
+    public void close() {
+        if (Thread.currentThread() != thread)
+            throw new IllegalStateException("unit of work must be closed by the thread that opened it");
+
+        if (-- depth > 0) return;
+
+        units.get().remove(database);
+
+        if (session != null) {
+            try {
+                if (session.getTransaction().isActive()) {
+                    afterCommit.clear();
+                    session.getTransaction().rollback();
+                }
+            } finally {
+                session.close();
+                session = null;
+            }
+        }
+
+        // Left by a transaction committed directly on the session, outside of executeTransaction
+        runAfterCommit();
+    }
+}
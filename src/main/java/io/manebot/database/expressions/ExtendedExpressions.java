@@ -15,6 +15,21 @@ public final class ExtendedExpressions {
         return criteriaBuilder.notLike(left, matchMode.toMatchString(escapeLike(right)), '!');
     }
 
+    /**
+     * Creates a LIKE predicate against a pattern built by <b>toLikePattern</b>, such as a bound parameter.
+     */
+    public static Predicate escapedLike(CriteriaBuilder criteriaBuilder, Expression<String> left,
+                                        Expression<String> pattern) {
+        return criteriaBuilder.like(left, pattern, '!');
+    }
+
+    /**
+     * Escapes a value and wraps it for the given match mode, as used by <b>escapedLike</b>.
+     */
+    public static String toLikePattern(String value, MatchMode matchMode) {
+        return matchMode.toMatchString(escapeLike(value));
+    }
+
     private static String escapeLike(String value) {
         return value
                 .replace("!", "!!")
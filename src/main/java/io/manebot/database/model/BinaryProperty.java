@@ -4,31 +4,103 @@ import io.manebot.property.Property;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
 
+/**
+ * A property stored as bytes.
+ *
+ * Values are written in the tagged encoding of <b>PropertyCodec</b>.  Values written by earlier versions are stored
+ * raw, with strings as UTF-16 and numbers as big-endian bytes; these are still read as before, and are rewritten in
+ * the tagged encoding the next time they are set.
+ *
+ * The byte-oriented accessors (<b>size</b>, <b>read</b> and <b>write</b>) work on the same value as <b>getBytes</b> and
+ * <b>set(byte[])</b>: bytes written are stored tagged, and bytes read are the payload of the stored value, never its
+ * header.
+ */
 public abstract class BinaryProperty implements Property {
-    private final String ENCODING = "UTF-16";
+    private final String LEGACY_ENCODING = "UTF-16";
+
+    /**
+     * Gets the size of the bytes held by this property.
+     * @return size of <b>getBytes()</b>, or -1 if the property is unset.
+     */
+    public int size() {
+        if (getStoredValue() == null) return -1;
+        return getBytes().length;
+    }
 
-    public abstract int size();
     public int write(byte[] bytes) {
         return write(bytes, 0, bytes.length);
     }
-    public abstract int write(byte[] bytes, int offs, int len);
-    public abstract int read(byte[] bytes, int offs, int len);
+
+    /**
+     * Replaces the value of this property with the given bytes, as <b>set(byte[])</b> does.
+     * @param bytes source array.
+     * @param offs offset in <i>bytes</i> to start at.
+     * @param len number of bytes to write.
+     * @return number of bytes written.
+     */
+    public int write(byte[] bytes, int offs, int len) {
+        set(Arrays.copyOfRange(bytes, offs, offs + len));
+        return len;
+    }
+
+    /**
+     * Reads the bytes held by this property, as returned by <b>getBytes()</b>.
+     * @param bytes destination array.
+     * @param offs offset in <i>bytes</i> to start at.
+     * @param len maximum number of bytes to read.
+     * @return number of bytes read.
+     */
+    public int read(byte[] bytes, int offs, int len) {
+        byte[] value = getBytes();
+        int read = Math.min(len, value.length);
+        System.arraycopy(value, 0, bytes, offs, read);
+        return read;
+    }
+
+    /**
+     * Gets the stored value without copying it.  The returned array must not be modified.
+     * @return stored value, or null if the property is unset.
+     */
+    protected abstract byte[] getStoredValue();
+
+    /**
+     * Gets the encoding format of the stored value.
+     * @return <b>PropertyCodec.VERSION</b> for tagged values, or null for raw values written by earlier versions.
+     */
+    protected abstract Integer getStoredFormat();
+
+    /**
+     * Stores an encoded value.
+     * @param value encoded value.
+     * @param format encoding format of the value, or null for a raw value.
+     */
+    protected abstract void store(byte[] value, Integer format);
+
+    /**
+     * Finds if the stored value was written raw by an earlier version, and has not been set since.
+     * @return true if the stored value is raw, false otherwise.
+     */
+    public boolean isLegacy() {
+        return getStoredValue() != null && getStoredFormat() == null;
+    }
 
     public ByteBuffer read() {
-        byte[] b = new byte[size()];
-        read(b, 0, b.length);
-        return ByteBuffer.wrap(b);
+        return ByteBuffer.wrap(getBytes());
     }
 
     @Override
     public String getString() {
+        byte[] value = getStoredValue();
+        if (value == null) return null;
+        if (getStoredFormat() != null) return PropertyCodec.decodeString(value);
+
         try {
-            if (isNull()) return null;
-            return new String(read().array(), ENCODING);
+            return new String(value, LEGACY_ENCODING);
         } catch (UnsupportedEncodingException e) {
             return null;
         }
@@ -36,138 +108,144 @@ public abstract class BinaryProperty implements Property {
 
     @Override
     public boolean getBoolean() {
-        if (isNull()) return false;
-        return read().get() == 0x1;
+        byte[] value = getStoredValue();
+        if (value == null) return false;
+        if (getStoredFormat() != null) return PropertyCodec.decodeBoolean(value);
+        return value[0] == 0x1;
     }
 
     @Override
     public byte[] getBytes() {
-        if (isNull()) return new byte[0];
-        return read().array();
+        byte[] value = getStoredValue();
+        if (value == null) return new byte[0];
+        if (getStoredFormat() != null) return PropertyCodec.decodeBytes(value);
+        return value.clone();
     }
 
     @Override
     public byte getByte() {
-        if (isNull()) return 0x0;
-        return read().get();
+        byte[] value = getStoredValue();
+        if (value == null) return 0x0;
+        if (getStoredFormat() != null) return (byte) PropertyCodec.decodeLong(value);
+        return value[0];
     }
 
     @Override
     public short getShort()
     {
-        if (isNull()) return 0x0;
-        return read().getShort();
+        byte[] value = getStoredValue();
+        if (value == null) return 0x0;
+        if (getStoredFormat() != null) return (short) PropertyCodec.decodeLong(value);
+        return ByteBuffer.wrap(value).getShort();
     }
 
     @Override
     public int getInteger() {
-        if (isNull()) return 0x0;
-        return read().getInt();
+        byte[] value = getStoredValue();
+        if (value == null) return 0x0;
+        if (getStoredFormat() != null) return (int) PropertyCodec.decodeLong(value);
+        return ByteBuffer.wrap(value).getInt();
     }
 
     @Override
     public long getLong() {
-        if (isNull()) return 0x0;
-        return read().getLong();
+        byte[] value = getStoredValue();
+        if (value == null) return 0x0;
+        if (getStoredFormat() != null) return PropertyCodec.decodeLong(value);
+        return ByteBuffer.wrap(value).getLong();
     }
 
     @Override
     public float getFloat() {
-        if (isNull()) return 0x0;
-        return read().getFloat();
+        byte[] value = getStoredValue();
+        if (value == null) return 0x0;
+        if (getStoredFormat() != null) return (float) PropertyCodec.decodeDouble(value);
+        return ByteBuffer.wrap(value).getFloat();
     }
 
     @Override
     public double getDouble() {
-        if (isNull()) return 0x0;
-        return read().getDouble();
+        byte[] value = getStoredValue();
+        if (value == null) return 0x0;
+        if (getStoredFormat() != null) return PropertyCodec.decodeDouble(value);
+        return ByteBuffer.wrap(value).getDouble();
     }
 
-
     @Override
     public Date getDate() {
+        byte[] value = getStoredValue();
+        if (value != null && getStoredFormat() != null) return new Date(PropertyCodec.decodeLong(value) * 1000L);
+
         Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
-        calendar.setTimeInMillis(getInteger() * 1000);
+        calendar.setTimeInMillis(getInteger() * 1000L);
         calendar.setTimeZone(TimeZone.getDefault());
         return calendar.getTime();
     }
 
+    @Override
+    public char getChar() {
+        byte[] value = getStoredValue();
+        if (value == null) return 0x0;
+        if (getStoredFormat() != null) return (char) PropertyCodec.decodeLong(value);
+        return ByteBuffer.wrap(value).getChar();
+    }
+
+    private void store(byte[] encoded) {
+        store(encoded, PropertyCodec.VERSION);
+    }
+
     @Override
     public void set(String s) {
-        try {
-            set(s.getBytes(ENCODING));
-        } catch (UnsupportedEncodingException e) {
-        }
+        store(PropertyCodec.encodeString(s));
     }
 
     @Override
     public void set(boolean b) {
-        write(new byte[] { b ? (byte)0x1 : (byte)0x0 }, 0, 1);
+        store(PropertyCodec.encodeBoolean(b));
     }
 
     @Override
     public void set(byte b) {
-        write(new byte[] { b }, 0, 1);
+        store(PropertyCodec.encodeByte(b));
     }
 
     @Override
     public void set(short s) {
-        ByteBuffer byteBuffer = ByteBuffer.allocate(2);
-        byteBuffer.putShort(s);
-        set(byteBuffer.array());
+        store(PropertyCodec.encodeVarint(PropertyCodec.TAG_SHORT, s));
     }
 
     @Override
     public void set(int i) {
-        ByteBuffer byteBuffer = ByteBuffer.allocate(4);
-        byteBuffer.putInt(i);
-        set(byteBuffer.array());
+        store(PropertyCodec.encodeVarint(PropertyCodec.TAG_INTEGER, i));
     }
 
     @Override
     public void set(long l) {
-        ByteBuffer byteBuffer = ByteBuffer.allocate(8);
-        byteBuffer.putLong(l);
-        set(byteBuffer.array());
+        store(PropertyCodec.encodeVarint(PropertyCodec.TAG_LONG, l));
     }
 
     @Override
     public void set(float f) {
-        ByteBuffer byteBuffer = ByteBuffer.allocate(4);
-        byteBuffer.putFloat(f);
-        set(byteBuffer.array());
+        store(PropertyCodec.encodeFloat(f));
     }
 
     @Override
     public void set(double d) {
-        ByteBuffer byteBuffer = ByteBuffer.allocate(8);
-        byteBuffer.putDouble(d);
-        set(byteBuffer.array());
+        store(PropertyCodec.encodeDouble(d));
     }
 
     @Override
     public void set(Date date) {
-        Calendar calendar = Calendar.getInstance(TimeZone.getDefault());
-        calendar.setTime(date);
-        calendar.setTimeZone(TimeZone.getTimeZone("GMT"));
-        set((int) (calendar.getTimeInMillis() / 1000L));
-    }
-
-    @Override
-    public char getChar() {
-        if (isNull()) return 0x0;
-        return read().getChar();
+        store(PropertyCodec.encodeVarint(PropertyCodec.TAG_DATE, date.getTime() / 1000L));
     }
 
     @Override
     public void set(char c) {
-        ByteBuffer byteBuffer = ByteBuffer.allocate(2);
-        byteBuffer.putChar(c);
-        set(byteBuffer.array());
+        store(PropertyCodec.encodeVarint(PropertyCodec.TAG_CHAR, c));
     }
 
     @Override
     public void set(byte[] data) {
-        write(data);
+        store(PropertyCodec.encodeBytes(data));
     }
 }
@@ -0,0 +1,95 @@
+package io.manebot.database.model;
+
+import io.manebot.cache.EntityChange;
+
+import javax.persistence.*;
+
+@javax.persistence.Entity
+@Table(
+        indexes = {
+                @Index(columnList = "created")
+        }
+)
+@NamedQueries({
+        @NamedQuery(
+                name = CacheInvalidation.QUERY_SINCE,
+                query = "SELECT x FROM io.manebot.database.model.CacheInvalidation x " +
+                        "where x.cacheInvalidationId > :after " +
+                        "order by x.cacheInvalidationId asc"
+        ),
+        @NamedQuery(
+                name = CacheInvalidation.QUERY_IDS,
+                query = "SELECT x FROM io.manebot.database.model.CacheInvalidation x " +
+                        "where x.cacheInvalidationId in :ids " +
+                        "order by x.cacheInvalidationId asc"
+        ),
+        @NamedQuery(
+                name = CacheInvalidation.QUERY_LATEST,
+                query = "SELECT max(x.cacheInvalidationId) FROM io.manebot.database.model.CacheInvalidation x"
+        ),
+        @NamedQuery(
+                name = CacheInvalidation.QUERY_PRUNE,
+                query = "DELETE FROM io.manebot.database.model.CacheInvalidation x where x.created < :before"
+        )
+})
+public class CacheInvalidation extends TimedRow {
+    static final String QUERY_SINCE = "io.manebot.database.model.CacheInvalidation.since";
+    static final String QUERY_IDS = "io.manebot.database.model.CacheInvalidation.ids";
+    static final String QUERY_LATEST = "io.manebot.database.model.CacheInvalidation.latest";
+    static final String QUERY_PRUNE = "io.manebot.database.model.CacheInvalidation.prune";
+
+    /**
+     * Longest change kind which can be stored; see <b>EntityChange.getKind</b>.
+     */
+    public static final int MAXIMUM_KIND_LENGTH = 64;
+
+    @Transient
+    private final io.manebot.database.Database database;
+    public CacheInvalidation(io.manebot.database.Database database) {
+        this.database = database;
+    }
+
+    public CacheInvalidation(io.manebot.database.Database database, EntityChange change) {
+        this(database);
+
+        if (change.getKind().length() > MAXIMUM_KIND_LENGTH)
+            throw new IllegalArgumentException(
+                    "Change kind is longer than " + MAXIMUM_KIND_LENGTH + " characters: " + change.getKind()
+            );
+
+        this.kind = change.getKind();
+        this.entityId = change.getId();
+        this.version = change.getVersion();
+        this.origin = change.getOrigin();
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column()
+    private long cacheInvalidationId;
+
+    @Column(length = MAXIMUM_KIND_LENGTH, nullable = false)
+    private String kind;
+
+    @Column(length = 255, nullable = false)
+    private String entityId;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(length = 36, nullable = false)
+    private String origin;
+
+    public long getCacheInvalidationId() {
+        return cacheInvalidationId;
+    }
+
+    public EntityChange toChange() {
+        return new EntityChange(kind, entityId, version, origin);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cacheInvalidationId);
+    }
+}
@@ -0,0 +1,207 @@
+package io.manebot.database.model;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.manebot.cache.EntityChange;
+import io.manebot.cache.InvalidationBus;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An invalidation bus which exchanges changes through the <b>CacheInvalidation</b> table of the system database, so
+ * that bot instances sharing a database can keep their caches consistent without any external service.
+ *
+ * Published changes are inserted as rows; every node polls the table at a fixed interval and delivers rows it has not
+ * seen.  A node starts from the newest row when the bus is started, so history is not replayed.  The table is always
+ * read from the primary database, never from a read-only replica which may lag behind it.
+ *
+ * Because row IDs are assigned before commit, a row may become visible after rows with higher IDs.  Each ID skipped
+ * over by a poll is remembered as a gap, and looked up again by every following poll until its row appears, or until
+ * <b>GAP_TIMEOUT_MS</b> has passed and its transaction can be assumed to have rolled back.  Rows older than the
+ * retention period are deleted.
+ *
+ * The <b>CacheInvalidation</b> entity must be registered with the database this bus is constructed with.  Caches on
+ * other nodes are stale for up to one polling interval after a change.
+ */
+public final class DatabasePollingInvalidationBus implements InvalidationBus {
+    private static final int MAXIMUM_BATCH = 1024;
+    private static final int MAXIMUM_GAPS = 1024;
+
+    /**
+     * Time after which an ID skipped over is assumed to belong to a transaction which rolled back.
+     */
+    public static final long GAP_TIMEOUT_MS = 60000L;
+
+    private final io.manebot.database.Database database;
+    private final long intervalMs;
+    private final int retentionSeconds;
+    private final Collection<Consumer<EntityChange>> subscribers = new CopyOnWriteArrayList<>();
+
+    // Skipped IDs, oldest first, mapped to the time they were skipped; guarded by pollLock
+    private final Map<Long, Long> gaps = new LinkedHashMap<Long, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > MAXIMUM_GAPS;
+        }
+    };
+
+    private final Object pollLock = new Object();
+    private ScheduledExecutorService executor;
+    private long startId = 0L;
+    private long lastId = 0L;
+    private long lastPruned = 0L;
+
+    public DatabasePollingInvalidationBus(io.manebot.database.Database database,
+                                          long intervalMs,
+                                          int retentionSeconds) {
+        if (intervalMs <= 0) throw new IllegalArgumentException("intervalMs must be positive");
+        if (retentionSeconds <= 0) throw new IllegalArgumentException("retentionSeconds must be positive");
+
+        this.database = database;
+        this.intervalMs = intervalMs;
+        this.retentionSeconds = retentionSeconds;
+    }
+
+    /**
+     * Starts polling for changes published by other nodes.
+     */
+    public void start() {
+        synchronized (pollLock) {
+            if (executor != null) return;
+
+            Long latest = database.execute(s -> {
+                return s.createNamedQuery(CacheInvalidation.QUERY_LATEST, Long.class).getSingleResult();
+            });
+
+            startId = lastId = latest == null ? 0L : latest;
+
+            executor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("invalidation-" + database.getName() + "-%d")
+                            .setDaemon(true)
+                            .build()
+            );
+
+            executor.scheduleWithFixedDelay(this::pollSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void publish(EntityChange change) {
+        try {
+            database.executeTransaction(s -> {
+                s.persist(new CacheInvalidation(database, change));
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<EntityChange> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public boolean unsubscribe(Consumer<EntityChange> subscriber) {
+        return subscribers.remove(subscriber);
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (Throwable e) {
+            Logger.getGlobal().log(Level.WARNING, "Problem polling cache invalidations", e);
+        }
+    }
+
+    /**
+     * Delivers any changes published since the last poll.
+     * @return number of changes delivered.
+     */
+    public int poll() {
+        synchronized (pollLock) {
+            long now = System.currentTimeMillis();
+            gaps.values().removeIf(skipped -> now - skipped >= GAP_TIMEOUT_MS);
+
+            List<Long> missing = new ArrayList<>(gaps.keySet());
+
+            List<CacheInvalidation> rows = database.execute(s -> {
+                List<CacheInvalidation> found = new ArrayList<>();
+
+                if (!missing.isEmpty())
+                    found.addAll(s.createNamedQuery(CacheInvalidation.QUERY_IDS, CacheInvalidation.class)
+                            .setParameter("ids", missing)
+                            .getResultList());
+
+                found.addAll(s.createNamedQuery(CacheInvalidation.QUERY_SINCE, CacheInvalidation.class)
+                        .setParameter("after", lastId)
+                        .setMaxResults(MAXIMUM_BATCH)
+                        .getResultList());
+
+                return found;
+            });
+
+            int delivered = 0;
+
+            for (CacheInvalidation row : rows) {
+                long id = row.getCacheInvalidationId();
+
+                if (id > lastId) {
+                    for (long skipped = Math.max(lastId + 1L, id - MAXIMUM_GAPS); skipped < id; skipped ++)
+                        gaps.put(skipped, now);
+
+                    lastId = id;
+                } else if (gaps.remove(id) == null) {
+                    continue;
+                }
+
+                if (id <= startId) continue;
+
+                EntityChange change = row.toChange();
+                for (Consumer<EntityChange> subscriber : subscribers)
+                    subscriber.accept(change);
+
+                delivered ++;
+            }
+
+            if (now - lastPruned >= retentionSeconds * 1000L) {
+                lastPruned = now;
+                prune();
+            }
+
+            return delivered;
+        }
+    }
+
+    private void prune() {
+        int before = (int) (System.currentTimeMillis() / 1000L) - retentionSeconds;
+
+        try {
+            database.executeTransaction(s -> {
+                return s.createNamedQuery(CacheInvalidation.QUERY_PRUNE)
+                        .setParameter("before", before)
+                        .executeUpdate();
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (pollLock) {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+}
@@ -6,6 +6,11 @@ import io.manebot.virtual.Virtual;
 import com.google.common.collect.MapMaker;
 
 import javax.persistence.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -18,7 +23,39 @@ import java.util.stream.Collectors;
                 @Index(columnList = "updated")
         }
 )
+@NamedQueries({
+        @NamedQuery(
+                name = Entity.QUERY_PROPERTIES,
+                query = "SELECT p FROM io.manebot.database.model.Property p " +
+                        "inner join p.entity e " +
+                        "where e.entityId = :entityId"
+        ),
+        @NamedQuery(
+                name = Entity.QUERY_PROPERTY,
+                query = "SELECT p FROM io.manebot.database.model.Property p " +
+                        "inner join p.entity e " +
+                        "where e.entityId = :entityId and p.name = :name"
+        ),
+        @NamedQuery(
+                name = Entity.QUERY_PERMISSION,
+                query = "SELECT p FROM io.manebot.database.model.Permission p " +
+                        "inner join p.entity e " +
+                        "where e.entityId = :entityId and p.node IN :nodes " +
+                        "order by length(p.node) desc" /* most specific */
+        ),
+        @NamedQuery(
+                name = Entity.QUERY_PERMISSIONS,
+                query = "SELECT p FROM io.manebot.database.model.Permission p " +
+                        "inner join p.entity e " +
+                        "where e.entityId = :entityId"
+        )
+})
 public class Entity extends TimedRow implements io.manebot.entity.Entity {
+    static final String QUERY_PROPERTIES = "io.manebot.database.model.Entity.properties";
+    static final String QUERY_PROPERTY = "io.manebot.database.model.Entity.property";
+    static final String QUERY_PERMISSION = "io.manebot.database.model.Entity.permission";
+    static final String QUERY_PERMISSIONS = "io.manebot.database.model.Entity.permissions";
+
     @Transient
     private final Map<String, io.manebot.property.Property> propertyMap = new MapMaker().weakValues().makeMap();
 
@@ -54,13 +91,8 @@ public class Entity extends TimedRow implements io.manebot.entity.Entity {
 
     @Override
     public Collection<io.manebot.property.Property> getProperties() {
-        return Collections.unmodifiableCollection(database.execute(s -> {
-            return s.createQuery(
-                    "SELECT p FROM " + io.manebot.database.model.Property.class.getName() + " p " +
-                            "inner join p.entity e " +
-                            "where e.entityId = :entityId",
-                    io.manebot.database.model.Property.class
-            ).setParameter("entityId", entityId).getResultList()
+        return Collections.unmodifiableCollection(database.executeReadOnly(s -> {
+            return s.createNamedQuery(QUERY_PROPERTIES, io.manebot.database.model.Property.class).setParameter("entityId", entityId).getResultList()
                     .stream()
                     .map(databaseType -> getProperty(databaseType.getName()))
                     .collect(Collectors.toCollection(ArrayList::new));
@@ -89,14 +121,8 @@ public class Entity extends TimedRow implements io.manebot.entity.Entity {
         }
         testNodes.add(node);
 
-        return database.execute(s -> {
-            return s.createQuery(
-                    "SELECT p FROM " + Permission.class.getName() + " p " +
-                            "inner join p.entity e " +
-                            "where e.entityId = :entityId and p.node IN :nodes " +
-                            "order by length(p.node) desc", /* most specific */
-                    Permission.class
-            )
+        return database.executeReadOnly(s -> {
+            return s.createNamedQuery(QUERY_PERMISSION, Permission.class)
                     .setMaxResults(1)
                     .setParameter("entityId", entityId)
                     .setParameter("nodes", testNodes)
@@ -111,31 +137,34 @@ public class Entity extends TimedRow implements io.manebot.entity.Entity {
     public GrantedPermission setPermission(String node, Grant grant) throws SecurityException {
         io.manebot.security.Permission.checkPermission(node);
 
-        Permission permission = getPermission(node);
+        // Look up the existing permission on the same session as the write, never on a read-only replica
+        return database.inUnitOfWork(() -> {
+            Permission permission = getPermission(node);
 
-        if (permission == null) {
-            try {
-                permission = database.executeTransaction(tran -> {
-                    Permission newPermission = new Permission(
-                            database,
-                            this,
-                            (User) Virtual.getInstance().currentProcess().getUser(),
-                            node,
-                            grant == Grant.ALLOW
-                    );
-
-                    tran.persist(newPermission);
-
-                    return newPermission;
-                });
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+            if (permission == null) {
+                try {
+                    permission = database.executeTransaction(tran -> {
+                        Permission newPermission = new Permission(
+                                database,
+                                this,
+                                (User) Virtual.getInstance().currentProcess().getUser(),
+                                node,
+                                grant == Grant.ALLOW
+                        );
+
+                        tran.persist(newPermission);
+
+                        return newPermission;
+                    });
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            } else if (permission.getGrant() != grant) {
+                permission.setGrant(grant);
             }
-        } else if (permission.getGrant() != grant) {
-            permission.setGrant(grant);
-        }
 
-        return permission;
+            return permission;
+        });
     }
 
     @Override
@@ -147,13 +176,8 @@ public class Entity extends TimedRow implements io.manebot.entity.Entity {
 
     @Override
     public Collection<GrantedPermission> getPermissions() {
-        return database.execute(s -> {
-            return s.createQuery(
-                    "SELECT p FROM " + Permission.class.getName() + " p " +
-                            "inner join p.entity e " +
-                            "where e.entityId = :entityId",
-                    Permission.class
-            )
+        return database.executeReadOnly(s -> {
+            return s.createNamedQuery(QUERY_PERMISSIONS, Permission.class)
                     .setParameter("entityId", entityId)
                     .getResultList()
                     .stream()
@@ -168,7 +192,6 @@ public class Entity extends TimedRow implements io.manebot.entity.Entity {
     }
 
     private class VirtualProperty extends BinaryProperty implements io.manebot.property.Property {
-        private static final String ENCODING = "UTF-16";
         private final String name;
         private final Object accessLock = new Object();
 
@@ -181,13 +204,8 @@ public class Entity extends TimedRow implements io.manebot.entity.Entity {
 
         private io.manebot.database.model.Property getProperty() {
             if (property == null)
-                property = database.execute(s -> {
-                    return s.createQuery(
-                            "SELECT p FROM " + io.manebot.database.model.Property.class.getName() + " p " +
-                                    "inner join p.entity e " +
-                                    "where e.entityId = :entityId and p.name = :name",
-                            io.manebot.database.model.Property.class
-                    )
+                property = database.executeReadOnly(s -> {
+                    return s.createNamedQuery(QUERY_PROPERTY, io.manebot.database.model.Property.class)
                             .setMaxResults(1)
                             .setParameter("entityId", entityId)
                             .setParameter("name", name)
@@ -200,13 +218,109 @@ public class Entity extends TimedRow implements io.manebot.entity.Entity {
             return property;
         }
 
-        private byte[] getValue() {
+        private io.manebot.database.model.Property ensureProperty() {
             synchronized (accessLock) {
                 if (property == null) {
-                    return null;
-                } else
-                    return property.getValue();
+                    try {
+                        this.property = database.executeTransaction(s -> {
+                            Entity entity = s.find(Entity.class, getEntityId());
+
+                            io.manebot.database.model.Property newProperty =
+                                    new io.manebot.database.model.Property(
+                                            database,
+                                            entity,
+                                            name
+                                    );
+
+                            s.persist(newProperty);
+
+                            return newProperty;
+                        });
+                    } catch (SQLException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+
+                return property;
+            }
+        }
+
+        private byte[] getValue() {
+            io.manebot.database.model.Property property;
+
+            synchronized (accessLock) {
+                property = this.property;
+            }
+
+            if (property == null) return null;
+            if (!property.isChunked()) return property.getValue();
+
+            // Chunked values are materialized on demand; streaming readers should use openInputStream() instead
+            try (InputStream inputStream = openChunkStream(property)) {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                byte[] buffer = new byte[PropertyChunk.CHUNK_SIZE];
+                int read;
+                while ((read = inputStream.read(buffer)) > 0) outputStream.write(buffer, 0, read);
+                return outputStream.toByteArray();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private InputStream openChunkStream(io.manebot.database.model.Property property) {
+            return new PropertyChunkInputStream(database, property.getPropertyId(), property.getChunkGeneration());
+        }
+
+        @Override
+        protected byte[] getStoredValue() {
+            return getValue();
+        }
+
+        @Override
+        protected Integer getStoredFormat() {
+            synchronized (accessLock) {
+                if (property == null) return null;
+                return property.isChunked() ? PropertyCodec.VERSION : property.getFormat();
+            }
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            io.manebot.database.model.Property property;
+
+            synchronized (accessLock) {
+                property = this.property;
+            }
+
+            if (property == null || !property.isChunked()) return super.openInputStream();
+
+            InputStream inputStream = openChunkStream(property);
+
+            try {
+                // Skip the header of the encoded value
+                if (inputStream.read() < 0) return new ByteArrayInputStream(new byte[0]);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            return inputStream;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            OutputStream outputStream = new PropertyOutputStream(
+                    database,
+                    this::ensureProperty,
+                    encoded -> store(encoded, PropertyCodec.VERSION)
+            );
+
+            try {
+                outputStream.write(PropertyCodec.encodeBytes(new byte[0]));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
             }
+
+            return outputStream;
         }
 
         @Override
@@ -221,6 +335,10 @@ public class Entity extends TimedRow implements io.manebot.entity.Entity {
 
                 try {
                     this.property = database.executeTransaction(s -> {
+                        s.createNamedQuery(PropertyChunk.QUERY_DELETE_ALL)
+                                .setParameter("propertyId", property.getPropertyId())
+                                .executeUpdate();
+
                         io.manebot.database.model.Property attachedProperty =
                                 s.find(io.manebot.database.model.Property.class,
                                         property.getPropertyId());
@@ -238,65 +356,34 @@ public class Entity extends TimedRow implements io.manebot.entity.Entity {
 
         @Override
         public boolean isNull() {
-            return getValue() == null;
+            synchronized (accessLock) {
+                return property == null || (property.getValue() == null && !property.isChunked());
+            }
         }
 
         @Override
-        public int size() {
-            byte[] value = getValue();
-            if (value == null) return -1;
-            return value.length;
-        }
+        protected void store(byte[] b, Integer format) {
+            if (b != null && b.length > io.manebot.database.model.Property.INLINE_LIMIT && format != null) {
+                // Too large to store inline; write the encoded value as chunks
+                try (OutputStream outputStream = new PropertyOutputStream(
+                        database,
+                        this::ensureProperty,
+                        encoded -> store(encoded, format))) {
+                    outputStream.write(b);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
 
-        @Override
-        public int write(byte[] bytes, int offs, int len) {
-            byte[] b;
-
-            if (offs == 0 && len == bytes.length)
-                b = bytes;
-            else {
-                b = new byte[len];
-                System.arraycopy(bytes, 0, b, offs, len);
+                return;
             }
 
             synchronized (accessLock) {
-                if (property == null) {
-                    try {
-                        this.property = property = database.executeTransaction(s -> {
-                            Entity entity = s.find(Entity.class, getEntityId());
-
-                            io.manebot.database.model.Property newProperty =
-                                    new io.manebot.database.model.Property(
-                                            database,
-                                            entity,
-                                            name
-                                    );
-
-                            s.persist(newProperty);
-
-                            return newProperty;
-                        });
-                    } catch (SQLException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-
                 try {
-                    property.setValue(b);
+                    ensureProperty().setValue(b, format);
                 } catch (SQLException e) {
                     throw new RuntimeException(e);
                 }
             }
-
-            return len;
-        }
-
-        @Override
-        public int read(byte[] bytes, int offs, int len) {
-            byte[] b = getValue();
-            if (b == null) return 0;
-            System.arraycopy(b, 0, bytes, offs, len);
-            return len;
         }
     }
 }
@@ -22,7 +22,17 @@ import java.util.Collections;
         },
         uniqueConstraints = {@UniqueConstraint(columnNames ={"name"})}
 )
+@NamedQueries({
+        @NamedQuery(
+                name = Group.QUERY_MEMBERSHIP,
+                query = "SELECT x FROM io.manebot.database.model.UserGroup x " +
+                        "inner join x.group g " +
+                        "where g.groupId = :groupId"
+        )
+})
 public class Group extends TimedRow implements UserGroup {
+    static final String QUERY_MEMBERSHIP = "io.manebot.database.model.Group.membership";
+
     @Transient
     private final io.manebot.database.Database database;
     public Group(io.manebot.database.Database database) {
@@ -71,34 +81,18 @@ public class Group extends TimedRow implements UserGroup {
 
     @Override
     public Collection<UserGroupMembership> getMembership() {
-        return Collections.unmodifiableCollection(database.execute(s -> {
-            return s.createQuery(
-                    "SELECT x FROM " + io.manebot.database.model.UserGroup.class.getName() + " x " +
-                            "inner join x.group g "+
-                            "where g.groupId = :groupId",
-                    io.manebot.database.model.UserGroup.class
-            ).setParameter("groupId", getGroupId()).getResultList();
-        }));
+        return Collections.unmodifiableCollection(MembershipIndex.of(database).getGroupMembership(getGroupId()));
     }
 
     @Override
     public UserGroupMembership getMembership(io.manebot.user.User user) {
-        return database.execute(s -> {
-            return s.createQuery(
-                    "SELECT x FROM " + io.manebot.database.model.UserGroup.class.getName() + " x " +
-                            "inner join x.user u " +
-                            "inner join x.group g " +
-                            "where u.userId = :userId and g.groupId = :groupId",
-                    io.manebot.database.model.UserGroup.class
-            )
-                    .setMaxResults(1)
-                    .setParameter("userId", ((User)user).getUserId())
-                    .setParameter("groupId", this.getGroupId())
-                    .getResultList()
-                    .stream()
-                    .findFirst()
-                    .orElse(null);
-        });
+        return MembershipIndex.of(database).getMembership(((User) user).getUserId(), getGroupId());
+    }
+
+    // Override for efficiency
+    @Override
+    public boolean isMember(io.manebot.user.User user) {
+        return MembershipIndex.of(database).isMember(((User) user).getUserId(), getGroupId());
     }
 
     @Override
@@ -124,6 +118,8 @@ public class Group extends TimedRow implements UserGroup {
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+
+        MembershipIndex.of(database).invalidate(((User) user).getUserId(), getGroupId());
     }
 
     public void setName(String name) {
@@ -0,0 +1,218 @@
+package io.manebot.database.model;
+
+import com.google.common.collect.MapMaker;
+import io.manebot.cache.Cache;
+import io.manebot.cache.CacheManager;
+import io.manebot.cache.EntityChange;
+import io.manebot.database.Database;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * In-memory index of group memberships, in both directions: user to groups, and group to users.
+ *
+ * Each side is loaded with one query on first use and held as an immutable snapshot with a sorted array of the member
+ * IDs, so membership tests such as <b>Group.isMember</b> are a binary search.  Snapshots are held in bounded caches in
+ * the bot's <b>CacheManager</b>, evicting the users and groups used least often once full.  <b>Group.addUser</b> and
+ * <b>UserGroup.remove</b> invalidate the affected entries, on this node and through the cache manager's invalidation bus
+ * on others, and advance the index's version, which dependent caches (i.e. permission decisions derived from group
+ * membership) can compare against to detect staleness cheaply.
+ * Memberships returned are detached from any session.
+ */
+public final class MembershipIndex {
+    public static final int DEFAULT_MAXIMUM_USERS = 65536;
+    public static final int DEFAULT_MAXIMUM_GROUPS = 4096;
+
+    private static final Map<Database, MembershipIndex> indices = new MapMaker().weakKeys().makeMap();
+
+    private final Database database;
+    private final CacheManager cacheManager;
+    private final String changeKind;
+    private final Cache<Integer, Snapshot> byUser;
+    private final Cache<Integer, Snapshot> byGroup;
+
+    private volatile long version = 0L;
+
+    private MembershipIndex(Database database) {
+        this.database = database;
+        this.cacheManager = database.getDatabaseManager().getBot().getCacheManager();
+        this.changeKind = "manebot:groupMembership:" + database.getName();
+        this.byUser = cacheManager.getCache(
+                "manebot:groupMembership:byUser:" + database.getName(),
+                builder -> builder.setMaximumSize(DEFAULT_MAXIMUM_USERS)
+        );
+        this.byGroup = cacheManager.getCache(
+                "manebot:groupMembership:byGroup:" + database.getName(),
+                builder -> builder.setMaximumSize(DEFAULT_MAXIMUM_GROUPS)
+        );
+
+        cacheManager.subscribe(changeKind, this::onChange);
+    }
+
+    private void onChange(EntityChange change) {
+        // ID is "<user id>:<group id>"
+        String id = change.getId();
+        int separator = id.indexOf(':');
+        if (separator < 0) return;
+
+        evict(Integer.parseInt(id.substring(0, separator)), Integer.parseInt(id.substring(separator + 1)));
+    }
+
+    /**
+     * Gets the membership index for the given database, creating it if necessary.
+     * @param database database holding the membership table.
+     * @return MembershipIndex instance.
+     */
+    public static MembershipIndex of(Database database) {
+        return indices.computeIfAbsent(database, MembershipIndex::new);
+    }
+
+    /**
+     * Gets the current version of this index, which changes whenever any membership is added or removed.
+     * @return version stamp.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the memberships held by a user.
+     * @param userId user ID.
+     * @return immutable list of the user's memberships.
+     */
+    public List<UserGroup> getUserMembership(int userId) {
+        return getUserSnapshot(userId).memberships;
+    }
+
+    /**
+     * Gets the memberships of a group.
+     * @param groupId group ID.
+     * @return immutable list of the group's memberships.
+     */
+    public List<UserGroup> getGroupMembership(int groupId) {
+        return getGroupSnapshot(groupId).memberships;
+    }
+
+    /**
+     * Gets the IDs of the groups a user is a member of.
+     * @param userId user ID.
+     * @return sorted group IDs.  The array must not be modified.
+     */
+    public int[] getGroupIds(int userId) {
+        return getUserSnapshot(userId).ids;
+    }
+
+    /**
+     * Gets the IDs of the users who are members of a group.
+     * @param groupId group ID.
+     * @return sorted user IDs.  The array must not be modified.
+     */
+    public int[] getUserIds(int groupId) {
+        return getGroupSnapshot(groupId).ids;
+    }
+
+    /**
+     * Gets a user's membership in a group.
+     * @param userId user ID.
+     * @param groupId group ID.
+     * @return UserGroup instance if the user is a member, null otherwise.
+     */
+    public UserGroup getMembership(int userId, int groupId) {
+        Snapshot snapshot = getUserSnapshot(userId);
+        if (Arrays.binarySearch(snapshot.ids, groupId) < 0) return null;
+
+        for (UserGroup membership : snapshot.memberships)
+            if (membership.getGroup().getGroupId() == groupId)
+                return membership;
+
+        return null;
+    }
+
+    /**
+     * Finds if a user is a member of a group.
+     * @param userId user ID.
+     * @param groupId group ID.
+     * @return true if the user is a member, false otherwise.
+     */
+    public boolean isMember(int userId, int groupId) {
+        return Arrays.binarySearch(getUserSnapshot(userId).ids, groupId) >= 0;
+    }
+
+    /**
+     * Invalidates the entries affected by a membership being added or removed.
+     * @param userId user ID of the membership.
+     * @param groupId group ID of the membership.
+     */
+    public void invalidate(int userId, int groupId) {
+        evict(userId, groupId);
+        cacheManager.publish(changeKind, userId + ":" + groupId);
+    }
+
+    private void evict(int userId, int groupId) {
+        synchronized (this) {
+            version++;
+            byUser.invalidate(userId);
+            byGroup.invalidate(groupId);
+        }
+    }
+
+    /**
+     * Discards all entries in this index, so that they are loaded again on next use.
+     */
+    public void clear() {
+        synchronized (this) {
+            version++;
+            byUser.invalidateAll();
+            byGroup.invalidateAll();
+        }
+    }
+
+    private Snapshot getUserSnapshot(int userId) {
+        Snapshot snapshot = byUser.getIfPresent(userId);
+        if (snapshot != null) return snapshot;
+
+        long version = this.version;
+
+        snapshot = new Snapshot(database.executeReadOnly(s -> {
+            return s.createNamedQuery(User.QUERY_MEMBERSHIP, UserGroup.class)
+                    .setParameter("userId", userId)
+                    .getResultList();
+        }), membership -> membership.getGroup().getGroupId());
+
+        return store(byUser, userId, snapshot, version);
+    }
+
+    private Snapshot getGroupSnapshot(int groupId) {
+        Snapshot snapshot = byGroup.getIfPresent(groupId);
+        if (snapshot != null) return snapshot;
+
+        long version = this.version;
+
+        snapshot = new Snapshot(database.executeReadOnly(s -> {
+            return s.createNamedQuery(Group.QUERY_MEMBERSHIP, UserGroup.class)
+                    .setParameter("groupId", groupId)
+                    .getResultList();
+        }), membership -> membership.getUser().getUserId());
+
+        return store(byGroup, groupId, snapshot, version);
+    }
+
+    private Snapshot store(Cache<Integer, Snapshot> cache, int key, Snapshot snapshot, long loadedVersion) {
+        synchronized (this) {
+            // A membership changed while loading; the snapshot may predate it, so serve it once without storing
+            if (version == loadedVersion) cache.put(key, snapshot);
+            return snapshot;
+        }
+    }
+
+    private static final class Snapshot {
+        private final List<UserGroup> memberships;
+        private final int[] ids;
+
+        private Snapshot(List<UserGroup> memberships, ToIntFunction<UserGroup> id) {
+            this.memberships = Collections.unmodifiableList(new ArrayList<>(memberships));
+            this.ids = memberships.stream().mapToInt(id).sorted().distinct().toArray();
+        }
+    }
+}
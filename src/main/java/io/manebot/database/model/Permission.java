@@ -74,10 +74,12 @@ public class Permission extends TimedRow implements GrantedPermission {
 
     public void setGrant(Grant grant) {
         try {
-            database.executeTransaction(s -> {
-                Permission permission = s.find(Permission.class, getPermissionId());
-                permission.allow = grant == Grant.ALLOW;
-            });
+            database.createUpdate(Permission.class, "permissionId", getPermissionId())
+                    .set("allow", grant == Grant.ALLOW)
+                    .touch()
+                    .execute();
+
+            allow = grant == Grant.ALLOW;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -72,11 +72,12 @@ public class Platform extends TimedRow implements io.manebot.platform.Platform {
     @Override
     public void setRegistrationAllowed(boolean allowed) {
         try {
-            this.registrationAllowed = database.executeTransaction(s -> {
-                Platform platform = s.find(Platform.class, getPlatformId());
-                platform.setUpdated(System.currentTimeMillis());
-                return platform.registrationAllowed = allowed;
-            });
+            database.createUpdate(Platform.class, "platformId", getPlatformId())
+                    .set("registrationAllowed", allowed)
+                    .touch()
+                    .execute();
+
+            this.registrationAllowed = allowed;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -84,21 +85,7 @@ public class Platform extends TimedRow implements io.manebot.platform.Platform {
 
     @Override
     public UserAssociation getUserAssocation(String id) {
-        return database.execute(s -> {
-            return s.createQuery(
-                    "SELECT x FROM " + io.manebot.database.model.UserAssociation.class.getName() + " x " +
-                            "inner join x.platform p " +
-                            "where p.id = :platformId and x.id = :userId",
-                    io.manebot.database.model.UserAssociation.class
-            )
-                    .setMaxResults(1)
-                    .setParameter("platformId", getId())
-                    .setParameter("userId", id)
-                    .getResultList()
-                    .stream()
-                    .findFirst()
-                    .orElse(null);
-        });
+        return UserAssociationIndex.of(database).find(getId(), id);
     }
 
     @Override
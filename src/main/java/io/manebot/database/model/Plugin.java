@@ -18,7 +18,24 @@ import java.util.Collections;
         },
         uniqueConstraints = {@UniqueConstraint(columnNames ={"packageId","artifactId"})}
 )
+@NamedQueries({
+        @NamedQuery(
+                name = Plugin.QUERY_PROPERTIES,
+                query = "SELECT x FROM io.manebot.database.model.PluginProperty x " +
+                        "inner join x.plugin p " +
+                        "where p.pluginId = :pluginId"
+        ),
+        @NamedQuery(
+                name = Plugin.QUERY_PROPERTY,
+                query = "SELECT x FROM io.manebot.database.model.PluginProperty x " +
+                        "inner join x.plugin p " +
+                        "where p.pluginId = :pluginId and x.name = :name"
+        )
+})
 public class Plugin extends TimedRow {
+    static final String QUERY_PROPERTIES = "io.manebot.database.model.Plugin.properties";
+    static final String QUERY_PROPERTY = "io.manebot.database.model.Plugin.property";
+
     @Transient
     private PluginRegistration registration;
 
@@ -79,10 +96,12 @@ public class Plugin extends TimedRow {
         Permission.checkPermission("system.plugin.enabled.set");
 
         try {
-            this.enabled = database.executeTransaction(s -> {
-                Plugin plugin = s.find(Plugin.class, getPluginId());
-                return plugin.enabled = enabled;
-            });
+            database.createUpdate(Plugin.class, "pluginId", getPluginId())
+                    .set("enabled", enabled)
+                    .touch()
+                    .execute();
+
+            this.enabled = enabled;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -96,10 +115,12 @@ public class Plugin extends TimedRow {
         Permission.checkPermission("system.plugin.required.set");
 
         try {
-            this.required = database.executeTransaction(s -> {
-                Plugin plugin = s.find(Plugin.class, getPluginId());
-                return plugin.required = required;
-            });
+            database.createUpdate(Plugin.class, "pluginId", getPluginId())
+                    .set("required", required)
+                    .touch()
+                    .execute();
+
+            this.required = required;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -113,10 +134,12 @@ public class Plugin extends TimedRow {
         Permission.checkPermission("system.plugin.elevate.set");
 
         try {
-            this.elevated = database.executeTransaction(s -> {
-                Plugin plugin = s.find(Plugin.class, getPluginId());
-                return plugin.elevated = elevated;
-            });
+            database.createUpdate(Plugin.class, "pluginId", getPluginId())
+                    .set("elevated", elevated)
+                    .touch()
+                    .execute();
+
+            this.elevated = elevated;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -139,36 +162,26 @@ public class Plugin extends TimedRow {
         Permission.checkPermission("system.plugin.version.set");
 
         try {
-            this.version = database.executeTransaction(s -> {
-                Plugin plugin = s.find(Plugin.class, getPluginId());
-                return plugin.version = version;
-            });
+            database.createUpdate(Plugin.class, "pluginId", getPluginId())
+                    .set("version", version)
+                    .touch()
+                    .execute();
+
+            this.version = version;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
     public Collection<PluginProperty> getProperties() {
-        return Collections.unmodifiableCollection(database.execute(s -> {
-            return s.createQuery(
-                    "SELECT x FROM " + PluginProperty.class.getName()
-                            + " x " +
-                            "inner join x.plugin p "+
-                            "where p.pluginId = :pluginId",
-                    PluginProperty.class
-            ).setParameter("pluginId", getPluginId()).getResultList();
+        return Collections.unmodifiableCollection(database.executeReadOnly(s -> {
+            return s.createNamedQuery(QUERY_PROPERTIES, PluginProperty.class).setParameter("pluginId", getPluginId()).getResultList();
         }));
     }
 
     public PluginProperty getProperty(String name) {
-        return database.execute(s -> {
-            return s.createQuery(
-                    "SELECT x FROM " + PluginProperty.class.getName()
-                            + " x " +
-                            "inner join x.plugin p "+
-                            "where p.pluginId = :pluginId and x.name = :name",
-                    PluginProperty.class
-            ).setParameter("pluginId", getPluginId()).setParameter("name", name)
+        return database.executeReadOnly(s -> {
+            return s.createNamedQuery(QUERY_PROPERTY, PluginProperty.class).setParameter("pluginId", getPluginId()).setParameter("name", name)
                     .getResultList()
                     .stream()
                     .findFirst()
@@ -179,33 +192,37 @@ public class Plugin extends TimedRow {
     public void setProperty(String name, String value) {
         Permission.checkPermission("system.plugin.property.set");
 
-        PluginProperty property = getProperty(name);
-        if (property != null) {
-            if (value != null)
-                property.setValue(value);
-            else {
-                property.remove();
-            }
+        database.inUnitOfWork(() -> {
+            PluginProperty property = getProperty(name);
+            if (property != null) {
+                if (value != null)
+                    property.setValue(value);
+                else {
+                    property.remove();
+                }
 
-            return;
-        }
+                return null;
+            }
 
-        if (value != null) {
-            try {
-                database.executeTransaction(s -> {
-                    PluginProperty newProperty =
-                            new PluginProperty(
-                                    database,
-                                    s.find(Plugin.class, getPluginId()),
-                                    name,
-                                    value
-                            );
-
-                    s.persist(newProperty);
-                });
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+            if (value != null) {
+                try {
+                    database.executeTransaction(s -> {
+                        PluginProperty newProperty =
+                                new PluginProperty(
+                                        database,
+                                        s.find(Plugin.class, getPluginId()),
+                                        name,
+                                        value
+                                );
+
+                        s.persist(newProperty);
+                    });
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
             }
-        }
+
+            return null;
+        });
     }
 }
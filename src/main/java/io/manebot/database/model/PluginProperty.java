@@ -59,10 +59,12 @@ public class PluginProperty extends TimedRow implements io.manebot.plugin.Plugin
 
     public void setValue(String value) {
         try {
-            this.value = database.executeTransaction(s -> {
-                PluginProperty property = s.find(PluginProperty.class, getPluginConfigurationId());
-                return property.value = value;
-            });
+            database.createUpdate(PluginProperty.class, "pluginConfigurationId", getPluginConfigurationId())
+                    .set("value", value)
+                    .touch()
+                    .execute();
+
+            this.value = value;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -3,6 +3,7 @@ package io.manebot.database.model;
 import javax.persistence.*;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Objects;
 
 @javax.persistence.Entity
 @Table(
@@ -11,7 +12,34 @@ import java.util.Arrays;
         },
         uniqueConstraints = {@UniqueConstraint(columnNames ={"entityId","name"})}
 )
+@NamedQueries({
+        @NamedQuery(
+                name = Property.QUERY_ALLOCATE_GENERATION,
+                query = "UPDATE io.manebot.database.model.Property x " +
+                        "SET x.lastChunkGeneration = COALESCE(x.lastChunkGeneration, x.chunkGeneration, 0) + 1 " +
+                        "where x.propertyId = :propertyId"
+        ),
+        @NamedQuery(
+                name = Property.QUERY_LAST_GENERATION,
+                query = "SELECT x.lastChunkGeneration FROM io.manebot.database.model.Property x " +
+                        "where x.propertyId = :propertyId"
+        ),
+        @NamedQuery(
+                name = Property.QUERY_GENERATION,
+                query = "SELECT x.chunkGeneration FROM io.manebot.database.model.Property x " +
+                        "where x.propertyId = :propertyId"
+        )
+})
 public class Property extends TimedRow {
+    static final String QUERY_ALLOCATE_GENERATION = "io.manebot.database.model.Property.allocateGeneration";
+    static final String QUERY_LAST_GENERATION = "io.manebot.database.model.Property.lastGeneration";
+    static final String QUERY_GENERATION = "io.manebot.database.model.Property.generation";
+
+    /**
+     * Largest encoded value stored inline in the <i>value</i> column; larger values are stored as chunks.
+     */
+    public static final int INLINE_LIMIT = 2048;
+
     @Transient
     private final io.manebot.database.Database database;
     public Property(io.manebot.database.Database database) {
@@ -42,6 +70,15 @@ public class Property extends TimedRow {
     @Column(nullable = true, length = 2048)
     private byte[] value;
 
+    @Column(nullable = true)
+    private Integer format;
+
+    @Column(nullable = true)
+    private Integer chunkGeneration;
+
+    @Column(nullable = true)
+    private Integer lastChunkGeneration;
+
     public String getName() {
         return name;
     }
@@ -54,17 +91,152 @@ public class Property extends TimedRow {
         return value;
     }
 
+    /**
+     * Gets the encoding format of the value.
+     * @return encoding version, or null if the value was written raw.
+     */
+    public Integer getFormat() {
+        return format;
+    }
+
+    /**
+     * Gets the generation of chunks holding the value, if it is too large to store inline.
+     * @return chunk generation, or null if the value is stored inline.
+     */
+    public Integer getChunkGeneration() {
+        return chunkGeneration;
+    }
+
+    /**
+     * Finds if the value of this property is stored as chunks.
+     * @return true if the value is chunked, false if it is inline or unset.
+     */
+    public boolean isChunked() {
+        return chunkGeneration != null;
+    }
+
     public void setValue(byte[] value) throws SQLException {
-        if (!Arrays.equals(this.value, value)) {
-            this.value = database.executeTransaction(s -> {
-                Property property = s.find(Property.class, getPropertyId());
-                property.value = value;
-                property.setUpdated(System.currentTimeMillis());
-                return value;
+        setValue(value, null);
+    }
+
+    /**
+     * Stores a value inline, replacing any chunks.  The chunks of the replaced value are kept, so that streams already
+     * reading them can finish; older chunks are deleted.
+     *
+     * @param value encoded value, at most <b>INLINE_LIMIT</b> bytes.
+     * @param format encoding format of the value, or null for a raw value.
+     * @throws SQLException if there was a problem updating the property.
+     */
+    public void setValue(byte[] value, Integer format) throws SQLException {
+        if (value != null && value.length > INLINE_LIMIT)
+            throw new IllegalArgumentException("value exceeds inline limit; write it as a stream instead");
+
+        if (!Arrays.equals(this.value, value) || !Objects.equals(this.format, format) || isChunked()) {
+            database.createUpdate(Property.class, "propertyId", getPropertyId())
+                    .set("value", value)
+                    .set("format", format)
+                    .set("chunkGeneration", null)
+                    .touch()
+                    .execute();
+
+            Integer previousGeneration = this.chunkGeneration;
+
+            this.format = format;
+            this.value = value;
+            this.chunkGeneration = null;
+
+            if (previousGeneration != null) deleteChunksBefore(previousGeneration);
+        }
+    }
+
+    /**
+     * Points this property at a completely written generation of chunks, replacing any inline value.  The generation
+     * previously current is kept so that streams already reading it can finish, and older chunks are deleted.
+     *
+     * Generations are allocated in order, so a newer generation may already have been written by the time an older
+     * one is closed.  In that case the older generation is discarded, as if it had been written and then replaced.
+     *
+     * @param generation chunk generation, from <b>allocateChunkGeneration</b>.
+     * @return true if the property now holds the generation, false if it was discarded.
+     * @throws SQLException if there was a problem updating the property.
+     */
+    boolean setChunked(int generation) throws SQLException {
+        while (true) {
+            Integer current = database.execute(s -> {
+                return s.createNamedQuery(QUERY_GENERATION, Integer.class)
+                        .setParameter("propertyId", getPropertyId())
+                        .getSingleResult();
             });
+
+            if (current != null && current >= generation) {
+                this.value = null;
+                this.format = null;
+                this.chunkGeneration = current;
+
+                database.executeTransaction(s -> {
+                    s.createNamedQuery(PropertyChunk.QUERY_DELETE_GENERATION)
+                            .setParameter("propertyId", getPropertyId())
+                            .setParameter("generation", generation)
+                            .executeUpdate();
+                });
+
+                return false;
+            }
+
+            try {
+                database.createUpdate(Property.class, "propertyId", getPropertyId())
+                        .set("value", null)
+                        .set("format", null)
+                        .set("chunkGeneration", generation)
+                        .expect("chunkGeneration", current)
+                        .touch()
+                        .execute();
+            } catch (SQLException e) {
+                // Another generation or an inline value was stored since it was read
+                if (e.getCause() instanceof OptimisticLockException) continue;
+                throw e;
+            }
+
+            this.value = null;
+            this.format = null;
+            this.chunkGeneration = generation;
+
+            // Generations older than this one, other than the one replaced, are no longer current or being written
+            deleteChunksBefore(current != null ? current : generation);
+
+            return true;
         }
     }
 
+    private void deleteChunksBefore(int generation) throws SQLException {
+        database.executeTransaction(s -> {
+            s.createNamedQuery(PropertyChunk.QUERY_DELETE_BEFORE)
+                    .setParameter("propertyId", getPropertyId())
+                    .setParameter("generation", generation)
+                    .executeUpdate();
+        });
+    }
+
+    /**
+     * Allocates a new generation for a chunked write of this property.  Each call returns a generation no other writer
+     * has been given, and generations allocated later are greater.
+     *
+     * @return chunk generation.
+     * @throws SQLException if there was a problem allocating the generation.
+     */
+    int allocateChunkGeneration() throws SQLException {
+        return database.executeTransaction(s -> {
+            // The update locks the row until the transaction ends, so the generation read back is this writer's own
+            s.createNamedQuery(QUERY_ALLOCATE_GENERATION)
+                    .setParameter("propertyId", getPropertyId())
+                    .executeUpdate();
+
+            return s.createNamedQuery(QUERY_LAST_GENERATION, Integer.class)
+                    .setParameter("propertyId", getPropertyId())
+                    .getSingleResult();
+        });
+    }
+
     @Override
     public int hashCode() {
         return Integer.hashCode(propertyId);
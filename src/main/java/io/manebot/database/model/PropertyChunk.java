@@ -0,0 +1,103 @@
+package io.manebot.database.model;
+
+import javax.persistence.*;
+
+@javax.persistence.Entity
+@Table(
+        indexes = {
+                @Index(columnList = "propertyId,generation,sequence", unique = true)
+        },
+        uniqueConstraints = {@UniqueConstraint(columnNames ={"propertyId","generation","sequence"})}
+)
+@NamedQueries({
+        @NamedQuery(
+                name = PropertyChunk.QUERY_CHUNK,
+                query = "SELECT x FROM io.manebot.database.model.PropertyChunk x " +
+                        "inner join x.property p " +
+                        "where p.propertyId = :propertyId and x.generation = :generation and x.sequence = :sequence"
+        ),
+        @NamedQuery(
+                name = PropertyChunk.QUERY_DELETE_GENERATION,
+                query = "DELETE FROM io.manebot.database.model.PropertyChunk x " +
+                        "where x.property.propertyId = :propertyId and x.generation = :generation"
+        ),
+        @NamedQuery(
+                name = PropertyChunk.QUERY_DELETE_BEFORE,
+                query = "DELETE FROM io.manebot.database.model.PropertyChunk x " +
+                        "where x.property.propertyId = :propertyId and x.generation < :generation"
+        ),
+        @NamedQuery(
+                name = PropertyChunk.QUERY_DELETE_ALL,
+                query = "DELETE FROM io.manebot.database.model.PropertyChunk x " +
+                        "where x.property.propertyId = :propertyId"
+        )
+})
+public class PropertyChunk {
+    /**
+     * Maximum number of bytes held by one chunk.
+     */
+    public static final int CHUNK_SIZE = 8192;
+
+    static final String QUERY_CHUNK = "io.manebot.database.model.PropertyChunk.chunk";
+    static final String QUERY_DELETE_GENERATION = "io.manebot.database.model.PropertyChunk.deleteGeneration";
+    static final String QUERY_DELETE_BEFORE = "io.manebot.database.model.PropertyChunk.deleteBefore";
+    static final String QUERY_DELETE_ALL = "io.manebot.database.model.PropertyChunk.deleteAll";
+
+    @Transient
+    private final io.manebot.database.Database database;
+    public PropertyChunk(io.manebot.database.Database database) {
+        this.database = database;
+    }
+
+    public PropertyChunk(io.manebot.database.Database database,
+                         Property property,
+                         int generation,
+                         int sequence,
+                         byte[] data) {
+        this(database);
+
+        this.property = property;
+        this.generation = generation;
+        this.sequence = sequence;
+        this.data = data;
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column()
+    private long propertyChunkId;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "propertyId")
+    private Property property;
+
+    @Column(nullable = false)
+    private int generation;
+
+    @Column(nullable = false)
+    private int sequence;
+
+    @Column(nullable = false, length = CHUNK_SIZE)
+    private byte[] data;
+
+    public long getPropertyChunkId() {
+        return propertyChunkId;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(propertyChunkId);
+    }
+}
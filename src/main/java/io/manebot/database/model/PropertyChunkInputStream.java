@@ -0,0 +1,78 @@
+package io.manebot.database.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads one generation of a chunked property value, loading a single chunk at a time.
+ */
+final class PropertyChunkInputStream extends InputStream {
+    private final io.manebot.database.Database database;
+    private final int propertyId;
+    private final int generation;
+
+    private byte[] chunk = new byte[0];
+    private int position = 0;
+    private int sequence = 0;
+    private boolean finished = false;
+
+    PropertyChunkInputStream(io.manebot.database.Database database, int propertyId, int generation) {
+        this.database = database;
+        this.propertyId = propertyId;
+        this.generation = generation;
+    }
+
+    private boolean fill() throws IOException {
+        while (!finished && position >= chunk.length) {
+            int sequence = this.sequence++;
+
+            PropertyChunk next;
+            try {
+                next = database.executeReadOnly(s -> {
+                    return s.createNamedQuery(PropertyChunk.QUERY_CHUNK, PropertyChunk.class)
+                            .setMaxResults(1)
+                            .setParameter("propertyId", propertyId)
+                            .setParameter("generation", generation)
+                            .setParameter("sequence", sequence)
+                            .getResultList()
+                            .stream()
+                            .findFirst()
+                            .orElse(null);
+                });
+            } catch (RuntimeException e) {
+                throw new IOException("Problem reading property chunk", e);
+            }
+
+            if (next == null) {
+                finished = true;
+            } else {
+                chunk = next.getData();
+                position = 0;
+            }
+        }
+
+        return !finished || position < chunk.length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) return -1;
+        return chunk[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!fill()) return -1;
+
+        int read = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, read);
+        position += read;
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return chunk.length - position;
+    }
+}
@@ -0,0 +1,223 @@
+package io.manebot.database.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes and decodes typed property values.
+ *
+ * An encoded value starts with a header byte holding the encoding version in its high nibble and a type tag in its low
+ * nibble, followed by the payload: integral types (including characters and dates, as epoch seconds) as zig-zag
+ * varints, floating point types as big-endian IEEE 754 bits, strings as UTF-8, and booleans and bytes as-is.  Decoding
+ * numeric values reads straight from the encoded array without allocating.
+ *
+ * Values written before this encoding existed are stored without a header, and are told apart by the <i>format</i>
+ * column of <b>Property</b> being null.
+ */
+final class PropertyCodec {
+    static final int VERSION = 1;
+
+    static final int TAG_BOOLEAN = 1;
+    static final int TAG_BYTE = 2;
+    static final int TAG_SHORT = 3;
+    static final int TAG_INTEGER = 4;
+    static final int TAG_LONG = 5;
+    static final int TAG_FLOAT = 6;
+    static final int TAG_DOUBLE = 7;
+    static final int TAG_CHAR = 8;
+    static final int TAG_STRING = 9;
+    static final int TAG_BYTES = 10;
+    static final int TAG_DATE = 11;
+
+    private PropertyCodec() {
+
+    }
+
+    private static byte header(int tag) {
+        return (byte) ((VERSION << 4) | tag);
+    }
+
+    static int getTag(byte[] encoded) {
+        if (encoded.length < 1) throw new IllegalStateException("empty encoded property value");
+
+        int version = (encoded[0] >> 4) & 0xF;
+        if (version != VERSION)
+            throw new IllegalStateException("unsupported property encoding version: " + version);
+
+        return encoded[0] & 0xF;
+    }
+
+    static byte[] encodeBoolean(boolean b) {
+        return new byte[] { header(TAG_BOOLEAN), b ? (byte) 0x1 : (byte) 0x0 };
+    }
+
+    static byte[] encodeByte(byte b) {
+        return new byte[] { header(TAG_BYTE), b };
+    }
+
+    /**
+     * Encodes an integral value as a zig-zag varint.
+     * @param tag integral type tag.
+     * @param value value to encode.
+     * @return encoded value.
+     */
+    static byte[] encodeVarint(int tag, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        int length = 1;
+        for (long v = zigzag >>> 7; v != 0; v >>>= 7) length ++;
+
+        byte[] encoded = new byte[1 + length];
+        encoded[0] = header(tag);
+
+        for (int i = 1; i <= length; i ++) {
+            byte b = (byte) (zigzag & 0x7F);
+            zigzag >>>= 7;
+            encoded[i] = zigzag != 0 ? (byte) (b | 0x80) : b;
+        }
+
+        return encoded;
+    }
+
+    static byte[] encodeFloat(float f) {
+        int bits = Float.floatToIntBits(f);
+        return new byte[] {
+                header(TAG_FLOAT),
+                (byte) (bits >>> 24), (byte) (bits >>> 16), (byte) (bits >>> 8), (byte) bits
+        };
+    }
+
+    static byte[] encodeDouble(double d) {
+        long bits = Double.doubleToLongBits(d);
+        byte[] encoded = new byte[9];
+        encoded[0] = header(TAG_DOUBLE);
+        for (int i = 0; i < 8; i ++)
+            encoded[1 + i] = (byte) (bits >>> (56 - (i * 8)));
+        return encoded;
+    }
+
+    static byte[] encodeString(String s) {
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = new byte[1 + utf8.length];
+        encoded[0] = header(TAG_STRING);
+        System.arraycopy(utf8, 0, encoded, 1, utf8.length);
+        return encoded;
+    }
+
+    static byte[] encodeBytes(byte[] data) {
+        byte[] encoded = new byte[1 + data.length];
+        encoded[0] = header(TAG_BYTES);
+        System.arraycopy(data, 0, encoded, 1, data.length);
+        return encoded;
+    }
+
+    private static long readVarint(byte[] encoded) {
+        long zigzag = 0L;
+        int shift = 0;
+
+        for (int i = 1; i < encoded.length; i ++) {
+            byte b = encoded[i];
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+            shift += 7;
+        }
+
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static int readIntBits(byte[] encoded) {
+        return ((encoded[1] & 0xFF) << 24) | ((encoded[2] & 0xFF) << 16) |
+                ((encoded[3] & 0xFF) << 8) | (encoded[4] & 0xFF);
+    }
+
+    private static long readLongBits(byte[] encoded) {
+        long bits = 0L;
+        for (int i = 0; i < 8; i ++)
+            bits = (bits << 8) | (encoded[1 + i] & 0xFF);
+        return bits;
+    }
+
+    /**
+     * Decodes a value as an integral number, converting from other numeric types as a cast would.
+     * @param encoded encoded value.
+     * @return decoded value.
+     */
+    static long decodeLong(byte[] encoded) {
+        switch (getTag(encoded)) {
+            case TAG_BOOLEAN:
+            case TAG_BYTE:
+                return encoded[1];
+            case TAG_SHORT:
+            case TAG_INTEGER:
+            case TAG_LONG:
+            case TAG_CHAR:
+            case TAG_DATE:
+                return readVarint(encoded);
+            case TAG_FLOAT:
+                return (long) Float.intBitsToFloat(readIntBits(encoded));
+            case TAG_DOUBLE:
+                return (long) Double.longBitsToDouble(readLongBits(encoded));
+            case TAG_STRING:
+                return Long.parseLong(decodeString(encoded));
+            default:
+                throw new IllegalStateException("property is not numeric");
+        }
+    }
+
+    /**
+     * Decodes a value as a floating point number, converting from other numeric types as a cast would.
+     * @param encoded encoded value.
+     * @return decoded value.
+     */
+    static double decodeDouble(byte[] encoded) {
+        switch (getTag(encoded)) {
+            case TAG_FLOAT:
+                return Float.intBitsToFloat(readIntBits(encoded));
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(readLongBits(encoded));
+            case TAG_STRING:
+                return Double.parseDouble(decodeString(encoded));
+            default:
+                return decodeLong(encoded);
+        }
+    }
+
+    static boolean decodeBoolean(byte[] encoded) {
+        switch (getTag(encoded)) {
+            case TAG_STRING:
+                return Boolean.parseBoolean(decodeString(encoded));
+            case TAG_FLOAT:
+            case TAG_DOUBLE:
+                return decodeDouble(encoded) != 0D;
+            default:
+                return decodeLong(encoded) != 0L;
+        }
+    }
+
+    static String decodeString(byte[] encoded) {
+        switch (getTag(encoded)) {
+            case TAG_STRING:
+            case TAG_BYTES:
+                return new String(encoded, 1, encoded.length - 1, StandardCharsets.UTF_8);
+            case TAG_BOOLEAN:
+                return Boolean.toString(encoded[1] != 0);
+            case TAG_CHAR:
+                return String.valueOf((char) readVarint(encoded));
+            case TAG_FLOAT:
+            case TAG_DOUBLE:
+                return Double.toString(decodeDouble(encoded));
+            default:
+                return Long.toString(decodeLong(encoded));
+        }
+    }
+
+    /**
+     * Gets the payload of an encoded value, without its header.
+     * @param encoded encoded value.
+     * @return payload bytes.
+     */
+    static byte[] decodeBytes(byte[] encoded) {
+        getTag(encoded);
+        return Arrays.copyOfRange(encoded, 1, encoded.length);
+    }
+}
@@ -0,0 +1,117 @@
+package io.manebot.database.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Writes an encoded property value as a stream.
+ *
+ * Data is buffered one chunk at a time.  If the stream is closed while the value still fits inline, it is stored in
+ * the property's <i>value</i> column like any other; otherwise each chunk is written in its own transaction to a new
+ * generation, and the property is switched over to that generation when the stream is closed.  Readers continue to
+ * see the previous value until then.  A stream which is not closed leaves the previous value in place.
+ *
+ * Each stream is allocated a generation of its own, so concurrent streams never write over each other's chunks.  If
+ * streams overlap, the one allocated last holds the value once both are closed.
+ */
+final class PropertyOutputStream extends OutputStream {
+    private final io.manebot.database.Database database;
+    private final Supplier<Property> property;
+    private final Consumer<byte[]> inline;
+
+    private final byte[] buffer = new byte[PropertyChunk.CHUNK_SIZE];
+    private int count = 0;
+
+    private Property target;
+    private int generation;
+    private int sequence = 0;
+    private boolean closed = false;
+
+    /**
+     * @param database database holding the property.
+     * @param property supplier of the property row, creating it if necessary.
+     * @param inline consumer storing a value small enough to be stored inline.
+     */
+    PropertyOutputStream(io.manebot.database.Database database,
+                         Supplier<Property> property,
+                         Consumer<byte[]> inline) {
+        this.database = database;
+        this.property = property;
+        this.inline = inline;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException("stream closed");
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count >= buffer.length) flushChunk();
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+
+        while (len > 0) {
+            if (count >= buffer.length) flushChunk();
+
+            int copied = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, copied);
+            count += copied;
+            off += copied;
+            len -= copied;
+        }
+    }
+
+    private void flushChunk() throws IOException {
+        try {
+            if (target == null) {
+                target = property.get();
+                generation = target.allocateChunkGeneration();
+            }
+
+            byte[] data = Arrays.copyOf(buffer, count);
+            int sequence = this.sequence++;
+
+            database.executeTransaction(s -> {
+                s.persist(new PropertyChunk(
+                        database,
+                        s.getReference(Property.class, target.getPropertyId()),
+                        generation,
+                        sequence,
+                        data
+                ));
+            });
+
+            count = 0;
+        } catch (SQLException | RuntimeException e) {
+            throw new IOException("Problem writing property chunk", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+
+        if (target == null && count <= Property.INLINE_LIMIT) {
+            inline.accept(Arrays.copyOf(buffer, count));
+            return;
+        }
+
+        if (count > 0) flushChunk();
+
+        try {
+            target.setChunked(generation);
+        } catch (SQLException | RuntimeException e) {
+            throw new IOException("Problem switching property to new chunks", e);
+        }
+    }
+}
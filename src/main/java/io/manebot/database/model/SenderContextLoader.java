@@ -0,0 +1,41 @@
+package io.manebot.database.model;
+
+import io.manebot.database.Database;
+import io.manebot.user.SenderContext;
+import io.manebot.user.UserGroupMembership;
+
+import java.util.ArrayList;
+
+/**
+ * Loads the <b>SenderContext</b> of an inbound message.
+ *
+ * The association is resolved through the <b>UserAssociationIndex</b>, which loads it and its user by primary key, so
+ * that the user's type and permissions are never stale.  Memberships come from the <b>MembershipIndex</b>, fetching
+ * each group, its entity and owner in one query on a miss, and the ban comes from the <b>UserBanIndex</b>.  A sender
+ * seen recently is therefore resolved with a single primary key lookup, and an unknown one in at most two queries.
+ */
+public final class SenderContextLoader {
+    private SenderContextLoader() {
+
+    }
+
+    /**
+     * Loads the context of a sender.
+     * @param database system database.
+     * @param platform platform the message was received on.
+     * @param platformUserId platform-specific ID of the sender.
+     * @return SenderContext instance if the sender is associated with a user, null otherwise.
+     */
+    public static SenderContext load(Database database, io.manebot.platform.Platform platform, String platformUserId) {
+        UserAssociation association = UserAssociationIndex.of(database).find(platform.getId(), platformUserId);
+        if (association == null) return null;
+
+        int userId = association.getUser().getUserId();
+
+        return new SenderContext(
+                association,
+                new ArrayList<UserGroupMembership>(MembershipIndex.of(database).getUserMembership(userId)),
+                UserBanIndex.of(database).getBan(userId)
+        );
+    }
+}
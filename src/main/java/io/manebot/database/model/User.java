@@ -1,6 +1,5 @@
 package io.manebot.database.model;
 
-import io.manebot.cache.CachedValue;
 import io.manebot.chat.*;
 import io.manebot.command.exception.CommandExecutionException;
 import io.manebot.lambda.ThrowingConsumer;
@@ -20,7 +19,6 @@ import java.sql.SQLException;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @javax.persistence.Entity
@@ -33,35 +31,59 @@ import java.util.stream.Collectors;
         },
         uniqueConstraints = {@UniqueConstraint(columnNames ={"username"})}
 )
+@NamedQueries({
+        @NamedQuery(
+                name = User.QUERY_MEMBERSHIP,
+                query = "SELECT x FROM io.manebot.database.model.UserGroup x " +
+                        "inner join fetch x.user u " +
+                        "inner join fetch u.entity " +
+                        "inner join fetch x.group g " +
+                        "inner join fetch g.entity " +
+                        "inner join fetch g.owningUser o " +
+                        "inner join fetch o.entity " +
+                        "left join fetch x.addingUser a " +
+                        "left join fetch a.entity " +
+                        "where u.userId = :userId"
+        ),
+        @NamedQuery(
+                name = User.QUERY_ASSOCIATION,
+                query = "SELECT x FROM io.manebot.database.model.UserAssociation x " +
+                        "inner join fetch x.user u " +
+                        "inner join fetch u.entity " +
+                        "inner join fetch x.platform p " +
+                        "where p.id = :platformId and x.id = :userId"
+        ),
+        @NamedQuery(
+                name = User.QUERY_ASSOCIATIONS,
+                query = "SELECT x FROM io.manebot.database.model.UserAssociation x " +
+                        "inner join x.user u " +
+                        "where u.userId = :userId"
+        ),
+        @NamedQuery(
+                name = User.QUERY_BANS,
+                query = "SELECT x FROM io.manebot.database.model.UserBan x " +
+                        "inner join x.user u " +
+                        "where u.userId = :userId"
+        ),
+        @NamedQuery(
+                name = User.QUERY_ISSUED_BANS,
+                query = "SELECT x FROM io.manebot.database.model.UserBan x " +
+                        "inner join x.banningUser u " +
+                        "where u.userId = :userId"
+        )
+})
 public class User extends TimedRow implements io.manebot.user.User {
+    static final String QUERY_MEMBERSHIP = "io.manebot.database.model.User.membership";
+    static final String QUERY_ASSOCIATION = "io.manebot.database.model.User.association";
+    static final String QUERY_ASSOCIATIONS = "io.manebot.database.model.User.associations";
+    static final String QUERY_BANS = "io.manebot.database.model.User.bans";
+    static final String QUERY_ISSUED_BANS = "io.manebot.database.model.User.issuedBans";
+
     @Transient
     private final Object promptLock = new Object();
     @Transient
     private Prompt prompt;
 
-    @Transient
-    private final CachedValue<io.manebot.database.model.UserBan> banCachedValue =
-            new CachedValue<>(1000L, new Supplier<io.manebot.database.model.UserBan>() {
-                @Override
-                public io.manebot.database.model.UserBan get() {
-                    return database.execute(s -> {
-                        return s.createQuery(
-                                "SELECT x FROM " +
-                                        io.manebot.database.model.UserBan.class.getName() + " x " +
-                                        "inner join x.user u " +
-                                        "where u.userId = :userId and x.end > :time and x.pardoned = false " +
-                                        "order by x.end desc",
-                                io.manebot.database.model.UserBan.class
-                        )
-                                .setParameter("userId", getUserId())
-                                .setParameter("time", (int) (System.currentTimeMillis() / 1000L))
-                                .setMaxResults(1)
-                                .getResultList()
-                                .stream().findFirst().orElse(null);
-                    });
-                }
-            });
-
     @Transient
     private final io.manebot.database.Database database;
     public User(io.manebot.database.Database database) {
@@ -123,24 +145,18 @@ public class User extends TimedRow implements io.manebot.user.User {
 
     @Override
     public Collection<UserGroupMembership> getMembership() {
-        return Collections.unmodifiableCollection(database.execute(s -> {
-            return s.createQuery(
-                    "SELECT x FROM " + UserGroup.class.getName() + " x " +
-                            "inner join x.user u " +
-                            "where u.userId = :userId",
-                    UserGroup.class
-            ).setParameter("userId", getUserId()).getResultList();
-        }));
+        return Collections.unmodifiableCollection(MembershipIndex.of(database).getUserMembership(getUserId()));
     }
 
     @Override
     public void setDisplayName(String displayName) throws IllegalArgumentException {
         try {
-            this.displayName = database.executeTransaction(s -> {
-                User user = s.find(User.class, getUserId());
-                user.displayName = displayName;
-                return displayName;
-            });
+            database.createUpdate(User.class, "userId", getUserId())
+                    .set("displayName", displayName)
+                    .touch()
+                    .execute();
+
+            this.displayName = displayName;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -157,10 +173,12 @@ public class User extends TimedRow implements io.manebot.user.User {
 
     public void setLastSeen(int lastSeen) {
         try {
-            database.executeTransaction(s -> {
-                User user = s.find(User.class, getUserId());
-                user.lastSeen = lastSeen;
-            });
+            database.createUpdate(User.class, "userId", getUserId())
+                    .set("lastSeen", lastSeen)
+                    .touch()
+                    .execute();
+
+            this.lastSeen = lastSeen;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -174,62 +192,32 @@ public class User extends TimedRow implements io.manebot.user.User {
     // Override for efficiency
     @Override
     public UserAssociation getUserAssociation(Platform platform, String id) {
-        return database.execute(s -> {
-            return s.createQuery(
-                    "SELECT x FROM " + UserAssociation.class.getName() + " x " +
-                            "inner join x.platform p " +
-                            "where p.id = :platformId and x.id = :userId",
-                    UserAssociation.class
-            )
-                    .setMaxResults(1)
-                    .setParameter("platformId", platform.getId())
-                    .setParameter("userId", id)
-                    .getResultList()
-                    .stream()
-                    .findFirst()
-                    .orElse(null);
-        });
+        return UserAssociationIndex.of(database).find(platform.getId(), id);
     }
 
     public Collection<io.manebot.user.UserAssociation> getAssociations() {
-        return Collections.unmodifiableCollection(database.execute(s -> {
-            return s.createQuery(
-                    "SELECT x FROM " + UserAssociation.class.getName() + " x " +
-                            "inner join x.user u " +
-                            "where u.userId = :userId",
-                    UserAssociation.class
-            ).setParameter("userId", getUserId()).getResultList();
+        return Collections.unmodifiableCollection(database.executeReadOnly(s -> {
+            return s.createNamedQuery(QUERY_ASSOCIATIONS, UserAssociation.class).setParameter("userId", getUserId()).getResultList();
         }));
     }
 
     @Override
     public Collection<io.manebot.user.UserBan> getBans() {
-        return Collections.unmodifiableCollection(database.execute(s -> {
-            return s.createQuery(
-                    "SELECT x FROM " + io.manebot.database.model.UserBan.class.getName() + " x " +
-                            "inner join x.user u " +
-                            "where u.userId = :userId",
-                    io.manebot.database.model.UserBan.class
-            ).setParameter("userId", getUserId()).getResultList();
+        return Collections.unmodifiableCollection(database.executeReadOnly(s -> {
+            return s.createNamedQuery(QUERY_BANS, io.manebot.database.model.UserBan.class).setParameter("userId", getUserId()).getResultList();
         }));
     }
 
     @Override
     public Collection<io.manebot.user.UserBan> getIssuedBans() {
-        return Collections.unmodifiableCollection(database.execute(s -> {
-            return s.createQuery(
-                    "SELECT x FROM " + io.manebot.database.model.UserBan.class.getName() + " x " +
-                            "inner join x.banningUser u " +
-                            "where u.userId = :userId",
-                    io.manebot.database.model.UserBan.class
-            ).setParameter("userId", getUserId()).getResultList();
+        return Collections.unmodifiableCollection(database.executeReadOnly(s -> {
+            return s.createNamedQuery(QUERY_ISSUED_BANS, io.manebot.database.model.UserBan.class).setParameter("userId", getUserId()).getResultList();
         }));
     }
 
     @Override
     public io.manebot.user.UserBan getBan() {
-        // Cache this value so spamming doesn't spam queries
-        return banCachedValue.get();
+        return UserBanIndex.of(database).getBan(getUserId());
     }
 
     @Override
@@ -249,7 +237,7 @@ public class User extends TimedRow implements io.manebot.user.User {
         User banningUser = (User) Virtual.getInstance().currentProcess().getUser();
 
         try {
-            return database.executeTransaction(s -> {
+            io.manebot.database.model.UserBan ban = database.executeTransaction(s -> {
                 User userAttached = s.find(User.class, getUserId());
                 User banningUserAttached = s.find(User.class, banningUser.getUserId());
 
@@ -264,11 +252,12 @@ public class User extends TimedRow implements io.manebot.user.User {
 
                 s.persist(userBan);
 
-                // Unset ban cached value
-                banCachedValue.unset();
-
                 return userBan;
             });
+
+            UserBanIndex.of(database).add(ban);
+
+            return ban;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -287,48 +276,56 @@ public class User extends TimedRow implements io.manebot.user.User {
             Platform platform,
             String platformUserId
     ) {
-        UserAssociation association =
-                getUserAssociation(platform, platformUserId);
+        return database.inUnitOfWork(() -> {
+            UserAssociation association =
+                    getUserAssociation(platform, platformUserId);
 
-        if (association != null) return association;
+            if (association != null) return association;
 
-        try {
-            association = database.executeTransaction(s -> {
-                UserAssociation newAssocation =
-                        new UserAssociation(
-                                database,
-                                (io.manebot.database.model.Platform) platform,
-                                platformUserId,
-                                User.this
-                        );
+            try {
+                association = database.executeTransaction(s -> {
+                    UserAssociation newAssocation =
+                            new UserAssociation(
+                                    database,
+                                    (io.manebot.database.model.Platform) platform,
+                                    platformUserId,
+                                    User.this
+                            );
 
-                s.persist(newAssocation);
+                    s.persist(newAssocation);
 
-                return newAssocation;
-            });
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+                    return newAssocation;
+                });
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
 
-        return association;
+            UserAssociationIndex.of(database).put(association);
+
+            return association;
+        });
     }
 
     @Override
     public boolean removeAssociation(Platform platform, String platformUserId) {
-        UserAssociation association =
-                getUserAssociation(platform, platformUserId);
+        return database.inUnitOfWork(() -> {
+            UserAssociation association =
+                    getUserAssociation(platform, platformUserId);
+
+            if (association != null) {
+                try {
+                    database.executeTransaction(s -> {
+                        s.remove(s.contains(association) ? association : s.merge(association));
+                    });
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
 
-        if (association != null) {
-            try {
-                database.executeTransaction(s -> {
-                    s.remove(association);
-                });
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
+                UserAssociationIndex.of(database).invalidate(platform.getId(), platformUserId);
 
-            return true;
-        } else return false;
+                return true;
+            } else return false;
+        });
     }
 
     @Override
@@ -341,11 +338,13 @@ public class User extends TimedRow implements io.manebot.user.User {
         if (this.userType == userType) return false;
 
         try {
-            return database.executeTransaction(s -> {
-                User user = s.find(User.class, getUserId());
-                user.userType = userType;
-                return true;
-            });
+            database.createUpdate(User.class, "userId", getUserId())
+                    .set("userType", userType)
+                    .touch()
+                    .execute();
+
+            this.userType = userType;
+            return true;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
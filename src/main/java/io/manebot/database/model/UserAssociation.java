@@ -13,7 +13,16 @@ import java.sql.SQLException;
         },
         uniqueConstraints = {@UniqueConstraint(columnNames ={"platformId","id"})}
 )
+@NamedQuery(
+        name = UserAssociation.QUERY_ALL,
+        query = "SELECT x FROM io.manebot.database.model.UserAssociation x " +
+                "inner join fetch x.user " +
+                "inner join fetch x.platform " +
+                "order by x.updated desc"
+)
 public class UserAssociation extends TimedRow implements io.manebot.user.UserAssociation {
+    static final String QUERY_ALL = "io.manebot.database.model.UserAssociation.all";
+
     @Transient
     private final io.manebot.database.Database database;
     public UserAssociation(io.manebot.database.Database database) {
@@ -64,8 +73,11 @@ public class UserAssociation extends TimedRow implements io.manebot.user.UserAss
     public void remove() {
         try {
             database.executeTransaction(s -> {
-                s.remove(UserAssociation.this);
+                UserAssociation association = s.find(UserAssociation.class, userAssociationId);
+                if (association != null) s.remove(association);
             });
+
+            UserAssociationIndex.of(database).invalidate(platform.getId(), id);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,196 @@
+package io.manebot.database.model;
+
+import com.google.common.collect.MapMaker;
+import io.manebot.cache.Cache;
+import io.manebot.cache.CacheManager;
+import io.manebot.cache.EntityChange;
+import io.manebot.database.Database;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-memory index of user associations keyed by platform and platform-specific user ID, used to resolve the sender of
+ * an inbound message with a single primary key lookup.
+ *
+ * The index is a bounded cache in the bot's <b>CacheManager</b>, evicting the least frequently used associations once
+ * full.  It holds only the ID of each association: the association and its user are loaded by ID on every lookup, so
+ * that changes to the user, such as its type or display name, are seen at once.  A miss falls back to a single query
+ * and caches the ID found; associations which do not exist are not cached, so a newly registered user is always found.
+ * The index is kept current by <b>User.createAssociation</b>, <b>User.removeAssociation</b> and
+ * <b>UserAssociation.remove</b>, and removals are published on the cache manager's invalidation bus.  An ID whose
+ * association has been removed is dropped when it is next looked up.  Associations returned are detached from any
+ * session.
+ */
+public final class UserAssociationIndex {
+    public static final int DEFAULT_MAXIMUM_SIZE = 65536;
+
+    private static final Map<Database, UserAssociationIndex> indices = new MapMaker().weakKeys().makeMap();
+
+    private final Database database;
+    private final int maximumSize;
+    private final CacheManager cacheManager;
+    private final String changeKind;
+    private final Cache<Key, Integer> associations;
+
+    private UserAssociationIndex(Database database, int maximumSize) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("maximumSize must be positive");
+
+        this.database = database;
+        this.maximumSize = maximumSize;
+        this.cacheManager = database.getDatabaseManager().getBot().getCacheManager();
+        this.changeKind = "manebot:userAssociation:" + database.getName();
+        this.associations = cacheManager.getCache(
+                "manebot:userAssociations:" + database.getName(),
+                builder -> builder.setMaximumSize(maximumSize)
+        );
+
+        cacheManager.subscribe(changeKind, this::onChange);
+    }
+
+    private void onChange(EntityChange change) {
+        // ID is "<platform id>:<platform user id>"; platform IDs do not contain colons
+        String id = change.getId();
+        int separator = id.indexOf(':');
+        if (separator < 0) return;
+
+        associations.invalidate(new Key(id.substring(0, separator), id.substring(separator + 1)));
+    }
+
+    /**
+     * Gets the association index for the given database, creating it if necessary.
+     * @param database database holding the association table.
+     * @return UserAssociationIndex instance.
+     */
+    public static UserAssociationIndex of(Database database) {
+        return indices.computeIfAbsent(database, key -> new UserAssociationIndex(key, DEFAULT_MAXIMUM_SIZE));
+    }
+
+    /**
+     * Gets the maximum number of associations held by this index.
+     * @return maximum size.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Gets the number of associations currently held by this index.
+     * @return index size.
+     */
+    public long size() {
+        return associations.size();
+    }
+
+    /**
+     * Finds an association by platform and platform-specific user ID, querying the database on a miss.
+     * @param platformId platform ID.
+     * @param platformUserId platform-specific user ID.
+     * @return UserAssociation instance if one exists, null otherwise.
+     */
+    public UserAssociation find(String platformId, String platformUserId) {
+        Key key = new Key(platformId, platformUserId);
+        Integer associationId = associations.getIfPresent(key);
+
+        if (associationId != null) {
+            UserAssociation association = database.executeReadOnly(s -> {
+                return s.find(UserAssociation.class, associationId);
+            });
+
+            if (association != null && key.matches(association)) return association;
+
+            // Removed since it was indexed
+            associations.invalidate(key);
+        }
+
+        UserAssociation association = database.executeReadOnly(s -> {
+            return s.createNamedQuery(User.QUERY_ASSOCIATION, UserAssociation.class)
+                    .setMaxResults(1)
+                    .setParameter("platformId", platformId)
+                    .setParameter("userId", platformUserId)
+                    .getResultList()
+                    .stream()
+                    .findFirst()
+                    .orElse(null);
+        });
+
+        if (association != null) put(association);
+
+        return association;
+    }
+
+    /**
+     * Loads associations into this index up to its maximum size, typically called once at startup.
+     * @return number of associations loaded.
+     */
+    public int warm() {
+        List<UserAssociation> loaded = database.executeReadOnly(s -> {
+            return s.createNamedQuery(UserAssociation.QUERY_ALL, UserAssociation.class)
+                    .setMaxResults(maximumSize)
+                    .getResultList();
+        });
+
+        loaded.forEach(this::put);
+
+        return loaded.size();
+    }
+
+    /**
+     * Adds or replaces an association in this index.
+     * @param association association to index.
+     */
+    public void put(UserAssociation association) {
+        associations.put(
+                new Key(association.getPlatform().getId(), association.getPlatformId()),
+                association.getUserAssociationId()
+        );
+    }
+
+    /**
+     * Removes an association from this index, and from the indexes of other nodes.
+     * @param platformId platform ID.
+     * @param platformUserId platform-specific user ID.
+     */
+    public void invalidate(String platformId, String platformUserId) {
+        associations.invalidate(new Key(platformId, platformUserId));
+        cacheManager.publish(changeKind, platformId + ":" + platformUserId);
+    }
+
+    /**
+     * Removes all associations from this index.
+     */
+    public void clear() {
+        associations.invalidateAll();
+    }
+
+    private static final class Key {
+        private final String platformId;
+        private final String platformUserId;
+        private final int hashCode;
+
+        private Key(String platformId, String platformUserId) {
+            this.platformId = Objects.requireNonNull(platformId);
+            this.platformUserId = Objects.requireNonNull(platformUserId);
+            this.hashCode = 31 * platformId.hashCode() + platformUserId.hashCode();
+        }
+
+        private boolean matches(UserAssociation association) {
+            return platformId.equals(association.getPlatform().getId()) &&
+                    platformUserId.equals(association.getPlatformId());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return platformId.equals(key.platformId) && platformUserId.equals(key.platformUserId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -17,7 +17,16 @@ import java.util.Date;
                 @Index(columnList = "updated")
         }
 )
+@NamedQuery(
+        name = UserBan.QUERY_ACTIVE,
+        query = "SELECT x FROM io.manebot.database.model.UserBan x " +
+                "inner join fetch x.user " +
+                "where x.end > :time and x.pardoned = false " +
+                "order by x.end asc"
+)
 public class UserBan extends TimedRow implements io.manebot.user.UserBan {
+    static final String QUERY_ACTIVE = "io.manebot.database.model.UserBan.active";
+
     @Transient
     private final io.manebot.database.Database database;
     public UserBan(io.manebot.database.Database database) {
@@ -88,7 +97,11 @@ public class UserBan extends TimedRow implements io.manebot.user.UserBan {
 
     @Override
     public Date getEnd() {
-        return new Date(end * 1000);
+        return new Date(end * 1000L);
+    }
+
+    int getEndSeconds() {
+        return end;
     }
 
     @Override
@@ -104,10 +117,14 @@ public class UserBan extends TimedRow implements io.manebot.user.UserBan {
         Permission.checkPermission("system.ban.pardon");
 
         try {
-            pardoned = database.executeTransaction(s -> {
-                UserBan userBan = s.find(UserBan.class, getUserBanId());
-                return userBan.pardoned = true;
-            });
+            database.createUpdate(UserBan.class, "userBanId", getUserBanId())
+                    .set("pardoned", true)
+                    .touch()
+                    .execute();
+
+            pardoned = true;
+
+            UserBanIndex.of(database).remove(this);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
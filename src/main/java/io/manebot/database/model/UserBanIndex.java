@@ -0,0 +1,197 @@
+package io.manebot.database.model;
+
+import com.google.common.collect.MapMaker;
+import io.manebot.cache.CacheManager;
+import io.manebot.cache.EntityChange;
+import io.manebot.database.Database;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of active user bans keyed by user ID, used to check whether a user is banned without a query.
+ *
+ * The index is loaded with a single query on first use, and is then kept current by <b>User.ban</b> and
+ * <b>UserBan.pardon</b>, which also publish the change on the cache manager's invalidation bus; other nodes reload
+ * their index when they receive it.  Reads are lock-free: a user with no active ban, which is the common case, costs one map
+ * lookup.  Every active ban of a user is held, so that adding a shorter ban or pardoning one of several bans never
+ * hides another active ban.  Bans are ordered by end time so that expired bans are purged in order, and a ban which
+ * has ended is never returned even if it has not yet been purged.  Bans returned are detached from any session.
+ */
+public final class UserBanIndex {
+    private static final Map<Database, UserBanIndex> indices = new MapMaker().weakKeys().makeMap();
+
+    private final Database database;
+    private final CacheManager cacheManager;
+    private final String changeKind;
+    private final Object loadLock = new Object();
+    private static final Comparator<UserBan> ORDER =
+            Comparator.comparingInt(UserBan::getEndSeconds).thenComparingInt(UserBan::getUserBanId);
+
+    // Each user's set is only modified inside a compute call for that user, and is removed once empty
+    private final Map<Integer, NavigableSet<UserBan>> active = new ConcurrentHashMap<>();
+    private final PriorityQueue<UserBan> expiry = new PriorityQueue<>(ORDER);
+
+    private volatile boolean loaded = false;
+
+    private UserBanIndex(Database database) {
+        this.database = database;
+        this.cacheManager = database.getDatabaseManager().getBot().getCacheManager();
+        this.changeKind = "manebot:userBan:" + database.getName();
+
+        cacheManager.subscribe(changeKind, this::onChange);
+    }
+
+    private void onChange(EntityChange change) {
+        // Bans change rarely; reload everything rather than fetching the single ban
+        clear();
+    }
+
+    /**
+     * Gets the ban index for the given database, creating it if necessary.
+     * @param database database holding the ban table.
+     * @return UserBanIndex instance.
+     */
+    public static UserBanIndex of(Database database) {
+        return indices.computeIfAbsent(database, UserBanIndex::new);
+    }
+
+    private static int now() {
+        return (int) (System.currentTimeMillis() / 1000L);
+    }
+
+    private static boolean isActive(UserBan ban, int now) {
+        return !ban.isPardoned() && ban.getEndSeconds() > now;
+    }
+
+    private void load() {
+        if (loaded) return;
+
+        synchronized (loadLock) {
+            if (loaded) return;
+
+            List<UserBan> bans = database.executeReadOnly(s -> {
+                return s.createNamedQuery(UserBan.QUERY_ACTIVE, UserBan.class)
+                        .setParameter("time", now())
+                        .getResultList();
+            });
+
+            bans.forEach(this::index);
+
+            loaded = true;
+        }
+    }
+
+    private void index(UserBan ban) {
+        active.compute(ban.getUser().getUserId(), (userId, bans) -> {
+            if (bans == null) bans = new ConcurrentSkipListSet<>(ORDER);
+            bans.removeIf(indexed -> indexed.getUserBanId() == ban.getUserBanId());
+            bans.add(ban);
+            return bans;
+        });
+
+        synchronized (expiry) {
+            expiry.add(ban);
+        }
+    }
+
+    private void unindex(UserBan ban) {
+        active.computeIfPresent(ban.getUser().getUserId(), (userId, bans) -> {
+            bans.removeIf(indexed -> indexed.getUserBanId() == ban.getUserBanId());
+            return bans.isEmpty() ? null : bans;
+        });
+    }
+
+    private void purge(int now) {
+        synchronized (expiry) {
+            UserBan ban;
+            while ((ban = expiry.peek()) != null && ban.getEndSeconds() <= now) {
+                expiry.poll();
+                unindex(ban);
+            }
+        }
+    }
+
+    /**
+     * Gets the active ban for a user.  If the user has several, the one ending last is returned.
+     * @param userId user ID.
+     * @return active UserBan instance if the user is banned, null otherwise.
+     */
+    public UserBan getBan(int userId) {
+        load();
+
+        NavigableSet<UserBan> bans = active.get(userId);
+        if (bans == null) return null;
+
+        int now = now();
+        for (UserBan ban : bans.descendingSet())
+            if (isActive(ban, now)) return ban;
+
+        purge(now);
+
+        return null;
+    }
+
+    /**
+     * Gets all active bans.
+     * @return immutable collection of active bans.
+     */
+    public Collection<io.manebot.user.UserBan> getCurrentBans() {
+        load();
+
+        int now = now();
+        purge(now);
+
+        return Collections.unmodifiableList(
+                active.values().stream()
+                        .flatMap(Collection::stream)
+                        .filter(ban -> isActive(ban, now))
+                        .collect(Collectors.toList())
+        );
+    }
+
+    /**
+     * Adds a newly created ban to this index.
+     * @param ban ban to add.
+     */
+    public void add(UserBan ban) {
+        synchronized (loadLock) {
+            // Otherwise, picked up by the initial load; other nodes are told either way
+            if (loaded && isActive(ban, now())) index(ban);
+        }
+
+        cacheManager.publish(changeKind, Integer.toString(ban.getUser().getUserId()));
+    }
+
+    /**
+     * Removes a ban from this index, such as when it is pardoned.
+     * @param ban ban to remove.
+     */
+    public void remove(UserBan ban) {
+        synchronized (loadLock) {
+            unindex(ban);
+
+            synchronized (expiry) {
+                expiry.removeIf(indexed -> indexed.getUserBanId() == ban.getUserBanId());
+            }
+        }
+
+        cacheManager.publish(changeKind, Integer.toString(ban.getUser().getUserId()));
+    }
+
+    /**
+     * Discards all bans in this index, so that they are loaded again on next use.
+     */
+    public void clear() {
+        synchronized (loadLock) {
+            loaded = false;
+            active.clear();
+
+            synchronized (expiry) {
+                expiry.clear();
+            }
+        }
+    }
+}
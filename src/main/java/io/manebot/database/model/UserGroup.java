@@ -82,11 +82,14 @@ public class UserGroup extends TimedRow implements UserGroupMembership {
     public void remove() throws SecurityException {
         try {
             database.executeTransaction(s -> {
-                s.remove(UserGroup.this);
+                UserGroup membership = s.find(UserGroup.class, xrefId);
+                if (membership != null) s.remove(membership);
             });
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+
+        MembershipIndex.of(database).invalidate(user.getUserId(), group.getGroupId());
     }
 
     @Override
@@ -0,0 +1,32 @@
+package io.manebot.database.search;
+
+/**
+ * How a search handler finds the total number of results of a search (see <b>SearchHandler.Builder.count</b>).
+ *
+ * Whatever the strategy, the total is exact when the page read is the last one, since it is then known from the rows
+ * read without a count.
+ */
+public enum CountStrategy {
+    /**
+     * Counts every matching row for every page.
+     */
+    EXACT,
+
+    /**
+     * Counts every matching row, and reuses the count for the same search until it expires or the entity is written.
+     */
+    CACHED,
+
+    /**
+     * Counts the matching rows in one window of the ID range and scales the count to the whole range.  Estimates are
+     * cached like <b>CACHED</b> counts.
+     */
+    ESTIMATED,
+
+    /**
+     * Does not count; only finds whether another page follows, by reading one row past the page.
+     */
+    HAS_MORE;
+
+    public static final CountStrategy DEFAULT = EXACT;
+}
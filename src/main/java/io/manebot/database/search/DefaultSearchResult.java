@@ -8,20 +8,39 @@ public class DefaultSearchResult<T> implements SearchResult<T> {
     private final int pageSize;
     private final long totalResults, page;
     private final List<T> results;
+    private final String continuation;
+    private final CountStrategy countStrategy;
+    private final boolean hasMore;
 
     public DefaultSearchResult(Search search, SearchHandler<T> handler,
                                long totalResults, int pageSize, long page, List<T> results) {
+        this(search, handler, totalResults, pageSize, page, results, null);
+    }
+
+    public DefaultSearchResult(Search search, SearchHandler<T> handler,
+                               long totalResults, int pageSize, long page, List<T> results,
+                               String continuation) {
+        this(search, handler, totalResults, pageSize, page, results, continuation,
+                CountStrategy.EXACT, continuation != null || page * (long) pageSize < totalResults);
+    }
+
+    public DefaultSearchResult(Search search, SearchHandler<T> handler,
+                               long totalResults, int pageSize, long page, List<T> results,
+                               String continuation, CountStrategy countStrategy, boolean hasMore) {
         this.search = search;
         this.handler = handler;
         this.totalResults = totalResults;
         this.pageSize = pageSize;
         this.page = page;
         this.results = results;
+        this.continuation = continuation;
+        this.countStrategy = countStrategy;
+        this.hasMore = hasMore;
     }
 
     @Override
     public Search getQuery() {
-        return getQuery();
+        return search;
     }
 
     @Override
@@ -48,4 +67,19 @@ public class DefaultSearchResult<T> implements SearchResult<T> {
     public List<T> getResults() {
         return results;
     }
+
+    @Override
+    public String getContinuation() {
+        return continuation;
+    }
+
+    @Override
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    @Override
+    public boolean hasMore() {
+        return hasMore;
+    }
 }
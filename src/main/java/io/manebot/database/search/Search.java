@@ -13,17 +13,24 @@ public final class Search {
     public static final Search EMPTY = new Search(
             Collections.emptyList(),
             new PushedLexicalClause(null, SearchOperator.UNSPECIFIED),
-            1
+            1,
+            null,
+            false
     );
 
     private final Collection<Order> orders;
     private final LexicalClause rootLexicalClause;
     private int page = 1;
+    private final String continuation;
+    private final boolean unsatisfiable;
 
-    private Search(Collection<Order> orders, LexicalClause rootLexicalClause, int page) {
+    private Search(Collection<Order> orders, LexicalClause rootLexicalClause, int page, String continuation,
+                   boolean unsatisfiable) {
         this.orders = orders;
         this.rootLexicalClause = rootLexicalClause;
         this.page = page;
+        this.continuation = continuation;
+        this.unsatisfiable = unsatisfiable;
     }
 
     /**
@@ -44,11 +51,22 @@ public final class Search {
     }
 
     public Search withPage(int page) {
-        return new Search(orders, rootLexicalClause, page);
+        return new Search(orders, rootLexicalClause, page, null, unsatisfiable);
+    }
+
+    /**
+     * Creates a copy of this search which continues after the last row of an earlier result, using keyset
+     * pagination instead of page offsets.
+     * @param continuation continuation token from <b>SearchResult.getContinuation()</b>, or null to start over.
+     * @return Search instance.
+     */
+    public Search withContinuation(String continuation) {
+        return new Search(orders, rootLexicalClause, 1, continuation, unsatisfiable);
     }
 
     public Search withOrders(Collection<Order> orders) {
-        return new Search(Collections.unmodifiableCollection(orders), rootLexicalClause, page);
+        return new Search(Collections.unmodifiableCollection(orders), rootLexicalClause, page, continuation,
+                unsatisfiable);
     }
 
     public Search withOrders(Order... orders) {
@@ -59,6 +77,28 @@ public final class Search {
         return page;
     }
 
+    /**
+     * Gets the continuation token this search resumes from.  When set, search handlers seek past the row the token
+     * was taken from instead of skipping whole pages.
+     * @return continuation token, or null if the search uses page offsets.
+     */
+    public String getContinuation() {
+        return continuation;
+    }
+
+    /**
+     * Finds if this search was found by <b>SearchOptimizer</b> to contradict itself, such as <i>a +b -a</i>.  Search
+     * handlers should return an empty result for an unsatisfiable search without querying the database.
+     * @return true if the search can never match anything, false otherwise.
+     */
+    public boolean isUnsatisfiable() {
+        return unsatisfiable;
+    }
+
+    Search withLexicalClause(LexicalClause rootLexicalClause, boolean unsatisfiable) {
+        return new Search(orders, rootLexicalClause, page, continuation, unsatisfiable);
+    }
+
     public interface Order {
         String getKey();
         SortOrder getOrder();
@@ -165,6 +205,13 @@ public final class Search {
             searchClause.pop();
         }
 
+        @Override
+        void shape(SearchHandler<?> handler, StringBuilder shape, List<Object> parameters) {
+            shape.append(operator.getCharacter()).append('(');
+            for (SearchPredicate action : actions) action.shape(handler, shape, parameters);
+            shape.append(')');
+        }
+
         @Override
         public List<SearchPredicate> getActions() {
             return actions;
@@ -178,6 +225,7 @@ public final class Search {
     public static class Builder extends PushedLexicalClause implements LexicalClause {
         private int page = 1; // default page is 1, of course
         private Collection<Order> orders = new LinkedList<>();
+        private String continuation = null;
 
         public Builder() {
             super(null, SearchOperator.UNSPECIFIED);
@@ -185,7 +233,7 @@ public final class Search {
 
         public Search build() {
             // Simply return a new Search object around the root lexical clause (this)
-            return new Search(orders, this, page);
+            return new Search(orders, this, page, continuation, false);
         }
 
         @Override
@@ -212,6 +260,15 @@ public final class Search {
             return this;
         }
 
+        public String getContinuation() {
+            return continuation;
+        }
+
+        public Builder continuation(String continuation) {
+            this.continuation = continuation;
+            return this;
+        }
+
         public Collection<Order> getOrders() {
             return orders;
         }
@@ -222,304 +279,358 @@ public final class Search {
         }
     }
 
-    protected interface LexicalParser {
-        /**
-         * Attempts to complete the parser, such as when a query string has ended.
-         */
-        void complete() throws IllegalArgumentException;
+    /**
+     * Single-pass lexer for search query strings.
+     *
+     * Tokens are read straight from the query: commands and arguments run up to whitespace or a closing parenthesis,
+     * strings up to their closing quote (backslash escapes the next character), and operators and parentheses are
+     * single characters.  Each token is added to the clause it was found in as it is read.  Page, sort and continuation
+     * arguments are recognized as they are read; whether they are applied is decided once the query ends, as they are
+     * only allowed at the end of the innermost last clause.
+     */
+    private static final class Lexer {
+        private static final char STRING_CHARACTER = '"';
+        private static final char ESCAPE_CHARACTER = '\\';
+        private static final char OPEN_CHARACTER = '(';
+        private static final char CLOSE_CHARACTER = ')';
 
-        /**
-         * Interprets a single character.
-         * @param c Character to interpret.
-         * @return true if further parsing is needed, false otherwise.
-         * @throws IllegalArgumentException if there was a problem interpreting the given character.
-         */
-        boolean interpret(char c) throws IllegalArgumentException;
-    }
+        private static final int DIRECTIVE_NONE = 0;
+        private static final int DIRECTIVE_PAGE = 1;
+        private static final int DIRECTIVE_SORT = 2;
+        private static final int DIRECTIVE_CONTINUATION = 3;
 
-    protected static abstract class AbstractParser implements LexicalParser {
-        private final SearchOperator operator;
-        private final LexicalClause clause;
+        private final CharSequence query;
+        private final int length;
+        private int position = 0;
 
-        protected AbstractParser(SearchOperator operator, LexicalClause clause) {
-            this.operator = operator;
-            this.clause = clause;
+        private Lexer(CharSequence query) {
+            this.query = query;
+            this.length = query.length();
         }
 
-        protected SearchOperator getOperator() {
-            return operator;
-        }
+        private Search parse() throws IllegalArgumentException {
+            Builder builder = new Builder();
+            Frame root = new Frame(null, (PushedLexicalClause) builder.push(SearchOperator.UNSPECIFIED), false);
+            Frame frame = root;
 
-        protected LexicalClause getClause() {
-            return clause;
-        }
-    }
+            while (position < length) {
+                char c = query.charAt(position);
 
-    protected static class StringParser extends AbstractParser {
-        static final char ASSOCIATED_CHARACTER = '"';
-        private static final char escapeCharacter = '\\';
+                if (Character.isWhitespace(c)) {
+                    position ++;
+                    continue;
+                }
 
-        private final StringBuilder builder = new StringBuilder();
-        private boolean escape = false;
+                switch (c) {
+                    case STRING_CHARACTER:
+                        position ++;
+                        frame.add(new SearchPredicateString(new SearchArgument(frame.nextOperator, readString(frame))));
+                        break;
+                    case '~':
+                        frame.setNextOperator(SearchOperator.INCLUDE, c);
+                        position ++;
+                        break;
+                    case '+':
+                        frame.setNextOperator(SearchOperator.MERGE, c);
+                        position ++;
+                        break;
+                    case '-':
+                        frame.setNextOperator(SearchOperator.EXCLUDE, c);
+                        position ++;
+                        break;
+                    case OPEN_CHARACTER:
+                        frame = frame.open();
+                        position ++;
+                        break;
+                    case CLOSE_CHARACTER:
+                        frame = frame.close();
+                        position ++;
+                        break;
+                    default:
+                        readCommand(frame);
+                        break;
+                }
+            }
 
-        protected StringParser(SearchOperator operator, LexicalClause clause) {
-            super(operator, clause);
-        }
+            if (frame != root) throw new IllegalArgumentException("Unexpected end of clause");
 
-        @Override
-        public void complete() {
-            throw new IllegalArgumentException("Unexpected end of string");
+            // Apply page, sort and continuation arguments at the end of the innermost last clause
+            Frame last = root;
+            while (last.lastChild != null) last = last.lastChild;
+            last.applyDirectives(builder);
+
+            return builder.build();
         }
 
-        @Override
-        public boolean interpret(char c) throws IllegalArgumentException {
-            if (!escape && c == ASSOCIATED_CHARACTER) {
-                getClause().addPredicate(new SearchPredicateString(new SearchArgument(
-                        getOperator(),
-                        builder.toString()
-                )));
-
-                return false; // done
+        private String readString(Frame frame) {
+            int start = position;
+
+            // Fast path: no escapes, so the value is a plain slice of the query
+            while (position < length) {
+                char c = query.charAt(position);
+                if (c == STRING_CHARACTER) return query.subSequence(start, position++).toString();
+                if (c == ESCAPE_CHARACTER) break;
+                position ++;
             }
 
-            if (c == escapeCharacter) {
-                if (escape) {
-                    builder.append(c);
+            StringBuilder builder = new StringBuilder(position - start + 16);
+            builder.append(query, start, position);
+
+            boolean escape = false;
+            while (position < length) {
+                char c = query.charAt(position++);
+
+                if (!escape && c == STRING_CHARACTER) return builder.toString();
+
+                if (c == ESCAPE_CHARACTER) {
+                    if (escape) builder.append(c); // an escaped escape also escapes the character after it
+                    else escape = true;
                 } else {
-                    escape = true;
+                    builder.append(c);
+                    escape = false;
                 }
-            } else {
-                builder.append(c);
-                escape = false;
             }
 
-            return true; // need more
+            throw new IllegalArgumentException(frame.requireClosingToken ?
+                    "Unexpected end of clause" : "Unexpected end of string");
         }
-    }
 
-    protected static class CommandParser extends AbstractParser {
-        private final StringBuilder builder = new StringBuilder();
+        private void readCommand(Frame frame) {
+            int start = position;
+
+            while (position < length) {
+                char c = query.charAt(position);
+                if (Character.isWhitespace(c) || c == CLOSE_CHARACTER) break;
+                position ++;
+            }
+
+            // A closing parenthesis ends the command, but is left to close the clause
+            if (position < length && query.charAt(position) == CLOSE_CHARACTER && !frame.requireClosingToken)
+                throw new IllegalArgumentException("Unexpected end of clause");
 
-        protected CommandParser(SearchOperator operator, LexicalClause clause) {
-            super(operator, clause);
+            String text = query.subSequence(start, position).toString();
+            SearchPredicateArgument predicate = new SearchPredicateArgument(new SearchArgument(frame.nextOperator, text));
+
+            int directive = getDirective(text);
+            if (directive != DIRECTIVE_NONE) frame.addDirective(predicate, directive);
+            else frame.add(predicate);
+
+            // Consume the whitespace ending the command
+            if (position < length && query.charAt(position) != CLOSE_CHARACTER) position ++;
         }
 
-        @Override
-        public void complete() {
-            // Don't argue.
-            getClause().addPredicate(new SearchPredicateArgument(
-                    new SearchArgument(getOperator(), builder.toString())
-            ));
+        private static int getDirective(String text) {
+            if (text.startsWith("page:") || text.startsWith("p:")) return DIRECTIVE_PAGE;
+            else if (text.startsWith("sort:")) return DIRECTIVE_SORT;
+            else if (text.startsWith("after:") && isContinuation(text.substring("after:".length())))
+                return DIRECTIVE_CONTINUATION;
+            else return DIRECTIVE_NONE;
         }
 
-        @Override
-        public boolean interpret(char c) throws IllegalArgumentException {
-            if (Character.isWhitespace(c)) {
-                complete();
-                return false;
-            } else {
-                builder.append(c);
+        /**
+         * Finds if the text following <i>after:</i> is a continuation token.  Handlers may accept commands starting
+         * with <i>after:</i> themselves (i.e. <i>after:2019</i>), which are left to them unless they decode as a token.
+         * @param text text to check.
+         * @return true if the text decodes as a continuation token, false otherwise.
+         */
+        private static boolean isContinuation(String text) {
+            try {
+                SearchKeyset.decode(text);
                 return true;
+            } catch (IllegalArgumentException e) {
+                return false;
             }
         }
-    }
 
-    /**
-     * Introspective self-parsing clause parser
-     */
-    protected static class ClauseParser extends AbstractParser {
-        static final char ASSOCIATED_CHARACTER = '(';
-        private static final char closingCharacter = ')';
-        private final boolean requireClosingToken;
+        private static final class Frame {
+            private final Frame parent;
+            private final PushedLexicalClause clause;
+            private final boolean requireClosingToken;
 
-        /**
-         * Current lexical parser instance.  When null, the <b>ClauseParser</b> seeks for the next character which
-         * indicates the type of parser that should be constructed.
-         */
-        private LexicalParser parser = null;
+            private SearchOperator nextOperator = SearchOperator.UNSPECIFIED;
+            private int handled = 0;
 
-        /**
-         * Operator to apply to the next <b>LexicalParser</b> instantiated.
-         */
-        private SearchOperator nextOperator = SearchOperator.UNSPECIFIED; // otherwise will throw exception
+            /**
+             * The clause which is the last action of this clause, if any.
+             */
+            private Frame lastChild = null;
 
-        /**
-         * Count of handled parsers.  Used to know if we should allow a search operator token or not.
-         */
-        private int handled = 0;
+            /**
+             * Count of actions in this clause which are not page, sort or continuation arguments.
+             */
+            private int others = 0;
 
-        protected ClauseParser(SearchOperator operator, LexicalClause clause, boolean requireClosingToken) {
-            super(SearchOperator.UNSPECIFIED, clause.push(operator));
+            private List<SearchPredicateArgument> directives = null;
+            private int[] directiveKinds = null;
+            private int[] directiveOthers = null;
 
-            this.requireClosingToken = requireClosingToken;
-        }
+            private Frame(Frame parent, PushedLexicalClause clause, boolean requireClosingToken) {
+                this.parent = parent;
+                this.clause = clause;
+                this.requireClosingToken = requireClosingToken;
+            }
 
-        private void completeIntl() {
-            // Attempt to end the current parser.
-            if (parser != null) parser.complete();
+            private void setNextOperator(SearchOperator operator, char c) {
+                if (handled <= 0) throw new IllegalArgumentException("Unexpected token: " + c);
+                nextOperator = operator;
+            }
 
-            // Pop current clause
-            getClause().pop();
-        }
+            private void completed() {
+                nextOperator = SearchOperator.getDefault();
+                handled ++;
+            }
 
-        @Override
-        public void complete() {
-            if (requireClosingToken) throw new IllegalArgumentException("Unexpected end of clause");
+            private void add(SearchPredicate predicate) {
+                clause.addPredicate(predicate);
+                lastChild = null;
+                others ++;
+                completed();
+            }
 
-            completeIntl();
-        }
+            private void addDirective(SearchPredicateArgument predicate, int kind) {
+                clause.addPredicate(predicate);
+                lastChild = null;
+
+                if (directives == null) {
+                    directives = new ArrayList<>(2);
+                    directiveKinds = new int[2];
+                    directiveOthers = new int[2];
+                } else if (directives.size() == directiveKinds.length) {
+                    directiveKinds = Arrays.copyOf(directiveKinds, directiveKinds.length * 2);
+                    directiveOthers = Arrays.copyOf(directiveOthers, directiveOthers.length * 2);
+                }
 
-        @Override
-        public boolean interpret(char c) throws IllegalArgumentException {
-            boolean parseExternally = parser == null || (parser instanceof CommandParser && c == closingCharacter);
-            if (parseExternally) {
-                // Skip whitespaces
-                if (Character.isWhitespace(c)) return true; // continue parsing
+                directiveKinds[directives.size()] = kind;
+                directiveOthers[directives.size()] = others;
+                directives.add(predicate);
 
-                switch (c) {
-                    case StringParser.ASSOCIATED_CHARACTER: // Open string parser
-                        parser = new StringParser(nextOperator, getClause());
-                        nextOperator = SearchOperator.getDefault();
-                        break;
-                    case '~':
-                        if (handled <= 0)
-                            throw new IllegalArgumentException("Unexpected token: " + c);
-                        nextOperator = SearchOperator.INCLUDE;
-                        break;
-                    case '+':
-                        if (handled <= 0)
-                            throw new IllegalArgumentException("Unexpected token: " + c);
-                        nextOperator = SearchOperator.MERGE;
-                        break;
-                    case '-':
-                        if (handled <= 0)
-                            throw new IllegalArgumentException("Unexpected token: " + c);
-                        nextOperator = SearchOperator.EXCLUDE;
-                        break;
-                    case ASSOCIATED_CHARACTER: // Open new clause parser
-                        parser = new ClauseParser(nextOperator, getClause(), true);
-                        break;
-                    case closingCharacter: // Close current clause parser
-                        if (!requireClosingToken) throw new IllegalArgumentException("Unexpected end of clause");
-                        completeIntl();
-                        return false;
-                    default:
-                        parser = new CommandParser(nextOperator, getClause());
-                        parser.interpret(c); // must be done, or we lose this character.
-                        break;
-                }
+                completed();
+            }
 
-                return true; // continue
-            } else {
-                boolean completed = !parser.interpret(c);
-                if (completed) {
-                    parser = null;
-                    nextOperator = SearchOperator.getDefault();
-                    handled ++;
-                }
+            private Frame open() {
+                others ++;
+                return new Frame(this, (PushedLexicalClause) clause.push(nextOperator), true);
+            }
 
-                return true; // continue
+            private Frame close() {
+                if (!requireClosingToken) throw new IllegalArgumentException("Unexpected end of clause");
+
+                parent.lastChild = this;
+                parent.completed();
+                return parent;
             }
-        }
-    }
 
-    /**
-     * Lexically parses a <i>queryString</i> and forms a machine-readable clause structure from the input.
-     *
-     * Most of the processing logical processing itself occurs in private class <b>ClauseParser</b>, as the
-     * string itself is a clause.
-     *
-     * @param queryString query string to parse.
-     * @return Search object, encapsulating the Clause structure.
-     * @throws IllegalArgumentException if there was a problem interpreting the given query string.
-     */
-    public static Search parse(String queryString) throws IllegalArgumentException {
-        Search.Builder builder = new Search.Builder();
-        LexicalParser parser = new ClauseParser(SearchOperator.UNSPECIFIED, builder, false);
-
-        // Iterate over all characters in the query string.
-        for (char c : queryString.toCharArray())
-            if (!parser.interpret(c)) throw new IllegalArgumentException("Unexpected end of query");
-
-        // Attempt completion
-        parser.complete();
-
-        // Bit of a hack... search for "page" argument at the very end of the parser and "sort" as well.
-        PushedLexicalClause thisClause = builder;
-        while (true) {
-            SearchPredicate nextClause = thisClause.getLastAction();
-            if ((nextClause instanceof PushedLexicalClause))
-                thisClause = (PushedLexicalClause) nextClause;
-            else
-                break;
-        }
-
-        ListIterator<SearchPredicate> iterator = thisClause.getActions().listIterator(thisClause.getActions().size());
-        List<Order> orders = new ArrayList<>();
-
-        boolean hasPage = false, hasSort = false, hasOther = false;
-
-        while (iterator.hasPrevious()) {
-            SearchPredicate predicate = iterator.previous();
-
-            if (predicate instanceof SearchPredicateArgument) {
-                String text = predicate.getArgument().getValue();
-                if (text.startsWith("page:") || text.startsWith("p:")) {
-                    if (predicate.getArgument().getOperator() != SearchOperator.UNSPECIFIED) {
-                        throw new IllegalArgumentException("Search page number has unexpected operator: " +
-                                predicate.getArgument().getOperator().getCharacter());
-                    } else if (hasPage) {
-                        throw new IllegalArgumentException("Search has multiple page numbers");
-                    } else if (hasOther) {
-                        throw new IllegalArgumentException("Unexpected page number: \"" + text + "\"");
+            private void applyDirectives(Builder builder) {
+                if (directives == null) return;
+
+                List<Order> orders = new ArrayList<>();
+                boolean hasPage = false, hasContinuation = false;
+
+                // Traverse in reverse, so that the last page or continuation is the one reported as unexpected
+                for (int i = directives.size() - 1; i >= 0; i --) {
+                    SearchPredicateArgument predicate = directives.get(i);
+                    String text = predicate.getArgument().getValue();
+                    SearchOperator operator = predicate.getArgument().getOperator();
+                    boolean hasOther = others > directiveOthers[i];
+
+                    switch (directiveKinds[i]) {
+                        case DIRECTIVE_PAGE:
+                            if (operator != SearchOperator.UNSPECIFIED) {
+                                throw new IllegalArgumentException("Search page number has unexpected operator: " +
+                                        operator.getCharacter());
+                            } else if (hasPage) {
+                                throw new IllegalArgumentException("Search has multiple page numbers");
+                            } else if (hasOther) {
+                                throw new IllegalArgumentException("Unexpected page number: \"" + text + "\"");
+                            }
+
+                            builder.page(Integer.parseInt(text.substring(text.indexOf(':') + 1)));
+                            hasPage = true;
+                            break;
+                        case DIRECTIVE_CONTINUATION:
+                            // Continuations are appended to an existing query, so the implied operator is accepted
+                            if (operator != SearchOperator.UNSPECIFIED && operator != SearchOperator.getDefault()) {
+                                throw new IllegalArgumentException("Search continuation has unexpected operator: " +
+                                        operator.getCharacter());
+                            } else if (hasContinuation) {
+                                throw new IllegalArgumentException("Search has multiple continuations");
+                            } else if (hasOther) {
+                                throw new IllegalArgumentException("Unexpected continuation: \"" + text + "\"");
+                            }
+
+                            String continuation = text.substring(text.indexOf(':') + 1).trim();
+                            if (continuation.isEmpty())
+                                throw new IllegalArgumentException("Search continuation is empty");
+
+                            builder.continuation(continuation);
+                            hasContinuation = true;
+                            break;
+                        case DIRECTIVE_SORT:
+                            if (operator != SearchOperator.UNSPECIFIED) {
+                                throw new IllegalArgumentException("Search sort has unexpected operator: " +
+                                        operator.getCharacter());
+                            } else if (hasOther) {
+                                throw new IllegalArgumentException("Unexpected sort: \"" + text + "\"");
+                            }
+
+                            orders.add(parseOrder(text));
+                            break;
                     }
+                }
 
-                    String pageNumberString = text.split(":", 2)[1];
-                    builder.page(Integer.parseInt(pageNumberString));
-                    iterator.remove();
-
-                    hasPage = true;
-                } else if (text.startsWith("sort:")) {
-                    if (predicate.getArgument().getOperator() != SearchOperator.UNSPECIFIED) {
-                        throw new IllegalArgumentException("Search sort has unexpected operator: " +
-                                predicate.getArgument().getOperator().getCharacter());
-                    } else if (hasOther) {
-                        throw new IllegalArgumentException("Unexpected sort: \"" + text + "\"");
-                    }
+                if (hasPage && hasContinuation)
+                    throw new IllegalArgumentException("Search cannot have both a page number and a continuation");
 
-                    String[] parts = text.split("\\:", 3);
+                clause.getActions().removeAll(directives);
 
-                    String key = parts[1].trim();
-                    String orderString = parts.length >= 3 ? parts[2].trim() : null;
-                    SortOrder order;
+                // We traversed in reverse
+                Collections.reverse(orders);
+                orders.forEach(builder::order);
+            }
 
-                    if (orderString != null) {
-                        order = Arrays.stream(SortOrder.values())
-                                .filter(element -> Arrays.stream(element.getKeys())
-                                        .anyMatch(string -> string.equalsIgnoreCase(orderString)))
-                                .findFirst().orElseThrow(() ->
-                                        new IllegalArgumentException("Invalid search order key \"" + key + "\""));
-                    } else {
-                        order = SortOrder.DEFAULT;
-                    }
+            private static Order parseOrder(String text) {
+                int keyStart = text.indexOf(':') + 1;
+                int keyEnd = text.indexOf(':', keyStart);
 
-                    orders.add(new DefaultOrder(key, order));
-                    iterator.remove();
+                String key = (keyEnd < 0 ? text.substring(keyStart) : text.substring(keyStart, keyEnd)).trim();
+                String orderString = keyEnd < 0 ? null : text.substring(keyEnd + 1).trim();
+                SortOrder order;
 
-                    hasSort = true;
+                if (orderString != null) {
+                    order = Arrays.stream(SortOrder.values())
+                            .filter(element -> Arrays.stream(element.getKeys())
+                                    .anyMatch(string -> string.equalsIgnoreCase(orderString)))
+                            .findFirst().orElseThrow(() ->
+                                    new IllegalArgumentException("Invalid search order key \"" + key + "\""));
                 } else {
-                    hasOther = true;
+                    order = SortOrder.DEFAULT;
                 }
-            } else {
-                hasOther = true;
+
+                return new DefaultOrder(key, order);
             }
         }
+    }
 
-        // We traversed in reverse
-        Collections.reverse(orders);
-        orders.forEach(builder::order);
+    /**
+     * Lexically parses a <i>queryString</i> and forms a machine-readable clause structure from the input.
+     *
+     * @param queryString query string to parse.
+     * @return Search object, encapsulating the Clause structure.
+     * @throws IllegalArgumentException if there was a problem interpreting the given query string.
+     */
+    public static Search parse(String queryString) throws IllegalArgumentException {
+        return parse((CharSequence) queryString);
+    }
 
-        // Build Search object
-        return builder.build();
+    /**
+     * Lexically parses a query and forms a machine-readable clause structure from the input, in a single pass over
+     * the query.
+     *
+     * @param query query to parse.
+     * @return Search object, encapsulating the Clause structure.
+     * @throws IllegalArgumentException if there was a problem interpreting the given query.
+     */
+    public static Search parse(CharSequence query) throws IllegalArgumentException {
+        return new Lexer(query).parse();
     }
-}
\ No newline at end of file
+}
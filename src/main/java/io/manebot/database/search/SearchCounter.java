@@ -0,0 +1,256 @@
+package io.manebot.database.search;
+
+import io.manebot.cache.BoundedCache;
+import io.manebot.cache.Cache;
+import io.manebot.database.Database;
+import io.manebot.database.EntityWrites;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Finds the total result count of a search page following a <b>CountStrategy</b>, for search handler
+ * implementations.
+ *
+ * Handlers read one row more than the page size, and pass the number of rows read to <b>count</b>.  If the extra row
+ * is missing, the page is the last one and its total is known without counting; otherwise the strategy decides
+ * whether to count, reuse a count, estimate or only report that more rows follow.  Pages continued from a keyset do not
+ * know how many rows came before them, so their totals are always found by the strategy.
+ *
+ * @param <T> search entity type.
+ */
+public final class SearchCounter<T> {
+    public static final long DEFAULT_TTL_SECONDS = 60L;
+    public static final long DEFAULT_MAXIMUM_SIZE = 1024L;
+
+    /**
+     * Width of the ID window counted for an estimate.
+     */
+    public static final long ESTIMATE_WINDOW = 10000L;
+
+    private final Class<T> entityClass;
+    private final String idAttribute;
+    private final CountStrategy strategy;
+    private final EntityWrites writes;
+    private final Cache<List<Object>, Entry> cache;
+
+    /**
+     * Creates a counter.
+     * @param database database holding the entity.
+     * @param entityClass entity class.
+     * @param idAttribute name of the entity's identifier attribute, which must be numeric for estimates.
+     * @param strategy count strategy.
+     * @param timeToLive time a cached or estimated count is reused for.
+     * @param unit unit of <i>timeToLive</i>.
+     */
+    public SearchCounter(Database database,
+                         Class<T> entityClass,
+                         String idAttribute,
+                         CountStrategy strategy,
+                         long timeToLive,
+                         TimeUnit unit) {
+        this.entityClass = entityClass;
+        this.idAttribute = idAttribute;
+        this.strategy = strategy;
+        this.writes = EntityWrites.of(database);
+        this.cache = new BoundedCache.Builder()
+                .setMaximumSize(DEFAULT_MAXIMUM_SIZE)
+                .setExpireAfterWrite(timeToLive, unit)
+                .build("manebot:searchCounts:" + database.getName() + ":" + entityClass.getName());
+    }
+
+    public CountStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Gets the number of rows a handler should read for a page, which is one more than the page size.
+     * @param pageSize page size.
+     * @return rows to read.
+     */
+    public static int getFetchSize(int pageSize) {
+        return pageSize + 1;
+    }
+
+    /**
+     * Finds the total result count of a search page.
+     * @param session session to query.
+     * @param shape shape of the search, identifying its cached count.
+     * @param filter function creating the search's WHERE predicate, or returning null if every row matches.
+     * @param offset number of rows before the page, which is ignored if the search continues from a keyset (see
+     *               <b>SearchShape.getFilter</b>).
+     * @param pageSize page size.
+     * @param read number of rows read for the page, up to <i>getFetchSize(pageSize)</i>.
+     * @return count of the search.
+     */
+    public Count count(EntityManager session,
+                       SearchShape shape,
+                       BiFunction<Root<T>, CriteriaBuilder, Predicate> filter,
+                       long offset,
+                       int pageSize,
+                       int read) {
+        boolean more = read > pageSize;
+
+        // Rows before a continued page are not known
+        boolean continued = shape.getFilter() != shape;
+        if (continued) offset = 0L;
+
+        long seen = offset + Math.min(read, pageSize);
+
+        // The last page, unless it is past the end; its total is known without counting
+        if (!continued && !more && (read > 0 || offset == 0))
+            return new Count(seen, CountStrategy.EXACT, false);
+
+        switch (strategy) {
+            case HAS_MORE:
+                return new Count(seen, CountStrategy.HAS_MORE, more);
+            case CACHED:
+            case ESTIMATED:
+                long total = getCached(session, shape, filter);
+                // Rows read for this page are a floor for a stale or estimated count
+                total = Math.max(total, seen + (more ? 1 : 0));
+                return new Count(total, strategy, more || !continued && offset + pageSize < total);
+            default:
+                long exact = countExact(session, filter, null, null);
+                return new Count(exact, CountStrategy.EXACT, continued ? more : offset + pageSize < exact);
+        }
+    }
+
+    private long getCached(EntityManager session,
+                           SearchShape shape,
+                           BiFunction<Root<T>, CriteriaBuilder, Predicate> filter) {
+        // Counts cover the whole result, so every continuation of a search shares one
+        SearchShape filterShape = shape.getFilter();
+        List<Object> key = Arrays.asList(filterShape.getKey(), filterShape.getParameters());
+
+        // Read before counting, so that a write made while the count runs leaves the entry stale
+        long version = writes.getVersion(entityClass);
+
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.version == version) return entry.total;
+
+        long total = strategy == CountStrategy.ESTIMATED ?
+                estimate(session, filter) :
+                countExact(session, filter, null, null);
+
+        cache.put(key, new Entry(version, total));
+        return total;
+    }
+
+    private long estimate(EntityManager session, BiFunction<Root<T>, CriteriaBuilder, Predicate> filter) {
+        CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+        Path<Number> id = getId(root);
+
+        // Unfiltered bounds are answered from the primary key index
+        query.multiselect(criteriaBuilder.min(id), criteriaBuilder.max(id));
+        Tuple bounds = session.createQuery(query).getSingleResult();
+        if (bounds.get(0) == null) return 0L;
+
+        long minimum = ((Number) bounds.get(0)).longValue();
+        long maximum = ((Number) bounds.get(1)).longValue();
+        long range = maximum - minimum + 1L;
+
+        if (range <= ESTIMATE_WINDOW) return countExact(session, filter, null, null);
+
+        long start = minimum + ThreadLocalRandom.current().nextLong(range - ESTIMATE_WINDOW + 1L);
+        long counted = countExact(session, filter, start, start + ESTIMATE_WINDOW - 1L);
+
+        return Math.round((double) counted * ((double) range / (double) ESTIMATE_WINDOW));
+    }
+
+    private long countExact(EntityManager session,
+                            BiFunction<Root<T>, CriteriaBuilder, Predicate> filter,
+                            Long from,
+                            Long to) {
+        CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<T> root = query.from(entityClass);
+
+        List<Predicate> predicates = new ArrayList<>(2);
+        Predicate predicate = filter.apply(root, criteriaBuilder);
+        if (predicate != null) predicates.add(predicate);
+
+        if (from != null) {
+            Path<Number> id = getId(root);
+            predicates.add(criteriaBuilder.ge(id, from));
+            predicates.add(criteriaBuilder.le(id, to));
+        }
+
+        query.select(criteriaBuilder.count(root)).where(predicates.toArray(new Predicate[0]));
+        return session.createQuery(query).getSingleResult();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Path<Number> getId(Root<T> root) {
+        Path<?> id = root.get(idAttribute);
+        Class<?> type = id.getJavaType();
+
+        if (!Number.class.isAssignableFrom(type) && type != int.class && type != long.class && type != short.class)
+            throw new IllegalArgumentException("Estimated counts require a numeric ID, but " +
+                    entityClass.getName() + "." + idAttribute + " is " + type.getName());
+
+        return (Path<Number>) id;
+    }
+
+    /**
+     * The total result count of a search page.
+     */
+    public static final class Count {
+        private final long total;
+        private final CountStrategy strategy;
+        private final boolean more;
+
+        private Count(long total, CountStrategy strategy, boolean more) {
+            this.total = total;
+            this.strategy = strategy;
+            this.more = more;
+        }
+
+        /**
+         * Gets the total result count, as described by <b>SearchResult.getTotalResults()</b>.
+         * @return total result count.
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * Gets the way the total was found, which is <b>EXACT</b> whenever the total was known without counting.
+         * @return count strategy.
+         */
+        public CountStrategy getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * Finds if more results follow the page.
+         * @return true if there are further pages.
+         */
+        public boolean hasMore() {
+            return more;
+        }
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final long total;
+
+        private Entry(long version, long total) {
+            this.version = version;
+            this.total = total;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package io.manebot.database.search;
+
+import javax.persistence.EntityManager;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the rows of a query as they are fetched, instead of loading them all into a list.
+ *
+ * A cursor holds its own read-only session and transaction, separate from any unit of work, and fetches rows from the
+ * server in batches of its fetch size.  The session is cleared each time the cursor advances, so only the row last returned by
+ * <b>next()</b> is attached: its lazy associations can be read while it is processed, and memory stays flat however
+ * many rows are read.  Rows must not be kept and used after the cursor has moved past them, other than as detached
+ * entities.
+ *
+ * Cursors hold a connection until they are closed, so they must always be closed, typically with
+ * try-with-resources.  A cursor may be handed between the threads of a virtual process, but not used by two at once.
+ * If the thread using a cursor is interrupted, such as when its virtual process is interrupted or killed, the cursor
+ * closes itself and throws a <b>CancellationException</b>.
+ *
+ * @param <T> row type.
+ */
+public final class SearchCursor<T> implements Iterator<T>, AutoCloseable {
+    public static final int DEFAULT_FETCH_SIZE = 256;
+
+    private final EntityManager session;
+    private final Stream<T> results;
+    private final Iterator<T> iterator;
+    private final int fetchSize;
+
+    private long position = 0L;
+    private boolean closed = false;
+
+    /**
+     * Creates a cursor.  The cursor takes ownership of the session, and rolls back its transaction, if any, and closes it
+     * when the cursor is closed.
+     * @param session session the results are read in.
+     * @param results lazily fetched query results, such as from <b>TypedQuery.getResultStream()</b>.
+     * @param fetchSize number of rows fetched from the server at a time.
+     */
+    public SearchCursor(EntityManager session, Stream<T> results, int fetchSize) {
+        this.session = session;
+        this.results = results;
+        this.iterator = results.iterator();
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Gets the number of rows fetched from the server at a time.
+     * @return fetch size.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Gets the number of rows returned by this cursor so far.
+     * @return row count.
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    /**
+     * Finds if this cursor has been closed.
+     * @return true if the cursor is closed, false otherwise.
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            close();
+            throw new CancellationException("Cursor was interrupted");
+        }
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        if (closed) return false;
+        checkInterrupted();
+
+        try {
+            return iterator.hasNext();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized T next() {
+        if (closed) throw new NoSuchElementException("cursor closed");
+        checkInterrupted();
+
+        try {
+            // Detach everything loaded for the previous row
+            if (position > 0) session.clear();
+
+            T row = iterator.next();
+            position ++;
+            return row;
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the remaining rows of this cursor as a sequential stream, which closes the cursor when it is closed.
+     * @return Stream instance.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+                false
+        ).onClose(this::close);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+
+        try {
+            results.close();
+        } finally {
+            try {
+                // Nothing is written through a cursor, so its transaction is only ended
+                if (session.getTransaction().isActive()) session.getTransaction().rollback();
+            } finally {
+                session.close();
+            }
+        }
+    }
+}
@@ -12,6 +12,7 @@ import javax.persistence.criteria.Root;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -72,8 +73,25 @@ public interface SearchHandler<T> {
      */
     SearchArgumentHandler getStringHandler();
 
+    /**
+     * Gets the limits on the cost of searches executed by this handler.  Searches are checked against the limits when
+     * their shape is found (see <b>SearchShape.of</b>), before any SQL is generated, and the query timeout is applied
+     * to the queries the handler executes with <b>SearchLimits.apply</b>.
+     * @return SearchLimits instance.
+     */
+    default SearchLimits getLimits() {
+        return SearchLimits.DEFAULT;
+    }
+
     /**
      * Executes a search on a specific search object.
+     *
+     * If the search has a continuation (see <b>Search.withContinuation</b>), the page is found by seeking past the
+     * sort keys held by the continuation, using <b>SearchKeyset</b>, rather than by page offset.
+     * If the search is unsatisfiable (see <b>SearchOptimizer</b>), an empty result is returned without a query.
+     * If the handler was built with <b>Builder.cache</b>, results are served from its <b>SearchResultCache</b>.
+     * If the search exceeds the handler's <b>SearchLimits</b>, it is rejected before any query is executed.
+     *
      * @param search Search object to parse, containing predicates to filter down the specified entity list.
      * @param maxResults Maximum page result count
      * @return Immutable list of entities found by the search.
@@ -83,10 +101,44 @@ public interface SearchHandler<T> {
     SearchResult<T> search(Search search, int maxResults) throws SQLException, IllegalArgumentException;
 
     /**
-     * Executes a search and returns one random row.
+     * Executes a search and reads its results through a cursor, which fetches rows as they are read instead of
+     * loading a page of them (see <b>Database.openCursor</b>).  Every row matching the search is returned, in the
+     * search's order; its page is ignored.
+     *
+     * Handlers which do not support cursors throw an <b>UnsupportedOperationException</b>, which is the default;
+     * callers may fall back to paging through <b>search</b>.
+     *
+     * @param search Search object to parse, containing predicates to filter down the specified entity list.
+     * @param fetchSize number of rows to fetch from the server at a time.
+     * @return SearchCursor instance, which must be closed.
+     * @throws SQLException if there was a SQL exception executing a completed or incomplete search.
+     * @throws IllegalArgumentException if the arguments provided by the <i>search</i> argument were invalid.
+     * @throws UnsupportedOperationException if the handler cannot read its results through a cursor.
+     */
+    default SearchCursor<T> stream(Search search, int fetchSize)
+            throws SQLException, IllegalArgumentException, UnsupportedOperationException {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support cursors");
+    }
+
+    /**
+     * Executes a search and reads its results through a cursor, fetching <b>SearchCursor.DEFAULT_FETCH_SIZE</b> rows
+     * at a time.
+     *
+     * @param search Search object to parse, containing predicates to filter down the specified entity list.
+     * @return SearchCursor instance, which must be closed.
+     * @throws SQLException if there was a SQL exception executing a completed or incomplete search.
+     * @throws IllegalArgumentException if the arguments provided by the <i>search</i> argument were invalid.
+     */
+    default SearchCursor<T> stream(Search search) throws SQLException, IllegalArgumentException {
+        return stream(search, SearchCursor.DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Executes a search and returns distinct random rows, picked by a <b>SearchSampler</b> so that large tables are
+     * neither counted nor sorted randomly on every call.
      * @param search Search object to parse, containing predicates to filter down the specified entity list.
      * @param maxResults Maximum page result count
-     * @return Random singleton from the search
+     * @return up to <i>maxResults</i> distinct random rows from the search
      * @throws SQLException if there was a SQL exception executing a completed or incomplete search.
      * @throws IllegalArgumentException if the arguments provided by the <i>search</i> argument were invalid.
      */
@@ -181,6 +233,75 @@ public interface SearchHandler<T> {
             return defaultSort(key, SortOrder.ASCENDING);
         }
 
+        /**
+         * Caches the results of searches run by the search handler (see <b>SearchResultCache</b>).  Caching is off
+         * unless this is called, and suits handlers over rows which are read far more often than they are written.
+         * @param timeToLive time each result is served for, at most.
+         * @param unit unit of <i>timeToLive</i>.
+         * @return Builder instance.
+         */
+        default Builder<T> cache(long timeToLive, TimeUnit unit) {
+            return cache(timeToLive, unit, new Class<?>[0]);
+        }
+
+        /**
+         * Caches the results of searches run by the search handler, which also depend on rows of other entity classes
+         * (i.e. searches joining or filtering on them).  Cached results go stale when any of these classes, or the
+         * handler's own, are written.
+         *
+         * Caching does not change the results of searches, so builders which do not support it ignore this call by
+         * default, and build handlers which run every search.
+         *
+         * @param timeToLive time each result is served for, at most.
+         * @param unit unit of <i>timeToLive</i>.
+         * @param dependencies entity classes other than the handler's own whose writes change its results.
+         * @return Builder instance.
+         */
+        default Builder<T> cache(long timeToLive, TimeUnit unit, Class<?>... dependencies) {
+            return this;
+        }
+
+        /**
+         * Sets how the search handler finds the total result count of each page (see <b>SearchCounter</b>).  Counts
+         * are exact unless this is called.
+         *
+         * Builders which only count exactly throw an <b>UnsupportedOperationException</b> for any other strategy,
+         * which is the default.
+         *
+         * @param strategy count strategy.
+         * @param timeToLive time a cached or estimated count is reused for.
+         * @param unit unit of <i>timeToLive</i>.
+         * @return Builder instance.
+         * @throws UnsupportedOperationException if the builder does not support the strategy.
+         */
+        default Builder<T> count(CountStrategy strategy, long timeToLive, TimeUnit unit)
+                throws UnsupportedOperationException {
+            if (strategy == CountStrategy.EXACT) return this;
+            throw new UnsupportedOperationException(getClass().getName() + " does not support " + strategy + " counts");
+        }
+
+        /**
+         * Sets how the search handler finds the total result count of each page, reusing cached or estimated counts
+         * for <b>SearchCounter.DEFAULT_TTL_SECONDS</b>.
+         * @param strategy count strategy.
+         * @return Builder instance.
+         */
+        default Builder<T> count(CountStrategy strategy) {
+            return count(strategy, SearchCounter.DEFAULT_TTL_SECONDS, TimeUnit.SECONDS);
+        }
+
+        /**
+         * Sets the limits on the cost of searches executed by the search handler, which otherwise uses
+         * <b>SearchLimits.DEFAULT</b>.
+         * @param limits search limits.
+         * @return Builder instance.
+         * @throws UnsupportedOperationException if the builder cannot apply limits other than the defaults.
+         */
+        default Builder<T> limits(SearchLimits limits) throws UnsupportedOperationException {
+            if (limits == SearchLimits.DEFAULT) return this;
+            throw new UnsupportedOperationException(getClass().getName() + " does not support search limits");
+        }
+
         /**
          * Builds the search handler, capable of executing searches with the pre-formatted parameters.
          * @return SearchHandler instance.
@@ -214,6 +335,15 @@ public interface SearchHandler<T> {
          */
         CriteriaBuilder getCriteriaBuilder();
 
+        /**
+         * Gets the parameters to use in place of argument values, when the query is being compiled for reuse by
+         * other searches of the same shape.
+         * @return search parameters, or null if argument values should be used directly.
+         */
+        default SearchParameters getParameters() {
+            return null;
+        }
+
         /**
          * Adds a predicate to the query.
          * @param operator operator used for this expression.
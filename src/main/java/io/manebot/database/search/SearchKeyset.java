@@ -0,0 +1,357 @@
+package io.manebot.database.search;
+
+import com.google.common.primitives.Primitives;
+import io.manebot.database.search.handler.SearchOrderHandler;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.io.*;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Keyset (seek) pagination over the sort keys of a search.
+ *
+ * Instead of skipping <i>(page - 1) * pageSize</i> rows, a keyset query filters on the sort keys of the last row of
+ * the previous page and reads the next page from there, which an index on the sort keys answers without scanning the
+ * skipped rows.  The last key is a unique tiebreaker (usually the entity ID) so that rows with equal sort values are
+ * neither repeated nor skipped between pages.
+ *
+ * The key values of the last row are carried between requests as an opaque continuation token.  Search handlers
+ * should select the key expressions with <b>getExpressions()</b> alongside the entity, fetch one row more than the page
+ * size to learn whether another page exists, and encode the keys of the last returned row with <b>encode()</b>.
+ */
+public final class SearchKeyset {
+    private static final int VERSION = 1;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_BOOLEAN = 1;
+    private static final int TYPE_INTEGER = 2;
+    private static final int TYPE_LONG = 3;
+    private static final int TYPE_DOUBLE = 4;
+    private static final int TYPE_FLOAT = 5;
+    private static final int TYPE_STRING = 6;
+    private static final int TYPE_DATE = 7;
+    private static final int TYPE_SHORT = 8;
+    private static final int TYPE_BYTE = 9;
+    private static final int TYPE_CHARACTER = 10;
+
+    private final List<Expression<?>> expressions;
+    private final List<SortOrder> orders;
+
+    public SearchKeyset(List<Expression<?>> expressions, List<SortOrder> orders) {
+        if (expressions.size() != orders.size())
+            throw new IllegalArgumentException("keyset expressions and orders differ in size");
+
+        if (expressions.isEmpty())
+            throw new IllegalArgumentException("keyset has no keys");
+
+        this.expressions = Collections.unmodifiableList(new ArrayList<>(expressions));
+        this.orders = Collections.unmodifiableList(new ArrayList<>(orders));
+    }
+
+    /**
+     * Creates a keyset from the orders of a search.
+     * @param search search being executed.
+     * @param root query root.
+     * @param criteriaBuilder criteria builder.
+     * @param orderHandlers function finding the order handler bound to a sort key.
+     * @param tiebreaker unique expression, such as the entity ID, ordering rows with equal sort values.
+     * @return SearchKeyset instance.
+     * @throws IllegalArgumentException if a sort key is unknown or its handler cannot be used for keyset pagination.
+     */
+    public static SearchKeyset of(Search search,
+                                  Root root,
+                                  CriteriaBuilder criteriaBuilder,
+                                  Function<String, SearchOrderHandler> orderHandlers,
+                                  Expression<?> tiebreaker) throws IllegalArgumentException {
+        List<Expression<?>> expressions = new ArrayList<>();
+        List<SortOrder> orders = new ArrayList<>();
+
+        for (Search.Order order : search.getOrders()) {
+            SearchOrderHandler handler = orderHandlers.apply(order.getKey());
+            if (handler == null)
+                throw new IllegalArgumentException("Unknown sort key \"" + order.getKey() + "\"");
+
+            Expression<?> expression = handler.getExpression(root, criteriaBuilder);
+            if (expression == null)
+                throw new IllegalArgumentException("Sort \"" + order.getKey() + "\" cannot be continued");
+
+            expressions.add(expression);
+            orders.add(order.getOrder());
+        }
+
+        // The tiebreaker follows the direction of the last sort key, so a single composite index can serve both
+        expressions.add(tiebreaker);
+        orders.add(orders.isEmpty() ? SortOrder.DEFAULT : orders.get(orders.size() - 1));
+
+        return new SearchKeyset(expressions, orders);
+    }
+
+    /**
+     * Gets the key expressions, in sort order.  These should be selected alongside the entity so that the keys of the
+     * last row can be encoded.
+     * @return key expressions.
+     */
+    public List<Expression<?>> getExpressions() {
+        return expressions;
+    }
+
+    /**
+     * Gets the sort order of each key.
+     * @return key sort orders.
+     */
+    public List<SortOrder> getSortOrders() {
+        return orders;
+    }
+
+    /**
+     * Creates the ORDER BY clause for this keyset.
+     * @param criteriaBuilder criteria builder.
+     * @return list of orders.
+     */
+    public List<Order> getOrders(CriteriaBuilder criteriaBuilder) {
+        List<Order> list = new ArrayList<>(expressions.size());
+
+        for (int i = 0; i < expressions.size(); i ++) {
+            Expression<?> expression = expressions.get(i);
+            list.add(orders.get(i) == SortOrder.DESCENDING ?
+                    criteriaBuilder.desc(expression) :
+                    criteriaBuilder.asc(expression));
+        }
+
+        return list;
+    }
+
+    /**
+     * Creates a predicate matching the rows which sort after the given key values.
+     *
+     * For keys <i>(a, b, c)</i> this is <i>a &gt; :a OR (a = :a AND b &gt; :b) OR (a = :a AND b = :b AND c &gt; :c)</i>,
+     * with <i>&lt;</i> in place of <i>&gt;</i> for descending keys.
+     *
+     * @param criteriaBuilder criteria builder.
+     * @param continuation continuation token.
+     * @return seek predicate.
+     * @throws IllegalArgumentException if the continuation token is invalid or does not match this keyset, including a
+     *                                  key value whose type differs from that of its expression.
+     */
+    public Predicate seek(CriteriaBuilder criteriaBuilder, String continuation) throws IllegalArgumentException {
+        List<Object> values = decode(continuation);
+
+        if (values.size() != expressions.size())
+            throw new IllegalArgumentException("Continuation does not match the sort of this search");
+
+        List<Expression<?>> literals = new ArrayList<>(values.size());
+
+        for (int i = 0; i < values.size(); i ++) {
+            Object value = values.get(i);
+            if (value == null)
+                throw new IllegalArgumentException("Continuation cannot seek past a null sort key");
+
+            if (!(value instanceof Comparable))
+                throw new IllegalArgumentException("Continuation has a key which cannot be compared");
+
+            checkType(expressions.get(i), value.getClass());
+        }
+
+        for (Object value : values) literals.add(criteriaBuilder.literal(value));
+
+        return seek(criteriaBuilder, literals);
+    }
+
+    /**
+     * Creates a predicate matching the rows which sort after the key values bound to the next parameters, for a query
+     * compiled by <b>SearchQueryCache</b>.
+     * @param criteriaBuilder criteria builder.
+     * @param parameters search parameters, positioned at the keys of the continuation.
+     * @return seek predicate.
+     * @throws IllegalArgumentException if a key value has a type which differs from that of its expression.
+     */
+    public Predicate seek(CriteriaBuilder criteriaBuilder, SearchParameters parameters)
+            throws IllegalArgumentException {
+        List<Expression<?>> values = new ArrayList<>(expressions.size());
+
+        for (int i = 0; i < expressions.size(); i ++) {
+            Expression<?> value = parameters.next();
+            checkType(expressions.get(i), value.getJavaType());
+            values.add(value);
+        }
+
+        return seek(criteriaBuilder, values);
+    }
+
+    /**
+     * Checks that a key value can be compared with its expression.  Continuation tokens come from users, so a value
+     * must not reach the query as a different type than the one its key sorts on.
+     * @param expression key expression.
+     * @param valueType type of the key value.
+     * @throws IllegalArgumentException if the types differ.
+     */
+    private static void checkType(Expression<?> expression, Class<?> valueType) throws IllegalArgumentException {
+        Class<?> type = expression.getJavaType();
+        if (type != null && valueType != null && !Primitives.wrap(type).isAssignableFrom(Primitives.wrap(valueType)))
+            throw new IllegalArgumentException("Continuation does not match the sort of this search");
+    }
+
+    private Predicate seek(CriteriaBuilder criteriaBuilder, List<Expression<?>> values) {
+        List<Predicate> alternatives = new ArrayList<>(expressions.size());
+        List<Predicate> equalities = new ArrayList<>(expressions.size());
+
+        for (int i = 0; i < expressions.size(); i ++) {
+            List<Predicate> alternative = new ArrayList<>(equalities);
+            alternative.add(compare(criteriaBuilder, expressions.get(i), orders.get(i), values.get(i)));
+            alternatives.add(criteriaBuilder.and(alternative.toArray(new Predicate[0])));
+
+            equalities.add(criteriaBuilder.equal(expressions.get(i), values.get(i)));
+        }
+
+        return criteriaBuilder.or(alternatives.toArray(new Predicate[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate compare(CriteriaBuilder criteriaBuilder,
+                                     Expression expression,
+                                     SortOrder order,
+                                     Expression value) {
+        if (order == SortOrder.DESCENDING)
+            return criteriaBuilder.lessThan(expression, value);
+        else
+            return criteriaBuilder.greaterThan(expression, value);
+    }
+
+    /**
+     * Encodes the key values of a row as a continuation token.
+     * @param values key values, in the order of <b>getExpressions()</b>.
+     * @return URL-safe continuation token.
+     * @throws IllegalArgumentException if a value has a type which cannot be encoded.
+     */
+    public static String encode(List<?> values) throws IllegalArgumentException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeShort(values.size());
+
+            for (Object value : values) {
+                if (value == null) {
+                    out.writeByte(TYPE_NULL);
+                } else if (value instanceof Boolean) {
+                    out.writeByte(TYPE_BOOLEAN);
+                    out.writeBoolean((Boolean) value);
+                } else if (value instanceof Integer) {
+                    out.writeByte(TYPE_INTEGER);
+                    out.writeInt((Integer) value);
+                } else if (value instanceof Long) {
+                    out.writeByte(TYPE_LONG);
+                    out.writeLong((Long) value);
+                } else if (value instanceof Double) {
+                    out.writeByte(TYPE_DOUBLE);
+                    out.writeDouble((Double) value);
+                } else if (value instanceof Float) {
+                    out.writeByte(TYPE_FLOAT);
+                    out.writeFloat((Float) value);
+                } else if (value instanceof String) {
+                    out.writeByte(TYPE_STRING);
+                    out.writeUTF((String) value);
+                } else if (value instanceof Date) {
+                    out.writeByte(TYPE_DATE);
+                    out.writeLong(((Date) value).getTime());
+                } else if (value instanceof Short) {
+                    out.writeByte(TYPE_SHORT);
+                    out.writeShort((Short) value);
+                } else if (value instanceof Byte) {
+                    out.writeByte(TYPE_BYTE);
+                    out.writeByte((Byte) value);
+                } else if (value instanceof Character) {
+                    out.writeByte(TYPE_CHARACTER);
+                    out.writeChar((Character) value);
+                } else {
+                    throw new IllegalArgumentException(
+                            "Cannot continue from sort key of type " + value.getClass().getName()
+                    );
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes the key values held by a continuation token.
+     * @param continuation continuation token.
+     * @return key values.
+     * @throws IllegalArgumentException if the continuation token is invalid.
+     */
+    public static List<Object> decode(String continuation) throws IllegalArgumentException {
+        byte[] bytes;
+
+        try {
+            bytes = Base64.getUrlDecoder().decode(continuation);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation", e);
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int version = in.readUnsignedByte();
+            if (version != VERSION)
+                throw new IllegalArgumentException("Unsupported continuation version: " + version);
+
+            int size = in.readUnsignedShort();
+            List<Object> values = new ArrayList<>(size);
+
+            for (int i = 0; i < size; i ++) {
+                int type = in.readUnsignedByte();
+
+                switch (type) {
+                    case TYPE_NULL:
+                        values.add(null);
+                        break;
+                    case TYPE_BOOLEAN:
+                        values.add(in.readBoolean());
+                        break;
+                    case TYPE_INTEGER:
+                        values.add(in.readInt());
+                        break;
+                    case TYPE_LONG:
+                        values.add(in.readLong());
+                        break;
+                    case TYPE_DOUBLE:
+                        values.add(in.readDouble());
+                        break;
+                    case TYPE_FLOAT:
+                        values.add(in.readFloat());
+                        break;
+                    case TYPE_STRING:
+                        values.add(in.readUTF());
+                        break;
+                    case TYPE_DATE:
+                        values.add(new Date(in.readLong()));
+                        break;
+                    case TYPE_SHORT:
+                        values.add(in.readShort());
+                        break;
+                    case TYPE_BYTE:
+                        values.add(in.readByte());
+                        break;
+                    case TYPE_CHARACTER:
+                        values.add(in.readChar());
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid continuation key type: " + type);
+                }
+            }
+
+            if (in.available() > 0)
+                throw new IllegalArgumentException("Invalid continuation: trailing data");
+
+            return values;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid continuation", e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package io.manebot.database.search;
+
+import javax.persistence.Query;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits on the cost of the queries a search may generate, so that one user's search cannot degrade the database
+ * shared by everyone else.
+ *
+ * Searches are checked against their handler's limits (see <b>SearchHandler.getLimits</b>) before any SQL is
+ * generated, and rejected with an <b>IllegalArgumentException</b> describing the limit exceeded:
+ *
+ * 1.   Depth: how deeply clauses may be nested in parentheses.
+ * 2.   Predicates: how many arguments, commands and strings a search may hold in total.
+ * 3.   List size: how many values a handler may bind into a single <i>IN</i> list.  Handlers binding lists found
+ *      from the data, such as the IDs matched by a <b>SearchTextIndex</b>, are given the limits and keep within them
+ *      (see <b>SearchArgumentHandler.bind</b>); lists taken from the search itself are rejected.
+ *
+ * The query timeout is applied to the queries themselves with <b>apply</b>, and is enforced by the database.
+ */
+public final class SearchLimits {
+    public static final int DEFAULT_MAXIMUM_DEPTH = 8;
+    public static final int DEFAULT_MAXIMUM_PREDICATES = 64;
+    public static final int DEFAULT_MAXIMUM_LIST_SIZE = 1000;
+    public static final long DEFAULT_QUERY_TIMEOUT_MILLISECONDS = 10000L;
+
+    /**
+     * Persistence hint setting the query timeout, in milliseconds.
+     */
+    public static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    public static final SearchLimits DEFAULT = new Builder().build();
+
+    private final int maximumDepth;
+    private final int maximumPredicates;
+    private final int maximumListSize;
+    private final long queryTimeout;
+
+    private SearchLimits(int maximumDepth, int maximumPredicates, int maximumListSize, long queryTimeout) {
+        this.maximumDepth = maximumDepth;
+        this.maximumPredicates = maximumPredicates;
+        this.maximumListSize = maximumListSize;
+        this.queryTimeout = queryTimeout;
+    }
+
+    public int getMaximumDepth() {
+        return maximumDepth;
+    }
+
+    public int getMaximumPredicates() {
+        return maximumPredicates;
+    }
+
+    public int getMaximumListSize() {
+        return maximumListSize;
+    }
+
+    /**
+     * Gets the query timeout.
+     * @return query timeout in milliseconds, or 0 if queries may run for as long as the database allows.
+     */
+    public long getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    /**
+     * Checks the clauses of a search against these limits.  Clauses are walked without recursion, so that arbitrarily
+     * deep searches are rejected rather than exhausting the stack.
+     * @param search search to check.
+     * @throws IllegalArgumentException if the search exceeds a limit.
+     */
+    public void check(Search search) throws IllegalArgumentException {
+        Deque<SearchPredicate> predicates = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        int count = 0;
+
+        List<SearchPredicate> actions = search.getLexicalClause().getActions();
+
+        // The lexer wraps the whole query in a clause of its own, which is not a level of parentheses
+        if (actions.size() == 1 && actions.get(0) instanceof Search.PushedLexicalClause &&
+                ((Search.PushedLexicalClause) actions.get(0)).getOperator() == SearchOperator.UNSPECIFIED)
+            actions = ((Search.PushedLexicalClause) actions.get(0)).getActions();
+
+        for (SearchPredicate action : actions) {
+            predicates.push(action);
+            depths.push(0);
+        }
+
+        while (!predicates.isEmpty()) {
+            SearchPredicate predicate = predicates.pop();
+            int depth = depths.pop();
+
+            if (predicate instanceof Search.PushedLexicalClause) {
+                if (depth + 1 > maximumDepth)
+                    throw new IllegalArgumentException(
+                            "Search is nested too deeply (at most " + maximumDepth + " levels of parentheses)."
+                    );
+
+                for (SearchPredicate action : ((Search.PushedLexicalClause) predicate).getActions()) {
+                    predicates.push(action);
+                    depths.push(depth + 1);
+                }
+            } else if (++count > maximumPredicates) {
+                throw new IllegalArgumentException(
+                        "Search has too many terms (at most " + maximumPredicates + ")."
+                );
+            }
+        }
+    }
+
+    /**
+     * Checks the size of a list of values bound into a single <i>IN</i> list.
+     * @param size list size.
+     * @throws IllegalArgumentException if the list is too large.
+     */
+    public void checkListSize(int size) throws IllegalArgumentException {
+        if (size > maximumListSize)
+            throw new IllegalArgumentException(
+                    "Search matches too many values (" + size + ", at most " + maximumListSize + "); " +
+                            "try a more specific search."
+            );
+    }
+
+    /**
+     * Applies the query timeout to a query.
+     * @param query query to limit.
+     * @param <Q> query type.
+     * @return the given query.
+     */
+    public <Q extends Query> Q apply(Q query) {
+        if (queryTimeout > 0) query.setHint(QUERY_TIMEOUT_HINT, (int) Math.min(queryTimeout, Integer.MAX_VALUE));
+        return query;
+    }
+
+    public static final class Builder {
+        private int maximumDepth = DEFAULT_MAXIMUM_DEPTH;
+        private int maximumPredicates = DEFAULT_MAXIMUM_PREDICATES;
+        private int maximumListSize = DEFAULT_MAXIMUM_LIST_SIZE;
+        private long queryTimeout = DEFAULT_QUERY_TIMEOUT_MILLISECONDS;
+
+        public Builder setMaximumDepth(int maximumDepth) {
+            if (maximumDepth < 0) throw new IllegalArgumentException("maximumDepth cannot be negative");
+            this.maximumDepth = maximumDepth;
+            return this;
+        }
+
+        public Builder setMaximumPredicates(int maximumPredicates) {
+            if (maximumPredicates <= 0) throw new IllegalArgumentException("maximumPredicates must be positive");
+            this.maximumPredicates = maximumPredicates;
+            return this;
+        }
+
+        public Builder setMaximumListSize(int maximumListSize) {
+            if (maximumListSize <= 0) throw new IllegalArgumentException("maximumListSize must be positive");
+            this.maximumListSize = maximumListSize;
+            return this;
+        }
+
+        /**
+         * Sets the query timeout.
+         * @param duration timeout, or 0 to leave queries unlimited.
+         * @param unit unit of <i>duration</i>.
+         * @return Builder instance.
+         */
+        public Builder setQueryTimeout(long duration, TimeUnit unit) {
+            if (duration < 0) throw new IllegalArgumentException("duration cannot be negative");
+            this.queryTimeout = unit.toMillis(duration);
+            return this;
+        }
+
+        public SearchLimits build() {
+            return new SearchLimits(maximumDepth, maximumPredicates, maximumListSize, queryTimeout);
+        }
+    }
+}
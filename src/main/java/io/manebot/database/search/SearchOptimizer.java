@@ -0,0 +1,291 @@
+package io.manebot.database.search;
+
+import java.util.*;
+
+/**
+ * Simplifies the clause structure of a parsed <b>Search</b> before it is translated into a query.
+ *
+ * A clause is evaluated left to right: its first predicate, then each following predicate combined with the result so
+ * far by its operator (INCLUDE as OR, MERGE as AND, EXCLUDE as AND NOT).  The optimizer rewrites clauses only in ways
+ * which keep that result:
+ *
+ * 1.   Clauses holding a single predicate are replaced by the predicate.
+ * 2.   Nested clauses are inlined into their parent where the operators allow it; i.e. <i>a ~(b ~c)</i> becomes
+ *      <i>a ~b ~c</i>, and <i>a -(b ~c)</i> becomes <i>a -b -c</i>.
+ * 3.   Repeated predicates are removed from runs of ORs and from the trailing run of ANDs and AND NOTs.
+ * 4.   Contradictions, where the trailing run of ANDs both requires and excludes the same predicate (<i>a +b -a</i>),
+ *      make the clause match nothing; this folds into the parent clause, and if the whole search can match nothing
+ *      it is marked unsatisfiable (see <b>Search.isUnsatisfiable()</b>), so that no query needs to be sent.  The
+ *      clauses of an unsatisfiable search are left as they were parsed, so that a handler which does not check the
+ *      flag still matches nothing.
+ *
+ * Predicates are compared by their text, so the optimizer assumes that argument handlers are deterministic.  Empty
+ * clauses, whose meaning is up to the search handler, are left as they are.
+ */
+public final class SearchOptimizer {
+    private SearchOptimizer() {
+
+    }
+
+    /**
+     * Optimizes a search.
+     * @param search search to optimize.
+     * @return optimized search, which may be the given search if it could not be optimized.
+     */
+    public static Search optimize(Search search) {
+        if (!(search.getLexicalClause() instanceof Search.PushedLexicalClause)) return search;
+        Search.PushedLexicalClause root = (Search.PushedLexicalClause) search.getLexicalClause();
+        if (!isSupported(root)) return search;
+
+        List<Term> terms = optimize(root);
+
+        // Handlers which do not check the flag still run the original clauses, which match nothing
+        if (terms == null) return search.withLexicalClause(root, true);
+
+        Search.Builder builder = new Search.Builder();
+        for (Term term : terms) builder.addPredicate(term.toPredicate(builder));
+
+        return search.withLexicalClause(builder, false);
+    }
+
+    private static boolean isSupported(SearchPredicate predicate) {
+        if (predicate instanceof Search.PushedLexicalClause) {
+            for (SearchPredicate action : ((Search.PushedLexicalClause) predicate).getActions())
+                if (!isSupported(action)) return false;
+
+            return true;
+        }
+
+        return predicate.getClass() == SearchPredicateArgument.class ||
+                predicate.getClass() == SearchPredicateString.class;
+    }
+
+    /**
+     * Optimizes the predicates of a clause.
+     * @param clause clause to optimize.
+     * @return optimized terms, the first of which has no operator, or null if the clause can never match.
+     */
+    private static List<Term> optimize(Search.PushedLexicalClause clause) {
+        List<Term> terms = new ArrayList<>(clause.getActions().size());
+
+        for (SearchPredicate action : clause.getActions()) {
+            if (action instanceof Search.PushedLexicalClause) {
+                Search.PushedLexicalClause child = (Search.PushedLexicalClause) action;
+                List<Term> children = optimize(child);
+
+                if (children == null)
+                    terms.add(Term.empty(child.getOperator()));
+                else if (children.size() == 1)
+                    terms.add(children.get(0).withOperator(child.getOperator()));
+                else
+                    terms.add(Term.clause(child.getOperator(), children));
+            } else {
+                terms.add(Term.leaf(action));
+            }
+        }
+
+        terms = foldEmpty(terms);
+        if (terms == null) return null;
+
+        terms = flatten(terms);
+
+        return removeRedundant(terms);
+    }
+
+    /**
+     * Folds away predicates which can never match.
+     */
+    private static List<Term> foldEmpty(List<Term> terms) {
+        List<Term> folded = new ArrayList<>(terms.size());
+        boolean empty = false;
+
+        for (Term term : terms) {
+            if (folded.isEmpty() && !empty) {
+                if (term.isEmpty()) empty = true;
+                else folded.add(term.withOperator(SearchOperator.UNSPECIFIED));
+                continue;
+            }
+
+            switch (term.operator) {
+                case MERGE:
+                    if (term.isEmpty()) {
+                        // Everything so far AND nothing
+                        folded.clear();
+                        empty = true;
+                    } else if (!empty) {
+                        folded.add(term);
+                    }
+                    break;
+                case EXCLUDE:
+                    if (!term.isEmpty() && !empty) folded.add(term);
+                    break;
+                default:
+                    if (term.isEmpty()) break;
+
+                    if (empty) {
+                        // Nothing OR this term
+                        empty = false;
+                        folded.add(term.withOperator(SearchOperator.UNSPECIFIED));
+                    } else {
+                        folded.add(term);
+                    }
+                    break;
+            }
+        }
+
+        return empty ? null : folded;
+    }
+
+    /**
+     * Inlines nested clauses where doing so does not change the result.
+     */
+    private static List<Term> flatten(List<Term> terms) {
+        List<Term> flattened = new ArrayList<>(terms.size());
+
+        for (int i = 0; i < terms.size(); i ++) {
+            Term term = terms.get(i);
+
+            if (!term.isClause() || term.children.isEmpty()) {
+                flattened.add(term);
+                continue;
+            }
+
+            SearchOperator inner = getOperator(term.children);
+
+            if (i == 0) {
+                // The result of the first clause is where this clause starts from
+                flattened.addAll(term.children);
+            } else if (term.operator == SearchOperator.INCLUDE && inner == SearchOperator.INCLUDE ||
+                    term.operator == SearchOperator.MERGE && inner == SearchOperator.MERGE) {
+                flattened.add(term.children.get(0).withOperator(term.operator));
+                flattened.addAll(term.children.subList(1, term.children.size()));
+            } else if (term.operator == SearchOperator.EXCLUDE && inner == SearchOperator.INCLUDE) {
+                // NOT (b OR c) = NOT b AND NOT c
+                for (Term child : term.children) flattened.add(child.withOperator(SearchOperator.EXCLUDE));
+            } else {
+                flattened.add(term);
+            }
+        }
+
+        return flattened;
+    }
+
+    /**
+     * Gets the operator shared by every term after the first.
+     * @return shared operator, or null if the terms mix operators.
+     */
+    private static SearchOperator getOperator(List<Term> terms) {
+        SearchOperator operator = null;
+
+        for (Term term : terms.subList(1, terms.size())) {
+            if (operator == null) operator = term.operator;
+            else if (operator != term.operator) return null;
+        }
+
+        return operator;
+    }
+
+    /**
+     * Removes repeated predicates, and finds contradictions.
+     * @return remaining terms, or null if the terms contradict each other.
+     */
+    private static List<Term> removeRedundant(List<Term> terms) {
+        List<Term> remaining = new ArrayList<>(terms.size());
+
+        // Leading run of ORs
+        Set<String> included = new HashSet<>();
+        int i = 0;
+        for (; i < terms.size(); i ++) {
+            Term term = terms.get(i);
+            if (i > 0 && term.operator != SearchOperator.INCLUDE) break;
+            if (included.add(term.key)) remaining.add(term);
+        }
+
+        // Everything after the last OR is ANDed onto the result so far
+        int lastInclude = -1;
+        for (int j = i; j < terms.size(); j ++)
+            if (terms.get(j).operator == SearchOperator.INCLUDE) lastInclude = j;
+
+        for (int j = i; j <= lastInclude; j ++) remaining.add(terms.get(j));
+
+        Set<String> merged = new HashSet<>();
+        Set<String> excluded = new HashSet<>();
+
+        // With no ORs at all, the first predicate is part of the AND run
+        if (lastInclude < 0 && remaining.size() == 1) merged.add(remaining.get(0).key);
+
+        for (int j = Math.max(i, lastInclude + 1); j < terms.size(); j ++) {
+            Term term = terms.get(j);
+
+            if (term.operator == SearchOperator.EXCLUDE) {
+                if (excluded.add(term.key)) remaining.add(term);
+            } else {
+                if (merged.add(term.key)) remaining.add(term);
+            }
+        }
+
+        for (String key : excluded)
+            if (merged.contains(key)) return null;
+
+        return remaining;
+    }
+
+    private static final class Term {
+        private final SearchOperator operator;
+        private final SearchPredicate leaf;
+        private final List<Term> children;
+        private final String key;
+
+        private Term(SearchOperator operator, SearchPredicate leaf, List<Term> children, String key) {
+            this.operator = operator;
+            this.leaf = leaf;
+            this.children = children;
+            this.key = key;
+        }
+
+        static Term leaf(SearchPredicate predicate) {
+            String kind = predicate instanceof SearchPredicateString ? "s" : "a";
+            return new Term(predicate.getArgument().getOperator(), predicate, null,
+                    kind + predicate.getArgument().getValue());
+        }
+
+        static Term clause(SearchOperator operator, List<Term> children) {
+            StringBuilder key = new StringBuilder("(");
+            for (Term child : children) key.append(child.operator.getCharacter()).append(child.key).append('\0');
+            key.append(')');
+
+            return new Term(operator, null, children, key.toString());
+        }
+
+        static Term empty(SearchOperator operator) {
+            return new Term(operator, null, null, null);
+        }
+
+        boolean isEmpty() {
+            return key == null;
+        }
+
+        boolean isClause() {
+            return children != null;
+        }
+
+        Term withOperator(SearchOperator operator) {
+            if (operator == this.operator) return this;
+            return new Term(operator, leaf, children, key);
+        }
+
+        SearchPredicate toPredicate(Search.LexicalClause parent) {
+            if (isClause()) {
+                Search.PushedLexicalClause clause = new Search.PushedLexicalClause(parent, operator);
+                for (Term child : children) clause.addPredicate(child.toPredicate(clause));
+                return clause;
+            }
+
+            SearchArgument argument = new SearchArgument(operator, leaf.getArgument().getValue());
+            if (leaf instanceof SearchPredicateString)
+                return new SearchPredicateString(argument);
+            else
+                return new SearchPredicateArgument(argument);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.manebot.database.search;
+
+import javax.persistence.criteria.ParameterExpression;
+
+/**
+ * Supplies the query parameters standing in for the values of a search while its query is compiled.
+ *
+ * Parameters are handed out in the order their values were added by <b>SearchArgumentHandler.bind</b> (and, for
+ * continued searches, followed by the keys of the continuation), so that a compiled query can be reused by any search
+ * of the same <b>SearchShape</b> by binding that search's values in the same order.
+ */
+public interface SearchParameters {
+
+    /**
+     * Gets the next parameter.
+     * @param <X> parameter type.
+     * @return parameter expression.
+     * @throws IllegalArgumentException if every parameter has already been consumed.
+     */
+    <X> ParameterExpression<X> next() throws IllegalArgumentException;
+
+    /**
+     * Gets the type of the value bound to the next parameter, so that a handler with several argument shapes can tell
+     * which one it is compiling.
+     *
+     * Parameters which cannot tell throw an <b>UnsupportedOperationException</b>, which is the default; handlers with
+     * a single shape never need to ask.
+     *
+     * @return type of the next value, or null if every parameter has been consumed or the next value is null.
+     * @throws UnsupportedOperationException if the types of the values are not known.
+     */
+    default Class<?> peekType() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException(getClass().getName() + " does not know the types of its values");
+    }
+
+}
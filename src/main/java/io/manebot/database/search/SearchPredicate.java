@@ -1,5 +1,7 @@
 package io.manebot.database.search;
 
+import java.util.List;
+
 /**
  * Search predicates are lexically-parsed tokens that describe individual actions taken to build a JPA query clause.
  * These are defined explicitly within the API itself, and are not a component of query execution itself.
@@ -16,4 +18,21 @@ public abstract class SearchPredicate {
     }
 
     public abstract void handle(SearchHandler.Clause clause) throws IllegalArgumentException;
+
+    /**
+     * Appends the shape of this predicate to a search shape, see <b>SearchShape</b>.
+     * @param handler search handler the shape is for.
+     * @param shape shape key being built.
+     * @param parameters parameter values being collected.
+     * @throws IllegalArgumentException if the predicate cannot be handled by the search handler.
+     */
+    abstract void shape(SearchHandler<?> handler, StringBuilder shape, List<Object> parameters)
+            throws IllegalArgumentException;
+
+    /**
+     * Appends a value to a shape key so that it cannot run into whatever follows it.
+     */
+    static void appendShape(StringBuilder shape, String value) {
+        shape.append(value.length()).append(':').append(value);
+    }
 }
@@ -2,6 +2,10 @@ package io.manebot.database.search;
 
 import io.manebot.database.search.handler.SearchArgumentHandler;
 
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Describes a lexically-parsed search argument, which is used to build a JPA query clause around an argument definition.
  */
@@ -10,41 +14,69 @@ public class SearchPredicateArgument extends SearchPredicate {
         super(argument);
     }
 
-    @Override
-    public void handle(SearchHandler.Clause clause) throws IllegalArgumentException {
+    private boolean isCommand() {
+        return !getArgument().getValue().contains(":");
+    }
+
+    private String getName() {
+        if (isCommand())
+            return getArgument().getValue().toLowerCase();
+        else
+            return getArgument().getValue().split("\\:", 2)[0];
+    }
+
+    private SearchArgument getHandledArgument() {
         SearchArgument argument = getArgument();
-        if (argument.getValue().contains(":")) {
-            String[] args = argument.getValue().split("\\:", 2);
-            String name = args[0];
+        if (isCommand())
+            return new SearchArgument(argument.getOperator(), getName());
+        else
+            return new SearchArgument(argument.getOperator(), argument.getValue().split("\\:", 2)[1]);
+    }
+
+    private SearchArgumentHandler getHandler(SearchHandler<?> searchHandler) throws IllegalArgumentException {
+        String name = getName();
 
-            SearchArgumentHandler handler = clause.getSearchHandler().getArgumentHandler(name);
+        if (isCommand()) {
+            SearchArgumentHandler handler = searchHandler.getCommandHandler(name);
+            if (handler == null) throw new IllegalArgumentException("Unexpected command: \"" + name + "\".");
+            return handler;
+        } else {
+            SearchArgumentHandler handler = searchHandler.getArgumentHandler(name);
             if (handler == null) throw new IllegalArgumentException("Unexpected argument: \"" + name + "\".");
+            return handler;
+        }
+    }
+
+    @Override
+    public void handle(SearchHandler.Clause clause) throws IllegalArgumentException {
+        SearchArgumentHandler handler = getHandler(clause.getSearchHandler());
+        SearchArgument argument = getHandledArgument();
+        SearchParameters parameters = clause.getParameters();
+        SearchLimits limits = clause.getSearchHandler().getLimits();
+
+        Predicate predicate;
+        if (parameters != null && handler.bind(argument, new ArrayList<>(), limits) != null)
+            predicate = handler.handle(clause.getRoot(), clause.getCriteriaBuilder(), argument, parameters);
+        else
+            predicate = handler.handle(clause.getRoot(), clause.getCriteriaBuilder(), argument, limits);
+
+        clause.addPredicate(getArgument().getOperator(), predicate);
+    }
+
+    @Override
+    void shape(SearchHandler<?> handler, StringBuilder shape, List<Object> parameters) {
+        SearchArgument argument = getHandledArgument();
+        String argumentShape = getHandler(handler).bind(argument, parameters, handler.getLimits());
+
+        shape.append(getArgument().getOperator().getCharacter()).append(isCommand() ? 'c' : 'a');
+        appendShape(shape, getName());
 
-            clause.addPredicate(
-                    getArgument().getOperator(),
-                    handler.handle(
-                            clause.getRoot(),
-                            clause.getCriteriaBuilder(),
-                            new SearchArgument(
-                                    argument.getOperator(),
-                                    args[1]
-                            ))
-            );
+        if (argumentShape != null) {
+            shape.append('?');
+            appendShape(shape, argumentShape);
         } else {
-            String commandName = argument.getValue().toLowerCase();
-
-            SearchArgumentHandler handler = clause.getSearchHandler().getCommandHandler(commandName);
-            if (handler == null) throw new IllegalArgumentException("Unexpected command: \"" + commandName + "\".");
-
-            clause.addPredicate(
-                    getArgument().getOperator(),
-                    handler.handle(
-                            clause.getRoot(),
-                            clause.getCriteriaBuilder(),
-                            new SearchArgument(
-                                    argument.getOperator(), commandName
-                            ))
-            );
+            shape.append('=');
+            appendShape(shape, argument.getValue());
         }
     }
 }
@@ -2,6 +2,10 @@ package io.manebot.database.search;
 
 import io.manebot.database.search.handler.SearchArgumentHandler;
 
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Describes a lexically-parsed search argument, which is used to build a JPA query clause around a string text
  * definition.
@@ -11,14 +15,39 @@ public class SearchPredicateString extends SearchPredicate {
         super(argument);
     }
 
+    private static SearchArgumentHandler getHandler(SearchHandler<?> searchHandler) {
+        SearchArgumentHandler handler = searchHandler.getStringHandler();
+        if (handler == null) throw new IllegalArgumentException("This search does not handle string arguments.");
+        return handler;
+    }
+
     @Override
     public void handle(SearchHandler.Clause clause) throws IllegalArgumentException {
-        SearchArgumentHandler handler = clause.getSearchHandler().getStringHandler();
-        if (handler == null) throw new IllegalArgumentException("This search does not handle string arguments.");
+        SearchArgumentHandler handler = getHandler(clause.getSearchHandler());
+        SearchParameters parameters = clause.getParameters();
+        SearchLimits limits = clause.getSearchHandler().getLimits();
+
+        Predicate predicate;
+        if (parameters != null && handler.bind(getArgument(), new ArrayList<>(), limits) != null)
+            predicate = handler.handle(clause.getRoot(), clause.getCriteriaBuilder(), getArgument(), parameters);
+        else
+            predicate = handler.handle(clause.getRoot(), clause.getCriteriaBuilder(), getArgument(), limits);
+
+        clause.addPredicate(getArgument().getOperator(), predicate);
+    }
+
+    @Override
+    void shape(SearchHandler<?> handler, StringBuilder shape, List<Object> parameters) {
+        String argumentShape = getHandler(handler).bind(getArgument(), parameters, handler.getLimits());
+
+        shape.append(getArgument().getOperator().getCharacter()).append('s');
 
-        clause.addPredicate(
-                getArgument().getOperator(),
-                handler.handle(clause.getRoot(), clause.getCriteriaBuilder(), getArgument())
-        );
+        if (argumentShape != null) {
+            shape.append('?');
+            appendShape(shape, argumentShape);
+        } else {
+            shape.append('=');
+            appendShape(shape, getArgument().getValue());
+        }
     }
 }
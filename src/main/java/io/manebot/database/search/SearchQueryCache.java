@@ -0,0 +1,161 @@
+package io.manebot.database.search;
+
+import io.manebot.cache.BoundedCache;
+import io.manebot.cache.Cache;
+import io.manebot.cache.CacheManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.ParameterExpression;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Caches compiled search queries by <b>SearchShape</b>.
+ *
+ * The first search of a given shape builds its criteria query with parameters in place of its values; later searches
+ * of the same shape reuse that query and only bind their own values.  Search handlers would typically keep one cache
+ * for result queries and one for count queries:
+ *
+ *  SearchShape shape = SearchShape.of(search, this);
+ *  TypedQuery&lt;T&gt; query = resultQueries.compile(shape, criteriaBuilder, parameters -&gt; ...)
+ *          .createQuery(entityManager, shape);
+ *
+ * Compiled queries are shared between threads, and must not be modified once compiled.
+ *
+ * @param <R> query result type.
+ */
+public final class SearchQueryCache<R> {
+    public static final long DEFAULT_MAXIMUM_SIZE = 256L;
+
+    private final Cache<String, CompiledSearch<R>> cache;
+
+    /**
+     * Creates a search query cache held by a cache manager.
+     * @param cacheManager cache manager.
+     * @param name cache name.
+     */
+    public SearchQueryCache(CacheManager cacheManager, String name) {
+        this.cache = cacheManager.getCache(name, builder -> builder.setMaximumSize(DEFAULT_MAXIMUM_SIZE));
+    }
+
+    /**
+     * Creates a standalone search query cache.
+     * @param name cache name.
+     * @param maximumSize maximum number of compiled queries held.
+     */
+    public SearchQueryCache(String name, long maximumSize) {
+        this.cache = new BoundedCache.Builder().setMaximumSize(maximumSize).build(name);
+    }
+
+    public Cache<String, CompiledSearch<R>> getCache() {
+        return cache;
+    }
+
+    /**
+     * Gets the compiled query for a search shape, compiling it if this is the first search of its shape.
+     * @param shape shape of the search.
+     * @param criteriaBuilder criteria builder.
+     * @param compiler function building the criteria query, using the given parameters in place of search values (see
+     *                 <b>SearchHandler.Clause.getParameters</b>).
+     * @return compiled search.
+     * @throws IllegalArgumentException if the search could not be compiled.
+     */
+    public CompiledSearch<R> compile(SearchShape shape,
+                                     CriteriaBuilder criteriaBuilder,
+                                     Function<SearchParameters, CriteriaQuery<R>> compiler)
+            throws IllegalArgumentException {
+        return cache.get(shape.getKey(), key -> {
+            CompilingParameters parameters = new CompilingParameters(criteriaBuilder, shape.getParameters());
+            CriteriaQuery<R> criteriaQuery = compiler.apply(parameters);
+
+            if (parameters.compiled.size() != shape.getParameters().size())
+                throw new IllegalStateException(
+                        "Search compiled with " + parameters.compiled.size() + " of " +
+                                shape.getParameters().size() + " parameters"
+                );
+
+            return new CompiledSearch<>(criteriaQuery, parameters.compiled);
+        });
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static final class CompilingParameters implements SearchParameters {
+        private final CriteriaBuilder criteriaBuilder;
+        private final List<Object> values;
+        private final List<ParameterExpression<?>> compiled = new ArrayList<>();
+
+        private CompilingParameters(CriteriaBuilder criteriaBuilder, List<Object> values) {
+            this.criteriaBuilder = criteriaBuilder;
+            this.values = values;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <X> ParameterExpression<X> next() throws IllegalArgumentException {
+            if (compiled.size() >= values.size())
+                throw new IllegalArgumentException("Search has no more parameters");
+
+            Object value = values.get(compiled.size());
+            Class<X> type = (Class<X>) (value == null ? Object.class : value.getClass());
+            ParameterExpression<X> parameter = criteriaBuilder.parameter(type);
+
+            compiled.add(parameter);
+            return parameter;
+        }
+
+        @Override
+        public Class<?> peekType() {
+            if (compiled.size() >= values.size()) return null;
+
+            Object value = values.get(compiled.size());
+            return value == null ? null : value.getClass();
+        }
+    }
+
+    /**
+     * A search query compiled for one search shape.
+     * @param <R> query result type.
+     */
+    public static final class CompiledSearch<R> {
+        private final CriteriaQuery<R> criteriaQuery;
+        private final List<ParameterExpression<?>> parameters;
+
+        private CompiledSearch(CriteriaQuery<R> criteriaQuery, List<ParameterExpression<?>> parameters) {
+            this.criteriaQuery = criteriaQuery;
+            this.parameters = Collections.unmodifiableList(parameters);
+        }
+
+        public CriteriaQuery<R> getCriteriaQuery() {
+            return criteriaQuery;
+        }
+
+        public List<ParameterExpression<?>> getParameters() {
+            return parameters;
+        }
+
+        /**
+         * Creates a query from this compiled search, bound to the values of a search of the same shape.
+         * @param entityManager entity manager to create the query in.
+         * @param shape shape of the search being executed.
+         * @return bound query.
+         */
+        @SuppressWarnings("unchecked")
+        public TypedQuery<R> createQuery(EntityManager entityManager, SearchShape shape) {
+            TypedQuery<R> query = entityManager.createQuery(criteriaQuery);
+
+            List<Object> values = shape.getParameters();
+            for (int i = 0; i < parameters.size(); i ++)
+                query.setParameter((ParameterExpression<Object>) parameters.get(i), values.get(i));
+
+            return query;
+        }
+    }
+}
@@ -18,11 +18,29 @@ public interface SearchResult<T> {
     SearchHandler<T> getHandler();
 
     /**
-     * Gets the count of total results found in this result.
-     * @return total result count.
+     * Gets the count of total results found in this result.  How exact the count is depends on
+     * <b>getCountStrategy()</b>.
+     * @return total result count; an estimate for <b>CountStrategy.ESTIMATED</b>, or the number of results up to and
+     *         including this page for <b>CountStrategy.HAS_MORE</b>.
      */
     long getTotalResults();
 
+    /**
+     * Gets the way the total result count was found.
+     * @return count strategy.
+     */
+    default CountStrategy getCountStrategy() {
+        return CountStrategy.EXACT;
+    }
+
+    /**
+     * Finds if more results follow this page.
+     * @return true if there are further pages.
+     */
+    default boolean hasMore() {
+        return getContinuation() != null || getPage() * (long) getPageSize() < getTotalResults();
+    }
+
     /**
      * Gets the maximum size of the page offered by this search result.
      *
@@ -52,4 +70,14 @@ public interface SearchResult<T> {
      */
     List<T> getResults();
 
+    /**
+     * Gets the continuation token for the page following this one, for use with <b>Search.withContinuation</b> or the
+     * <i>after:</i> search argument.  Continuing from a token seeks directly past the last row of this page, so its
+     * cost does not grow with the depth of the page.
+     * @return continuation token, or null if there are no further results or the handler pages by offset.
+     */
+    default String getContinuation() {
+        return null;
+    }
+
 }
@@ -0,0 +1,172 @@
+package io.manebot.database.search;
+
+import io.manebot.cache.BoundedCache;
+import io.manebot.cache.Cache;
+import io.manebot.database.EntityWrites;
+import io.manebot.lambda.ThrowingCallable;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the results of searches run by one search handler, for handlers built with
+ * <b>SearchHandler.Builder.cache</b>.
+ *
+ * Results are keyed by the normalized search (its <b>SearchShape</b> and the values bound to it), the page and the
+ * page size, so searches which differ only in spacing, or in redundant terms that the optimizer removes, share an
+ * entry.  Arguments are kept in the order they were given, so the same terms in another order are cached separately.
+ *
+ * An entry is served until its time to live passes, or until rows of the handler's entity class, or of any other
+ * class the handler depends on, are written through the handler's database (see <b>Database.notifyWritten</b>),
+ * whichever comes first.  Handlers whose searches join or filter on other entities (i.e. users by group membership)
+ * should declare those classes as dependencies, since writes to them change results without touching the handler's
+ * own rows.  Writes which are not reported are only picked up once the entry expires.
+ *
+ * Cached results, and the entities in them, are shared between callers and must not be modified.  Only
+ * <b>SearchHandler.search</b> should be cached; <b>random</b> is expected to differ between calls.
+ *
+ * @param <T> search entity type.
+ */
+public final class SearchResultCache<T> {
+    public static final long DEFAULT_MAXIMUM_SIZE = 1024L;
+
+    private final SearchHandler<T> handler;
+    private final EntityWrites writes;
+    private final Class<?>[] dependencies;
+    private final Cache<Key, Entry<T>> cache;
+
+    /**
+     * Creates a search result cache.
+     * @param handler search handler whose results are cached.
+     * @param timeToLive time each result is served for.
+     * @param unit unit of <i>timeToLive</i>.
+     * @param maximumSize maximum number of results held.
+     */
+    public SearchResultCache(SearchHandler<T> handler, long timeToLive, TimeUnit unit, long maximumSize) {
+        this(handler, timeToLive, unit, maximumSize, Collections.emptyList());
+    }
+
+    /**
+     * Creates a search result cache.
+     * @param handler search handler whose results are cached.
+     * @param timeToLive time each result is served for.
+     * @param unit unit of <i>timeToLive</i>.
+     * @param maximumSize maximum number of results held.
+     * @param dependencies entity classes other than the handler's own whose writes change its results.
+     */
+    public SearchResultCache(SearchHandler<T> handler, long timeToLive, TimeUnit unit, long maximumSize,
+                             Collection<Class<?>> dependencies) {
+        if (timeToLive <= 0) throw new IllegalArgumentException("timeToLive must be positive");
+
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        classes.add(handler.getEntityClass());
+        classes.addAll(dependencies);
+
+        this.handler = handler;
+        this.writes = EntityWrites.of(handler.getDatabase());
+        this.dependencies = classes.toArray(new Class<?>[0]);
+        this.cache = new BoundedCache.Builder()
+                .setMaximumSize(maximumSize)
+                .setExpireAfterWrite(timeToLive, unit)
+                .build("manebot:searchResults:" + handler.getDatabase().getName() + ":" +
+                        handler.getEntityClass().getName());
+    }
+
+    public Cache<?, ?> getCache() {
+        return cache;
+    }
+
+    /**
+     * Gets the results of a search, running it if they are not cached or have gone stale.
+     * @param search search to run.
+     * @param maxResults maximum page result count.
+     * @param loader runs the search against the database.
+     * @return search result.
+     * @throws SQLException if there was a problem running the search.
+     * @throws IllegalArgumentException if the search cannot be handled by the search handler.
+     */
+    public SearchResult<T> get(Search search,
+                               int maxResults,
+                               ThrowingCallable<SearchResult<T>, SQLException> loader)
+            throws SQLException, IllegalArgumentException {
+        Key key = new Key(SearchShape.of(search, handler), search.getPage(), maxResults);
+
+        // Read before loading, so that a write made while the search runs leaves the loaded entry stale
+        long[] versions = new long[dependencies.length];
+        for (int i = 0; i < dependencies.length; i ++) versions[i] = writes.getVersion(dependencies[i]);
+
+        Entry<T> entry = cache.getIfPresent(key);
+        if (entry != null && Arrays.equals(entry.versions, versions)) return entry.result;
+
+        SearchResult<T> result = freeze(loader.call());
+        cache.put(key, new Entry<>(versions, result));
+        return result;
+    }
+
+    /**
+     * Gets the entity classes whose writes leave cached results stale: the handler's own, followed by its dependencies.
+     * @return entity classes.
+     */
+    public List<Class<?>> getDependencies() {
+        return Collections.unmodifiableList(Arrays.asList(dependencies));
+    }
+
+    /**
+     * Removes every cached result.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private SearchResult<T> freeze(SearchResult<T> result) {
+        return new DefaultSearchResult<>(
+                result.getQuery(),
+                result.getHandler(),
+                result.getTotalResults(),
+                result.getPageSize(),
+                result.getPage(),
+                Collections.unmodifiableList(new ArrayList<>(result.getResults())),
+                result.getContinuation(),
+                result.getCountStrategy(),
+                result.hasMore()
+        );
+    }
+
+    private static final class Key {
+        private final SearchShape shape;
+        private final List<Object> parameters;
+        private final long page;
+        private final int pageSize;
+
+        private Key(SearchShape shape, long page, int pageSize) {
+            this.shape = shape;
+            this.parameters = shape.getParameters();
+            this.page = page;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return page == other.page && pageSize == other.pageSize &&
+                    shape.equals(other.shape) && parameters.equals(other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shape, parameters, page, pageSize);
+        }
+    }
+
+    private static final class Entry<T> {
+        private final long[] versions;
+        private final SearchResult<T> result;
+
+        private Entry(long[] versions, SearchResult<T> result) {
+            this.versions = versions;
+            this.result = result;
+        }
+    }
+}
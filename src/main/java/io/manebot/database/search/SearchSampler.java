@@ -0,0 +1,304 @@
+package io.manebot.database.search;
+
+import io.manebot.cache.BoundedCache;
+import io.manebot.cache.Cache;
+import io.manebot.database.Database;
+import io.manebot.database.EntityWrites;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Picks distinct random rows matching a search, for <b>SearchHandler.random</b>, without <i>ORDER BY RAND()</i> or a
+ * count on every call.
+ *
+ * The sampler keeps the minimum, maximum and count of the matching IDs for each search (by <b>SearchShape</b> and its
+ * values) until its time to live passes or the entity class is written (see <b>Database.notifyWritten</b>).  From
+ * these it picks one of two strategies:
+ *
+ * 1.   Dense IDs, where most of the ID range matches: random IDs are drawn from the range and looked up by primary key
+ *      in one <i>IN</i> query per round; IDs which do not match are rejected and drawn again.  Every matching row is
+ *      equally likely to be picked, and each round costs one index lookup per candidate.
+ * 2.   Sparse IDs, or when probing gives up: distinct random offsets are drawn from the count, and each is read with
+ *      <i>ORDER BY id LIMIT 1 OFFSET n</i>.
+ *
+ * Rows added above the cached maximum, or after the cached count was taken, are only picked once the statistics are
+ * refreshed.  IDs must be numeric.
+ *
+ * @param <T> search entity type.
+ */
+public final class SearchSampler<T> {
+    public static final double DEFAULT_DENSITY_THRESHOLD = 0.2D;
+    public static final long DEFAULT_STATISTICS_TTL_SECONDS = 300L;
+
+    private static final int MAXIMUM_PROBE_ROUNDS = 4;
+    private static final int MAXIMUM_CANDIDATES = 500;
+    private static final int MAXIMUM_OFFSET_ROUNDS = 2;
+
+    private final Class<T> entityClass;
+    private final String idAttribute;
+    private final EntityWrites writes;
+    private final Cache<List<Object>, Statistics> statistics;
+    private double densityThreshold = DEFAULT_DENSITY_THRESHOLD;
+
+    /**
+     * Creates a sampler.
+     * @param database database holding the entity.
+     * @param entityClass entity class to sample.
+     * @param idAttribute name of the entity's numeric identifier attribute.
+     */
+    public SearchSampler(Database database, Class<T> entityClass, String idAttribute) {
+        this.entityClass = entityClass;
+        this.idAttribute = idAttribute;
+        this.writes = EntityWrites.of(database);
+        this.statistics = new BoundedCache.Builder()
+                .setMaximumSize(SearchQueryCache.DEFAULT_MAXIMUM_SIZE)
+                .setExpireAfterWrite(DEFAULT_STATISTICS_TTL_SECONDS, TimeUnit.SECONDS)
+                .build("manebot:searchSamples:" + database.getName() + ":" + entityClass.getName());
+    }
+
+    public double getDensityThreshold() {
+        return densityThreshold;
+    }
+
+    /**
+     * Sets the share of the ID range which must match a search for IDs to be probed rather than offsets read.
+     * @param densityThreshold density threshold, between 0 and 1.
+     */
+    public void setDensityThreshold(double densityThreshold) {
+        if (densityThreshold < 0D || densityThreshold > 1D)
+            throw new IllegalArgumentException("densityThreshold must be between 0 and 1");
+
+        this.densityThreshold = densityThreshold;
+    }
+
+    /**
+     * Picks distinct random rows matching a search.
+     * @param session session to query.
+     * @param shape shape of the search, identifying its statistics.
+     * @param filter function creating the search's WHERE predicate, or returning null if every row matches.
+     * @param count number of rows to pick.
+     * @return up to <i>count</i> distinct rows, in random order; fewer if fewer match.
+     */
+    public List<T> sample(EntityManager session,
+                          SearchShape shape,
+                          BiFunction<Root<T>, CriteriaBuilder, Predicate> filter,
+                          int count) {
+        if (count <= 0) return Collections.emptyList();
+
+        Random random = ThreadLocalRandom.current();
+        Statistics statistics = getStatistics(session, shape, filter);
+        if (statistics.count <= 0) return Collections.emptyList();
+
+        Map<Object, T> picked = new LinkedHashMap<>();
+        PersistenceUnitUtil util = session.getEntityManagerFactory().getPersistenceUnitUtil();
+
+        if (count >= statistics.count) {
+            for (T row : select(session, filter, null, 0, -1)) picked.put(util.getIdentifier(row), row);
+        } else {
+            if (statistics.getDensity() >= densityThreshold)
+                probe(session, filter, statistics, count, random, picked, util);
+
+            for (int round = 0; round < MAXIMUM_OFFSET_ROUNDS && picked.size() < count; round ++)
+                readOffsets(session, filter, statistics, count, random, picked, util);
+        }
+
+        List<T> rows = new ArrayList<>(picked.values());
+        Collections.shuffle(rows, random);
+        return rows.size() > count ? rows.subList(0, count) : rows;
+    }
+
+    private Statistics getStatistics(EntityManager session,
+                                     SearchShape shape,
+                                     BiFunction<Root<T>, CriteriaBuilder, Predicate> filter) {
+        List<Object> key = Arrays.asList(shape.getKey(), shape.getParameters());
+        long version = writes.getVersion(entityClass);
+
+        Statistics cached = statistics.getIfPresent(key);
+        if (cached != null && cached.version == version) return cached;
+
+        CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+        Path<Number> id = getId(root);
+
+        query.multiselect(criteriaBuilder.min(id), criteriaBuilder.max(id), criteriaBuilder.count(id));
+        Predicate predicate = filter.apply(root, criteriaBuilder);
+        if (predicate != null) query.where(predicate);
+
+        Tuple tuple = session.createQuery(query).getSingleResult();
+        Number count = (Number) tuple.get(2);
+
+        Statistics loaded = count == null || count.longValue() <= 0 ?
+                new Statistics(version, 0L, 0L, 0L) :
+                new Statistics(version,
+                        ((Number) tuple.get(0)).longValue(),
+                        ((Number) tuple.get(1)).longValue(),
+                        count.longValue());
+
+        statistics.put(key, loaded);
+        return loaded;
+    }
+
+    private void probe(EntityManager session,
+                       BiFunction<Root<T>, CriteriaBuilder, Predicate> filter,
+                       Statistics statistics,
+                       int count,
+                       Random random,
+                       Map<Object, T> picked,
+                       PersistenceUnitUtil util) {
+        long range = statistics.getRange();
+
+        for (int round = 0; round < MAXIMUM_PROBE_ROUNDS && picked.size() < count; round ++) {
+            int needed = count - picked.size();
+
+            // Draw enough candidates that the expected number of hits covers what is still needed
+            long candidates = Math.min(range, (long) Math.ceil(needed / statistics.getDensity() * 1.5D) + 4L);
+            candidates = Math.min(candidates, MAXIMUM_CANDIDATES);
+
+            List<Object> ids = new ArrayList<>((int) candidates);
+            for (long offset : distinctOffsets(random, (int) candidates, range))
+                ids.add(statistics.minimum + offset);
+
+            List<T> rows = new ArrayList<>(select(session, filter, ids, 0, -1));
+            Collections.shuffle(rows, random);
+
+            for (T row : rows) {
+                if (picked.size() >= count) break;
+                picked.putIfAbsent(util.getIdentifier(row), row);
+            }
+        }
+    }
+
+    private void readOffsets(EntityManager session,
+                             BiFunction<Root<T>, CriteriaBuilder, Predicate> filter,
+                             Statistics statistics,
+                             int count,
+                             Random random,
+                             Map<Object, T> picked,
+                             PersistenceUnitUtil util) {
+        int needed = (int) Math.min(count - picked.size(), statistics.count);
+
+        for (long offset : distinctOffsets(random, needed, statistics.count)) {
+            // Offsets past the end are rows removed since the count was taken
+            for (T row : select(session, filter, null, offset, 1))
+                picked.putIfAbsent(util.getIdentifier(row), row);
+        }
+    }
+
+    private List<T> select(EntityManager session,
+                           BiFunction<Root<T>, CriteriaBuilder, Predicate> filter,
+                           List<Object> ids,
+                           long offset,
+                           int limit) {
+        CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
+        CriteriaQuery<T> query = criteriaBuilder.createQuery(entityClass);
+        Root<T> root = query.from(entityClass);
+        Path<Number> id = getId(root);
+
+        List<Predicate> predicates = new ArrayList<>(2);
+        Predicate predicate = filter.apply(root, criteriaBuilder);
+        if (predicate != null) predicates.add(predicate);
+        if (ids != null) predicates.add(id.in(convert(id.getJavaType(), ids)));
+
+        query.select(root).where(predicates.toArray(new Predicate[0]));
+        if (ids == null) query.orderBy(criteriaBuilder.asc(id));
+
+        TypedQuery<T> typedQuery = session.createQuery(query);
+        if (offset > Integer.MAX_VALUE) return Collections.emptyList();
+        if (offset > 0) typedQuery.setFirstResult((int) offset);
+        if (limit >= 0) typedQuery.setMaxResults(limit);
+
+        return typedQuery.getResultList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Path<Number> getId(Root<T> root) {
+        Path<?> id = root.get(idAttribute);
+        Class<?> type = id.getJavaType();
+
+        if (!Number.class.isAssignableFrom(type) && type != int.class && type != long.class && type != short.class)
+            throw new IllegalArgumentException("Random sampling requires a numeric ID, but " +
+                    entityClass.getName() + "." + idAttribute + " is " + type.getName());
+
+        return (Path<Number>) id;
+    }
+
+    private static List<Object> convert(Class<?> type, List<Object> ids) {
+        List<Object> converted = new ArrayList<>(ids.size());
+
+        for (Object id : ids) {
+            long value = ((Number) id).longValue();
+
+            if (type == Integer.class || type == int.class)
+                converted.add((int) value);
+            else if (type == Short.class || type == short.class)
+                converted.add((short) value);
+            else
+                converted.add(value);
+        }
+
+        return converted;
+    }
+
+    /**
+     * Draws distinct random offsets, using Floyd's algorithm so that only the drawn offsets are held in memory.
+     * @param random random number generator.
+     * @param count number of offsets to draw.
+     * @param bound exclusive upper bound of the offsets.
+     * @return <i>min(count, bound)</i> distinct offsets in <i>[0, bound)</i>.
+     */
+    static Set<Long> distinctOffsets(Random random, int count, long bound) {
+        long drawn = Math.min(count, bound);
+        Set<Long> offsets = new LinkedHashSet<>((int) Math.min(drawn * 2L, Integer.MAX_VALUE));
+
+        for (long j = bound - drawn; j < bound; j ++) {
+            long offset = nextLong(random, j + 1);
+            if (!offsets.add(offset)) offsets.add(j);
+        }
+
+        return offsets;
+    }
+
+    private static long nextLong(Random random, long bound) {
+        long bits, value;
+
+        do {
+            bits = random.nextLong() >>> 1;
+            value = bits % bound;
+        } while (bits - value + (bound - 1L) < 0L);
+
+        return value;
+    }
+
+    private static final class Statistics {
+        private final long version;
+        private final long minimum, maximum, count;
+
+        private Statistics(long version, long minimum, long maximum, long count) {
+            this.version = version;
+            this.minimum = minimum;
+            this.maximum = maximum;
+            this.count = count;
+        }
+
+        private long getRange() {
+            return maximum - minimum + 1L;
+        }
+
+        private double getDensity() {
+            return (double) count / (double) getRange();
+        }
+    }
+}
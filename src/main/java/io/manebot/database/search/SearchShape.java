@@ -0,0 +1,125 @@
+package io.manebot.database.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The shape of a search: its structure, with the values its argument handlers can bind as parameters taken out.
+ *
+ * Two searches with equal shape keys compile to the same query and differ only in the values bound to it, so a
+ * <b>SearchQueryCache</b> can build the query once per shape.  The shape key covers the clause structure and
+ * operators, the argument and command names, any argument which cannot be parameterized (verbatim), the sort keys,
+ * whether the search continues from a keyset, and the types of the parameters.  The page number is not part of the
+ * shape; it is applied as an offset when the query is executed.
+ */
+public final class SearchShape {
+    private final String key;
+    private final List<Object> parameters;
+    private final SearchShape filter;
+
+    private SearchShape(String key, List<Object> parameters, SearchShape filter) {
+        this.key = key;
+        this.parameters = Collections.unmodifiableList(parameters);
+        this.filter = filter;
+    }
+
+    /**
+     * Finds the shape of a search.
+     * @param search search to find the shape of.
+     * @param handler search handler which will execute the search.
+     * @return SearchShape instance.
+     * @throws IllegalArgumentException if the search cannot be handled by the search handler, or exceeds its
+     *                                  <b>SearchLimits</b>.
+     */
+    public static SearchShape of(Search search, SearchHandler<?> handler) throws IllegalArgumentException {
+        StringBuilder key = new StringBuilder();
+        List<Object> parameters = new ArrayList<>();
+
+        Search.LexicalClause clause = search.getLexicalClause();
+        if (!(clause instanceof SearchPredicate))
+            throw new IllegalArgumentException("Unsupported lexical clause: " + clause.getClass().getName());
+
+        // Rejected before shaping, which recurses through the clauses
+        SearchLimits limits = handler.getLimits();
+        limits.check(search);
+
+        ((SearchPredicate) clause).shape(handler, key, parameters);
+
+        for (Object parameter : parameters) {
+            if (parameter instanceof Collection) limits.checkListSize(((Collection<?>) parameter).size());
+        }
+        if (search.isUnsatisfiable()) key.append("|u");
+
+        for (Search.Order order : search.getOrders()) {
+            key.append("|o");
+            SearchPredicate.appendShape(key, order.getKey());
+            key.append(order.getOrder() == SortOrder.DESCENDING ? 'd' : 'a');
+        }
+
+        if (search.getContinuation() == null)
+            return new SearchShape(key + types(parameters), parameters, null);
+
+        SearchShape filter = new SearchShape(key + types(parameters), new ArrayList<>(parameters), null);
+
+        List<Object> keys = SearchKeyset.decode(search.getContinuation());
+        if (keys.contains(null))
+            throw new IllegalArgumentException("Continuation cannot seek past a null sort key");
+
+        key.append("|k").append(keys.size());
+        parameters.addAll(keys);
+
+        return new SearchShape(key + types(parameters), parameters, filter);
+    }
+
+    private static String types(List<Object> parameters) {
+        StringBuilder types = new StringBuilder("|t");
+        for (Object parameter : parameters) {
+            types.append(parameter == null ? "null" : parameter.getClass().getName()).append(';');
+        }
+
+        return types.toString();
+    }
+
+    /**
+     * Gets the shape key, equal for all searches which compile to the same query.
+     * @return shape key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the parameter values of this search, in the order they are bound.
+     * @return parameter values.
+     */
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Gets the shape of the rows this search matches, without the continuation it seeks from.  Searches which continue
+     * from different rows of the same search share it, and so share what is cached about the whole result, such as
+     * its total count.
+     * @return shape without a continuation, which is this shape if the search has none.
+     */
+    public SearchShape getFilter() {
+        return filter == null ? this : filter;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SearchShape && key.equals(((SearchShape) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -0,0 +1,470 @@
+package io.manebot.database.search;
+
+import com.google.common.hash.Hashing;
+import io.manebot.cache.CacheManager;
+import io.manebot.cache.EntityChange;
+import io.manebot.database.Database;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * An in-process trigram index over one text property of an entity, answering <i>contains</i> searches without
+ * scanning the table.
+ *
+ * Every value is normalized (lower case, without accents) and split into its three-character substrings, each of which
+ * has a postings set of the IDs whose value holds it.  A search for a substring of at least three characters
+ * intersects the postings of its own trigrams and checks the normalized values of the remaining IDs, and the query
+ * then only needs to look up those IDs.  <b>SearchHandlerPropertyContains</b> uses an index when given one, keeping its
+ * LIKE predicate alongside the ID list so that the database has the final say; the index only has to find every row
+ * the database would.  It does so for collations which ignore case and accents, or are stricter.
+ *
+ * The index is built with <b>rebuild()</b>, and kept up to date by:
+ * 1.   Entities registering <b>SearchTextIndexListener</b> with <i>@EntityListeners</i>, for persists, updates and
+ *      removals made through a session.  These are applied once their transaction commits (see
+ *      <b>Database.afterCommit</b>), and never if it rolls back.
+ * 2.   <b>EntityUpdate</b>, for single-row updates which set the indexed property.
+ * 3.   Other nodes, which publish the ID of each row they index a write to.  The row's value is read back from the
+ *      primary and applied; if it cannot be, the index is unavailable until a rebuild, started in the background, has
+ *      finished.
+ *
+ * Until the index is ready, or when a search is too short or matches too many rows for an ID list to help, searches
+ * fall back to LIKE.  Bulk writes through queries are only picked up by the next rebuild.
+ *
+ * @param <T> entity type.
+ */
+public final class SearchTextIndex<T> {
+    public static final int MINIMUM_QUERY_LENGTH = 3;
+    public static final int DEFAULT_MAXIMUM_MATCHES = 1000;
+
+    private static final int GRAM_LENGTH = 3;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Map<Class<?>, Collection<SearchTextIndex<?>>> indexes = new ConcurrentHashMap<>();
+
+    private final Database database;
+    private final Class<T> entityClass;
+    private final String idAttribute;
+    private final String property;
+    private final Function<T, Object> idGetter;
+    private final Function<T, String> propertyGetter;
+    private final Object lock = new Object();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean(false);
+    private final String changeKind;
+    private final Consumer<EntityChange> subscriber;
+
+    private volatile Postings postings = null;
+    private long generation = 0L; // guarded by lock, moved on by every invalidation
+    private final List<List<Map.Entry<Object, String>>> rebuilds = new ArrayList<>(); // guarded by lock
+    private int maximumMatches = DEFAULT_MAXIMUM_MATCHES;
+
+    /**
+     * Creates an index, which is empty and unavailable until <b>rebuild()</b> is called.
+     * @param database database holding the entity.
+     * @param entityClass entity class.
+     * @param idAttribute name of the entity's identifier attribute.
+     * @param property name of the indexed text property.
+     * @param idGetter function reading the identifier of an entity.
+     * @param propertyGetter function reading the indexed property of an entity.
+     */
+    public SearchTextIndex(Database database,
+                           Class<T> entityClass,
+                           String idAttribute,
+                           String property,
+                           Function<T, Object> idGetter,
+                           Function<T, String> propertyGetter) {
+        this.database = database;
+        this.entityClass = entityClass;
+        this.idAttribute = idAttribute;
+        this.property = property;
+        this.idGetter = idGetter;
+        this.propertyGetter = propertyGetter;
+
+        // Kinds are stored in a bounded column (see CacheInvalidation), so the index is identified by a hash
+        this.changeKind = "manebot:searchTextIndex:" + Hashing.murmur3_128().hashString(
+                database.getName() + ":" + entityClass.getName() + "." + property,
+                StandardCharsets.UTF_8
+        );
+        this.subscriber = change -> refresh(change.getId());
+
+        getCacheManager().subscribe(changeKind, subscriber);
+        indexes.computeIfAbsent(entityClass, key -> new CopyOnWriteArrayList<>()).add(this);
+    }
+
+    private CacheManager getCacheManager() {
+        return database.getDatabaseManager().getBot().getCacheManager();
+    }
+
+    /**
+     * Stops keeping this index up to date, and releases its contents.
+     */
+    public void close() {
+        getCacheManager().unsubscribe(changeKind, subscriber);
+
+        Collection<SearchTextIndex<?>> list = indexes.get(entityClass);
+        if (list != null) list.remove(this);
+
+        synchronized (lock) {
+            postings = null;
+        }
+    }
+
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getIdAttribute() {
+        return idAttribute;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public int getMaximumMatches() {
+        return maximumMatches;
+    }
+
+    /**
+     * Sets the largest number of matches answered with an ID list; searches matching more rows fall back to LIKE.
+     * @param maximumMatches maximum match count.
+     */
+    public void setMaximumMatches(int maximumMatches) {
+        if (maximumMatches <= 0) throw new IllegalArgumentException("maximumMatches must be positive");
+        this.maximumMatches = maximumMatches;
+    }
+
+    /**
+     * Finds if the index has been built, and has not been invalidated since.
+     * @return true if the index can answer searches.
+     */
+    public boolean isReady() {
+        return postings != null;
+    }
+
+    /**
+     * Gets the number of values held by the index.
+     * @return value count, or 0 if the index is not ready.
+     */
+    public int size() {
+        Postings postings = this.postings;
+        return postings == null ? 0 : postings.values.size();
+    }
+
+    /**
+     * Finds the IDs of the rows whose property contains a value.
+     * @param value value to search for.
+     * @return IDs of every matching row, or null if the index cannot answer the search and LIKE must be used.
+     */
+    public Collection<Object> find(String value) {
+        return find(value, maximumMatches);
+    }
+
+    /**
+     * Finds the IDs of the rows whose property contains a value, if there are few enough of them.
+     * @param value value to search for.
+     * @param maximumMatches largest number of IDs the caller can use, such as the list size allowed by its
+     *                       <b>SearchLimits</b>.  The index's own maximum applies as well.
+     * @return IDs of every matching row, or null if the index cannot answer the search, or it matches more rows than
+     *         either maximum, and LIKE must be used.
+     */
+    public Collection<Object> find(String value, int maximumMatches) {
+        int limit = Math.min(maximumMatches, this.maximumMatches);
+
+        Postings postings = this.postings;
+        if (postings == null) return null;
+
+        String normalized = normalize(value);
+        if (normalized.length() < MINIMUM_QUERY_LENGTH) return null;
+
+        List<Set<Object>> sets = new ArrayList<>();
+        for (String gram : grams(normalized)) {
+            Set<Object> set = postings.grams.get(gram);
+            if (set == null) return Collections.emptyList();
+            sets.add(set);
+        }
+
+        sets.sort(Comparator.comparingInt(Set::size));
+
+        List<Object> matches = new ArrayList<>();
+        for (Object id : sets.get(0)) {
+            boolean candidate = true;
+            for (int i = 1; i < sets.size() && candidate; i ++) candidate = sets.get(i).contains(id);
+            if (!candidate) continue;
+
+            String indexed = postings.values.get(id);
+            if (indexed == null || !indexed.contains(normalized)) continue;
+
+            if (matches.size() >= limit) return null;
+            matches.add(id);
+        }
+
+        return matches;
+    }
+
+    /**
+     * Indexes the committed property value of a row, and has other nodes index it as well.
+     * @param id row ID.
+     * @param value property value, or null if the row has none.
+     */
+    public void update(Object id, String value) {
+        apply(id, value);
+
+        try {
+            getCacheManager().publish(changeKind, String.valueOf(id));
+        } catch (RuntimeException e) {
+            Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                    "Problem publishing text index write to " + entityClass.getName() + "." + property, e);
+        }
+    }
+
+    private void apply(Object id, String value) {
+        String normalized = value == null ? null : normalize(value);
+        Map.Entry<Object, String> write = new AbstractMap.SimpleImmutableEntry<>(id, normalized);
+
+        synchronized (lock) {
+            for (List<Map.Entry<Object, String>> pending : rebuilds) pending.add(write);
+            if (postings != null) postings.put(id, normalized);
+        }
+    }
+
+    /**
+     * Indexes a row written by another node, reading its value back from the primary.  If the row cannot be read, the
+     * index is rebuilt instead.
+     * @param id row ID, as published.
+     */
+    private void refresh(String id) {
+        try {
+            Map.Entry<Object, String> row = database.execute(s -> {
+                CriteriaBuilder criteriaBuilder = s.getCriteriaBuilder();
+                CriteriaQuery<Object> query = criteriaBuilder.createQuery(Object.class);
+                Root<T> root = query.from(entityClass);
+                Path<?> idPath = root.get(idAttribute);
+                Object key = parseId(idPath.getJavaType(), id);
+
+                query.select(root.get(property)).where(criteriaBuilder.equal(idPath, key));
+                List<Object> values = s.createQuery(query).setMaxResults(1).getResultList();
+                Object value = values.isEmpty() ? null : values.get(0);
+
+                return new AbstractMap.SimpleImmutableEntry<>(key, value == null ? null : value.toString());
+            });
+
+            apply(row.getKey(), row.getValue());
+        } catch (RuntimeException e) {
+            Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                    "Problem reading text index write to " + entityClass.getName() + "." + property +
+                            " for " + id + "; rebuilding", e);
+            invalidate();
+        }
+    }
+
+    /**
+     * Parses a row ID published by another node.
+     * @param type Java type of the ID attribute.
+     * @param id published ID.
+     * @return row ID.
+     * @throws IllegalArgumentException if IDs of the given type cannot be parsed.
+     */
+    static Object parseId(Class<?> type, String id) throws IllegalArgumentException {
+        if (type == Integer.class || type == int.class) return Integer.valueOf(id);
+        else if (type == Long.class || type == long.class) return Long.valueOf(id);
+        else if (type == Short.class || type == short.class) return Short.valueOf(id);
+        else if (type == String.class) return id;
+        else if (type == UUID.class) return UUID.fromString(id);
+        else throw new IllegalArgumentException("Cannot parse IDs of type " + type);
+    }
+
+    /**
+     * Removes a row from the index.
+     * @param id row ID.
+     */
+    public void remove(Object id) {
+        update(id, null);
+    }
+
+    /**
+     * Makes the index unavailable, and starts a rebuild on the database's executor.  Rebuilds requested while one is
+     * waiting to start are coalesced into it, and rebuilds already reading rows are discarded when they finish.
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            postings = null;
+            generation ++;
+        }
+
+        if (!rebuildScheduled.compareAndSet(false, true)) return;
+
+        database.getExecutor().submit(() -> {
+            rebuildScheduled.set(false);
+            rebuild();
+            return null;
+        }).exceptionally(e -> {
+            Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                    "Problem rebuilding text index on " + entityClass.getName() + "." + property, e);
+            return null;
+        });
+    }
+
+    /**
+     * Rebuilds the index from the database, reading every row through a cursor.  The index keeps answering searches
+     * from its previous contents, if any, until the rebuild has finished.  If the index is invalidated while the rows
+     * are read, the rows read may not reflect the cause, so the result is discarded in favour of the rebuild the
+     * invalidation started.
+     * @throws SQLException if there was a problem reading the rows.
+     */
+    public void rebuild() throws SQLException {
+        // Each rebuild collects the writes made while it reads, so that concurrent rebuilds do not share them
+        List<Map.Entry<Object, String>> pending = new ArrayList<>();
+        long generation;
+
+        synchronized (lock) {
+            generation = this.generation;
+            rebuilds.add(pending);
+        }
+
+        Postings rebuilt = new Postings();
+
+        try (SearchCursor<Tuple> cursor = database.openCursor(s -> {
+            CriteriaBuilder criteriaBuilder = s.getCriteriaBuilder();
+            CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+            Root<T> root = query.from(entityClass);
+            query.multiselect(root.get(idAttribute), root.get(property));
+            return s.createQuery(query);
+        }, SearchCursor.DEFAULT_FETCH_SIZE)) {
+            while (cursor.hasNext()) {
+                Tuple row = cursor.next();
+                Object value = row.get(1);
+                if (value != null) rebuilt.put(row.get(0), normalize(value.toString()));
+            }
+        } catch (RuntimeException | SQLException e) {
+            synchronized (lock) {
+                rebuilds.removeIf(list -> list == pending);
+            }
+
+            throw e;
+        }
+
+        synchronized (lock) {
+            rebuilds.removeIf(list -> list == pending);
+            if (generation != this.generation) return;
+
+            // Writes made while the rows were read may or may not have been seen; replaying them is always correct
+            for (Map.Entry<Object, String> write : pending) rebuilt.put(write.getKey(), write.getValue());
+            postings = rebuilt;
+        }
+    }
+
+    /**
+     * Applies a write made to an entity through a session, once its transaction has committed.
+     */
+    void written(Object entity) {
+        Object id = idGetter.apply(entityClass.cast(entity));
+        String value = propertyGetter.apply(entityClass.cast(entity));
+        database.afterCommit(() -> update(id, value));
+    }
+
+    /**
+     * Applies the removal of an entity through a session, once its transaction has committed.
+     */
+    void removed(Object entity) {
+        Object id = idGetter.apply(entityClass.cast(entity));
+        database.afterCommit(() -> remove(id));
+    }
+
+    /**
+     * Finds the indexes of an entity, including indexes of its superclasses.
+     * @param entity entity instance.
+     * @return indexes which the entity belongs to.
+     */
+    static Collection<SearchTextIndex<?>> getIndexes(Object entity) {
+        List<SearchTextIndex<?>> found = new ArrayList<>();
+
+        for (Class<?> type = entity.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            Collection<SearchTextIndex<?>> list = indexes.get(type);
+            if (list != null) found.addAll(list);
+        }
+
+        return found;
+    }
+
+    /**
+     * Applies a single-row update, such as one made by <b>EntityUpdate</b>, to the indexes of an entity class.
+     * @param database database the update was made through.
+     * @param entityClass entity class updated.
+     * @param id ID of the updated row.
+     * @param values attributes set by the update.
+     */
+    public static void updated(Database database, Class<?> entityClass, Object id, Map<String, Object> values) {
+        Collection<SearchTextIndex<?>> list = indexes.get(entityClass);
+        if (list == null) return;
+
+        for (SearchTextIndex<?> index : list) {
+            if (index.database != database || !values.containsKey(index.property)) continue;
+
+            Object value = values.get(index.property);
+            index.update(id, value == null ? null : value.toString());
+        }
+    }
+
+    /**
+     * Normalizes text for indexing: lower case, with accents removed.
+     * @param text text to normalize.
+     * @return normalized text.
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("");
+    }
+
+    /**
+     * Splits normalized text into its distinct trigrams.
+     * @param normalized normalized text.
+     * @return trigrams, or none if the text is shorter than a trigram.
+     */
+    static Set<String> grams(String normalized) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i ++)
+            grams.add(normalized.substring(i, i + GRAM_LENGTH));
+        return grams;
+    }
+
+    private static final class Postings {
+        private final Map<String, Set<Object>> grams = new ConcurrentHashMap<>();
+        private final Map<Object, String> values = new ConcurrentHashMap<>();
+
+        private void put(Object id, String normalized) {
+            String old = normalized == null ? values.remove(id) : values.put(id, normalized);
+
+            Set<String> removed = old == null ? Collections.emptySet() : grams(old);
+            Set<String> added = normalized == null ? Collections.emptySet() : grams(normalized);
+
+            for (String gram : removed) {
+                if (added.contains(gram)) continue;
+
+                grams.computeIfPresent(gram, (key, set) -> {
+                    set.remove(id);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+
+            for (String gram : added) {
+                if (removed.contains(gram)) continue;
+                grams.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+    }
+}
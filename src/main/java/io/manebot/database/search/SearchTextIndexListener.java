@@ -0,0 +1,27 @@
+package io.manebot.database.search;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Keeps the <b>SearchTextIndex</b>es of an entity up to date with writes made through a session.  Entities with an
+ * index register it with <i>@EntityListeners(SearchTextIndexListener.class)</i>.
+ *
+ * Callbacks run when the session is flushed, before the transaction commits, so the writes are only applied to the
+ * indexes once it does (see <b>Database.afterCommit</b>).
+ */
+public class SearchTextIndexListener {
+    @PostPersist
+    @PostUpdate
+    public void written(Object entity) {
+        for (SearchTextIndex<?> index : SearchTextIndex.getIndexes(entity))
+            index.written(entity);
+    }
+
+    @PostRemove
+    public void removed(Object entity) {
+        for (SearchTextIndex<?> index : SearchTextIndex.getIndexes(entity))
+            index.removed(entity);
+    }
+}
@@ -20,5 +20,10 @@ public abstract class AbstractSearchOrderHandler implements SearchOrderHandler {
         }
     }
 
+    @Override
+    public Expression<?> getExpression(Root root, CriteriaBuilder criteriaBuilder) {
+        return handle(root, criteriaBuilder);
+    }
+
     public abstract Expression<?> handle(Root root, CriteriaBuilder criteriaBuilder);
 }
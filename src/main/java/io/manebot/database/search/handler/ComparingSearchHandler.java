@@ -1,11 +1,14 @@
 package io.manebot.database.search.handler;
 
 import io.manebot.database.search.SearchArgument;
+import io.manebot.database.search.SearchLimits;
 import io.manebot.database.search.SearchOperator;
+import io.manebot.database.search.SearchParameters;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.List;
 
 public class ComparingSearchHandler implements SearchArgumentHandler {
     private final SearchOperator operator;
@@ -19,9 +22,46 @@ public class ComparingSearchHandler implements SearchArgumentHandler {
 
     @Override
     public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value) {
-        Predicate first = a.handle(root, criteriaBuilder, value);
-        Predicate second = b.handle(root, criteriaBuilder, value);
+        return handle(root, criteriaBuilder, value, SearchLimits.DEFAULT);
+    }
+
+    @Override
+    public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value, SearchLimits limits) {
+        Predicate first = a.handle(root, criteriaBuilder, value, limits);
+        Predicate second = b.handle(root, criteriaBuilder, value, limits);
+        return combine(criteriaBuilder, first, second);
+    }
+
+    @Override
+    public String bind(SearchArgument value, List<Object> parameters) {
+        return bind(value, parameters, SearchLimits.DEFAULT);
+    }
+
+    @Override
+    public String bind(SearchArgument value, List<Object> parameters, SearchLimits limits) {
+        int size = parameters.size();
+
+        String first = a.bind(value, parameters, limits);
+        String second = first == null ? null : b.bind(value, parameters, limits);
+
+        if (first == null || second == null) {
+            // Both sides are compiled as literals, so neither may contribute parameters
+            parameters.subList(size, parameters.size()).clear();
+            return null;
+        }
+
+        return first.length() + ":" + first + second;
+    }
+
+    @Override
+    public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                            SearchParameters parameters) {
+        Predicate first = a.handle(root, criteriaBuilder, value, parameters);
+        Predicate second = b.handle(root, criteriaBuilder, value, parameters);
+        return combine(criteriaBuilder, first, second);
+    }
 
+    private Predicate combine(CriteriaBuilder criteriaBuilder, Predicate first, Predicate second) {
         Predicate result;
 
         switch (operator) {
@@ -1,10 +1,13 @@
 package io.manebot.database.search.handler;
 
 import io.manebot.database.search.SearchArgument;
+import io.manebot.database.search.SearchLimits;
+import io.manebot.database.search.SearchParameters;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.List;
 
 /**
  * Expresses a search argument handler.  Search argument handlers are the JPA-level token constructors that build
@@ -13,7 +16,97 @@ import javax.persistence.criteria.Root;
 public interface SearchArgumentHandler {
     Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value);
 
+    /**
+     * Builds a predicate as <b>handle(root, criteriaBuilder, value)</b> does, for a search held to the given limits.
+     * Handlers whose predicates grow with the data, as described on <b>bind(value, parameters, limits)</b>, should
+     * keep them within the limits here as well.
+     *
+     * By default, the limits are ignored.
+     *
+     * @param root query root.
+     * @param criteriaBuilder criteria builder.
+     * @param value argument.
+     * @param limits limits of the search handler executing the search.
+     * @return predicate.
+     */
+    default Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value, SearchLimits limits) {
+        return handle(root, criteriaBuilder, value);
+    }
+
+    /**
+     * Separates an argument into the part which changes the structure of the predicate built for it, and the values
+     * which can be bound as query parameters.  Arguments with the same shape share one compiled query.
+     *
+     * Handlers which implement this must also implement the parameterized <b>handle</b>, consuming exactly the
+     * parameters added here, in the same order.
+     *
+     * @param value argument to separate.
+     * @param parameters list to add the argument's parameter values to.
+     * @return shape of the argument, or null if the handler cannot be parameterized and the argument must be
+     *         compiled as a literal.
+     */
+    default String bind(SearchArgument value, List<Object> parameters) {
+        return null;
+    }
+
+    /**
+     * Separates an argument as <b>bind(value, parameters)</b> does, for a search held to the given limits.  Handlers
+     * whose parameters grow with the data rather than with the argument, such as an ID list found by an index, should
+     * keep them within <b>SearchLimits.getMaximumListSize</b>, choosing another shape where they would not fit.
+     *
+     * By default, the limits are ignored.
+     *
+     * @param value argument to separate.
+     * @param parameters list to add the argument's parameter values to.
+     * @param limits limits of the search handler executing the search.
+     * @return shape of the argument, or null if the handler cannot be parameterized and the argument must be
+     *         compiled as a literal.
+     */
+    default String bind(SearchArgument value, List<Object> parameters, SearchLimits limits) {
+        return bind(value, parameters);
+    }
+
+    /**
+     * Builds a predicate using parameters in place of the values added by <b>bind</b>.
+     * @param root query root.
+     * @param criteriaBuilder criteria builder.
+     * @param value argument, used only for the parts of its value which make up its shape.
+     * @param parameters parameters to consume.
+     * @return predicate.
+     */
+    default Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                             SearchParameters parameters) {
+        return handle(root, criteriaBuilder, value);
+    }
+
     default SearchArgumentHandler not() {
-        return (root, criteriaBuilder, value) -> SearchArgumentHandler.this.handle(root, criteriaBuilder, value).not();
+        return new SearchArgumentHandler() {
+            @Override
+            public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value) {
+                return SearchArgumentHandler.this.handle(root, criteriaBuilder, value).not();
+            }
+
+            @Override
+            public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                                    SearchLimits limits) {
+                return SearchArgumentHandler.this.handle(root, criteriaBuilder, value, limits).not();
+            }
+
+            @Override
+            public String bind(SearchArgument value, List<Object> parameters) {
+                return SearchArgumentHandler.this.bind(value, parameters);
+            }
+
+            @Override
+            public String bind(SearchArgument value, List<Object> parameters, SearchLimits limits) {
+                return SearchArgumentHandler.this.bind(value, parameters, limits);
+            }
+
+            @Override
+            public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                                    SearchParameters parameters) {
+                return SearchArgumentHandler.this.handle(root, criteriaBuilder, value, parameters).not();
+            }
+        };
     }
 }
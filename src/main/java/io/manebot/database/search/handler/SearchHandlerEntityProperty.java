@@ -1,6 +1,7 @@
 package io.manebot.database.search.handler;
 
 import io.manebot.database.search.SearchArgument;
+import io.manebot.database.search.SearchParameters;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Path;
@@ -19,10 +20,30 @@ public abstract class SearchHandlerEntityProperty implements SearchArgumentHandl
         this.pathFinder = (root) -> root.get(property);
     }
 
+    /**
+     * Finds the path of the property in a query.
+     * @param root query root.
+     * @return property path.
+     */
+    protected Path getPath(Root root) {
+        return pathFinder.apply(root);
+    }
+
     protected abstract Predicate handle(Path path, CriteriaBuilder criteriaBuilder, SearchArgument value);
 
+    protected Predicate handle(Path path, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                               SearchParameters parameters) {
+        return handle(path, criteriaBuilder, value);
+    }
+
     @Override
     public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value) {
-        return handle(pathFinder.apply(root), criteriaBuilder, value);
+        return handle(getPath(root), criteriaBuilder, value);
+    }
+
+    @Override
+    public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                            SearchParameters parameters) {
+        return handle(getPath(root), criteriaBuilder, value, parameters);
     }
 }
@@ -3,20 +3,54 @@ package io.manebot.database.search.handler;
 import io.manebot.database.expressions.ExtendedExpressions;
 import io.manebot.database.expressions.MatchMode;
 import io.manebot.database.search.SearchArgument;
+import io.manebot.database.search.SearchLimits;
+import io.manebot.database.search.SearchParameters;
+import io.manebot.database.search.SearchTextIndex;
 
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Bindable;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.function.Function;
 
+/**
+ * Matches rows whose property contains the argument, with <i>LIKE '%value%'</i>.
+ *
+ * If the handler is given a <b>SearchTextIndex</b> over the property, arguments the index can answer are matched by
+ * primary key instead (<i>id IN (...) AND property LIKE '%value%'</i>), so that only the matching rows are read.  For
+ * nullable properties, rows without a value are kept as candidates (<i>(id IN (...) OR property IS NULL)</i>), so
+ * that they match as LIKE alone does, with NULL; excluding the argument then keeps the same rows whether the index
+ * answered it or not.
+ */
 public class SearchHandlerPropertyContains extends SearchHandlerEntityProperty {
+    private final SearchTextIndex<?> index;
+
     public SearchHandlerPropertyContains(Function<Root, Path> pathFinder) {
-        super(pathFinder);
+        this(pathFinder, null);
     }
 
     public SearchHandlerPropertyContains(String property) {
+        this(property, null);
+    }
+
+    public SearchHandlerPropertyContains(Function<Root, Path> pathFinder, SearchTextIndex<?> index) {
+        super(pathFinder);
+        this.index = index;
+    }
+
+    public SearchHandlerPropertyContains(String property, SearchTextIndex<?> index) {
         super(property);
+        this.index = index;
+    }
+
+    public SearchTextIndex<?> getIndex() {
+        return index;
     }
 
     @SuppressWarnings("unchecked")
@@ -29,4 +63,94 @@ public class SearchHandlerPropertyContains extends SearchHandlerEntityProperty {
                 MatchMode.ANYWHERE
         );
     }
+
+    @Override
+    public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value) {
+        return handle(root, criteriaBuilder, value, SearchLimits.DEFAULT);
+    }
+
+    @Override
+    public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value, SearchLimits limits) {
+        Path path = getPath(root);
+        Predicate like = handle(path, criteriaBuilder, value);
+
+        // As in bind, matches which would not fit in one ID list fall back to LIKE
+        Collection<Object> ids = index == null ? null : index.find(value.getValue(), limits.getMaximumListSize());
+        if (ids == null) return like;
+
+        Predicate candidates = ids.isEmpty() ?
+                criteriaBuilder.disjunction() :
+                root.get(index.getIdAttribute()).in(ids);
+
+        return criteriaBuilder.and(candidates(path, criteriaBuilder, candidates), like);
+    }
+
+    /**
+     * Keeps rows without a value alongside the rows found by the index, so that LIKE decides them with NULL as it
+     * would without the index.
+     * @param path property path.
+     * @param criteriaBuilder criteria builder.
+     * @param candidates predicate matching the rows found by the index.
+     * @return candidate predicate.
+     */
+    private static Predicate candidates(Path path, CriteriaBuilder criteriaBuilder, Predicate candidates) {
+        Bindable<?> model = path.getModel();
+        if (model instanceof SingularAttribute && !((SingularAttribute<?, ?>) model).isOptional()) return candidates;
+        return criteriaBuilder.or(candidates, path.isNull());
+    }
+
+    @Override
+    public String bind(SearchArgument value, List<Object> parameters) {
+        return bind(value, parameters, SearchLimits.DEFAULT);
+    }
+
+    @Override
+    public String bind(SearchArgument value, List<Object> parameters, SearchLimits limits) {
+        // Matches which would not fit in one ID list fall back to LIKE, rather than exceeding the limits
+        Collection<Object> ids = index == null ? null : index.find(value.getValue(), limits.getMaximumListSize());
+        String shape = "";
+
+        if (ids != null && ids.isEmpty()) {
+            parameters.add(Boolean.FALSE);
+            shape = "0";
+        } else if (ids != null) {
+            parameters.add(new ArrayList<>(ids));
+            shape = "i";
+        }
+
+        parameters.add(ExtendedExpressions.toLikePattern(value.getValue(), MatchMode.ANYWHERE));
+        return shape;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                            SearchParameters parameters) {
+        Path path = getPath(root);
+
+        // The type of the first parameter tells which shape bind() chose
+        Class<?> type = parameters.peekType();
+        Predicate candidates;
+
+        if (type == Boolean.class) {
+            candidates = criteriaBuilder.isTrue(parameters.next());
+        } else if (type != null && Collection.class.isAssignableFrom(type)) {
+            Expression<Collection<?>> ids = parameters.next();
+            candidates = root.get(index.getIdAttribute()).in(ids);
+        } else {
+            return handle(path, criteriaBuilder, value, parameters);
+        }
+
+        return criteriaBuilder.and(
+                candidates(path, criteriaBuilder, candidates),
+                handle(path, criteriaBuilder, value, parameters)
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected Predicate handle(Path path, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                               SearchParameters parameters) {
+        return ExtendedExpressions.escapedLike(criteriaBuilder, path, parameters.next());
+    }
 }
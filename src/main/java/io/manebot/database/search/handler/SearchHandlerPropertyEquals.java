@@ -1,11 +1,13 @@
 package io.manebot.database.search.handler;
 
 import io.manebot.database.search.SearchArgument;
+import io.manebot.database.search.SearchParameters;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.List;
 import java.util.function.Function;
 
 public class SearchHandlerPropertyEquals extends SearchHandlerEntityProperty {
@@ -35,4 +37,16 @@ public class SearchHandlerPropertyEquals extends SearchHandlerEntityProperty {
     protected Predicate handle(Path path, CriteriaBuilder criteriaBuilder, SearchArgument value) {
         return criteriaBuilder.equal(path, parser.apply(value.getValue()));
     }
+
+    @Override
+    public String bind(SearchArgument value, List<Object> parameters) {
+        parameters.add(parser.apply(value.getValue()));
+        return "";
+    }
+
+    @Override
+    protected Predicate handle(Path path, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                               SearchParameters parameters) {
+        return criteriaBuilder.equal(path, parameters.next());
+    }
 }
@@ -1,8 +1,11 @@
 package io.manebot.database.search.handler;
 
 import io.manebot.database.search.SearchArgument;
+import io.manebot.database.search.SearchLimits;
+import io.manebot.database.search.SearchParameters;
 
 import javax.persistence.criteria.*;
+import java.util.List;
 import java.util.function.Function;
 
 public class SearchHandlerPropertyIn extends SearchHandlerEntityProperty {
@@ -41,4 +44,35 @@ public class SearchHandlerPropertyIn extends SearchHandlerEntityProperty {
                         .select(subPathFinder.apply(root))
                         .where(handler.handle(root, criteriaBuilder, value)));
     }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Predicate handle(Root root, CriteriaBuilder criteriaBuilder, SearchArgument value, SearchLimits limits) {
+        Subquery criteriaQuery = criteriaBuilder.createQuery(joiningType).subquery(joiningType);
+        Root subRoot = criteriaQuery.from(joiningType);
+        return getPath(root).in(criteriaQuery
+                        .select(subPathFinder.apply(subRoot))
+                        .where(handler.handle(subRoot, criteriaBuilder, value, limits)));
+    }
+
+    @Override
+    public String bind(SearchArgument value, List<Object> parameters) {
+        return handler.bind(value, parameters);
+    }
+
+    @Override
+    public String bind(SearchArgument value, List<Object> parameters, SearchLimits limits) {
+        return handler.bind(value, parameters, limits);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected Predicate handle(Path path, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                               SearchParameters parameters) {
+        Subquery criteriaQuery = criteriaBuilder.createQuery(joiningType).subquery(joiningType);
+        Root root = criteriaQuery.from(joiningType);
+        return path.in(criteriaQuery
+                        .select(subPathFinder.apply(root))
+                        .where(handler.handle(root, criteriaBuilder, value, parameters)));
+    }
 }
@@ -1,11 +1,13 @@
 package io.manebot.database.search.handler;
 
 import io.manebot.database.search.SearchArgument;
+import io.manebot.database.search.SearchParameters;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.List;
 import java.util.function.Function;
 
 public class SearchHandlerPropertyIsNull extends SearchHandlerEntityProperty {
@@ -22,4 +24,15 @@ public class SearchHandlerPropertyIsNull extends SearchHandlerEntityProperty {
     protected Predicate handle(Path path, CriteriaBuilder criteriaBuilder, SearchArgument value) {
         return criteriaBuilder.isNull(path);
     }
+
+    @Override
+    public String bind(SearchArgument value, List<Object> parameters) {
+        return "";
+    }
+
+    @Override
+    protected Predicate handle(Path path, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                               SearchParameters parameters) {
+        return criteriaBuilder.isNull(path);
+    }
 }
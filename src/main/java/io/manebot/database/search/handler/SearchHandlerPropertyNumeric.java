@@ -1,20 +1,43 @@
 package io.manebot.database.search.handler;
 
 import io.manebot.database.search.SearchArgument;
+import io.manebot.database.search.SearchParameters;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.List;
 import java.util.function.Function;
 
 public class SearchHandlerPropertyNumeric extends SearchHandlerEntityProperty {
+    private final Function<String, ? extends Number> parser;
+
     public SearchHandlerPropertyNumeric(Function<Root, Path> pathFinder) {
-        super(pathFinder);
+        this(pathFinder, null);
     }
 
     public SearchHandlerPropertyNumeric(String property) {
+        this(property, null);
+    }
+
+    /**
+     * Creates a numeric handler whose operands are parsed to the type of the property, i.e. <i>Integer::parseInt</i>
+     * for an <i>int</i> property, so that they can be bound as query parameters.  Handlers created without a parser
+     * compile their operands as literals.
+     * @param pathFinder property path finder.
+     * @param parser operand parser, which may throw <b>NumberFormatException</b>.
+     */
+    public SearchHandlerPropertyNumeric(Function<Root, Path> pathFinder, Function<String, ? extends Number> parser) {
+        super(pathFinder);
+
+        this.parser = parser;
+    }
+
+    public SearchHandlerPropertyNumeric(String property, Function<String, ? extends Number> parser) {
         super(property);
+
+        this.parser = parser;
     }
 
     @SuppressWarnings("unchecked")
@@ -39,4 +62,41 @@ public class SearchHandlerPropertyNumeric extends SearchHandlerEntityProperty {
             throw new IllegalArgumentException(ex.getMessage()); // unboxing is necessary to propagate message
         }
     }
+
+    @Override
+    public String bind(SearchArgument value, List<Object> parameters) {
+        // Without the property's type, the operand is left for the persistence provider to convert
+        if (parser == null) return null;
+
+        if (value.getValue().length() <= 0) throw new IllegalArgumentException("Numeric expression not provided.");
+        char c = value.getValue().charAt(0);
+
+        // The comparison changes the shape of the predicate; only the operand is a parameter
+        boolean comparison = c == '>' || c == '<' || c == '=' || c == '!';
+        String operand = comparison ? value.getValue().substring(1) : value.getValue();
+
+        try {
+            parameters.add(parser.apply(operand));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(ex.getMessage()); // unboxing is necessary to propagate message
+        }
+
+        return comparison ? Character.toString(c) : "";
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected Predicate handle(Path path, CriteriaBuilder criteriaBuilder, SearchArgument value,
+                               SearchParameters parameters) {
+        if (value.getValue().length() <= 0) throw new IllegalArgumentException("Numeric expression not provided.");
+        char c = value.getValue().charAt(0);
+
+        if (c == '>') {
+            return criteriaBuilder.gt(path, parameters.<Number>next());
+        } else if (c == '<') {
+            return criteriaBuilder.lt(path, parameters.<Number>next());
+        } else {
+            return criteriaBuilder.equal(path, parameters.next());
+        }
+    }
 }
@@ -4,12 +4,23 @@ import io.manebot.database.search.SortOrder;
 
 import javax.persistence.criteria.CriteriaBuilder;
 
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Root;
 
 public interface SearchOrderHandler {
     Order handle(Root root, CriteriaBuilder criteriaBuilder, SortOrder order);
 
+    /**
+     * Gets the expression this handler sorts by, so that keyset pagination can seek past a previous row.
+     * @param root query root.
+     * @param criteriaBuilder criteria builder.
+     * @return sort expression, or null if this handler cannot be used for keyset pagination.
+     */
+    default Expression<?> getExpression(Root root, CriteriaBuilder criteriaBuilder) {
+        return null;
+    }
+
     default SearchOrderHandler reverse() {
         return (root, criteriaBuilder, order) -> SearchOrderHandler.this.handle(root, criteriaBuilder, order).reverse();
     }
@@ -1,5 +1,10 @@
 package io.manebot.property;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Date;
 
 public interface Property {
@@ -33,6 +38,31 @@ public interface Property {
 
     boolean isNull();
 
+    /**
+     * Opens a stream reading the bytes of this property.  Large values may be read without being held in memory.
+     * @return input stream over the property's bytes, which is empty if the property is unset.
+     */
+    default InputStream openInputStream() {
+        return new ByteArrayInputStream(isNull() ? new byte[0] : getBytes());
+    }
+
+    /**
+     * Opens a stream writing the bytes of this property.  The value is replaced when the stream is closed.
+     * @return output stream replacing the property's bytes.
+     */
+    default OutputStream openOutputStream() {
+        return new ByteArrayOutputStream() {
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) return;
+                closed = true;
+                set(toByteArray());
+            }
+        };
+    }
+
     default Property ensure(boolean b) {
         if (isNull()) set(b);
         return this;
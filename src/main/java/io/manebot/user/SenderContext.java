@@ -0,0 +1,92 @@
+package io.manebot.user;
+
+import io.manebot.entity.Entity;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A snapshot of everything commonly needed about the sender of a message, loaded together when the message is received
+ * so that handling it does not need further database round trips.
+ *
+ * The snapshot is not updated after it is loaded; it reflects the sender as they were when the message arrived.
+ */
+public final class SenderContext {
+    private final UserAssociation association;
+    private final Collection<UserGroupMembership> membership;
+    private final UserBan ban;
+    private final long loaded;
+
+    public SenderContext(UserAssociation association, Collection<UserGroupMembership> membership, UserBan ban) {
+        this.association = association;
+        this.membership = Collections.unmodifiableCollection(membership);
+        this.ban = ban;
+        this.loaded = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the association the message was received on.
+     * @return UserAssociation instance.
+     */
+    public UserAssociation getAssociation() {
+        return association;
+    }
+
+    /**
+     * Gets the user who sent the message.
+     * @return User instance.
+     */
+    public User getUser() {
+        return association.getUser();
+    }
+
+    /**
+     * Gets the entity of the user who sent the message.
+     * @return Entity instance.
+     */
+    public Entity getEntity() {
+        return getUser().getEntity();
+    }
+
+    /**
+     * Gets the sender's group memberships.
+     * @return immutable collection of memberships.
+     */
+    public Collection<UserGroupMembership> getMembership() {
+        return membership;
+    }
+
+    /**
+     * Gets the groups the sender is a member of.
+     * @return list of groups.
+     */
+    public List<UserGroup> getGroups() {
+        return membership.stream().map(UserGroupMembership::getGroup).collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the sender's active ban.
+     * @return UserBan instance if the sender was banned when the message arrived, null otherwise.
+     */
+    public UserBan getBan() {
+        return ban;
+    }
+
+    /**
+     * Finds if the sender was banned when the message arrived.
+     * @return true if the sender was banned, false otherwise.
+     */
+    public boolean isBanned() {
+        return ban != null;
+    }
+
+    /**
+     * Gets the time this snapshot was loaded, in milliseconds since the epoch.
+     * @return load time.
+     */
+    public long getLoadedTime() {
+        return loaded;
+    }
+}
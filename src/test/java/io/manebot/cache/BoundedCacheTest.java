@@ -0,0 +1,145 @@
+package io.manebot.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testBounded() throws Exception {
+        Cache<Integer, Integer> cache = new BoundedCache.Builder().setMaximumSize(100).build("test");
+
+        for (int i = 0; i < 1000; i ++) cache.put(i, i);
+
+        assertTrue(cache.size() <= 100);
+        assertTrue(cache.getStats().getEvictionCount() + cache.getStats().getRejectionCount() >= 900);
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveScan() throws Exception {
+        Cache<Integer, Integer> cache = new BoundedCache.Builder().setMaximumSize(16).build("test");
+
+        for (int i = 0; i < 16; i ++) {
+            cache.put(i, i);
+            for (int n = 0; n < 10; n ++) cache.getIfPresent(i);
+        }
+
+        // A scan of keys seen only once should not displace the frequently used entries
+        for (int i = 1000; i < 1064; i ++) cache.get(i, key -> key);
+
+        for (int i = 0; i < 16; i ++)
+            assertEquals(Integer.valueOf(i), cache.getIfPresent(i));
+    }
+
+    @Test
+    public void testLoaderSingleFlight() throws Exception {
+        Cache<String, Integer> cache = new BoundedCache.Builder().setMaximumSize(16).build("test");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread loader = new Thread(() -> cache.get("key", key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+
+            return 1;
+        }));
+
+        loader.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        Thread waiter = new Thread(() -> assertEquals(Integer.valueOf(1), cache.get("key", key -> {
+            loads.incrementAndGet();
+            return 2;
+        })));
+
+        waiter.start();
+
+        // Wait for the second caller to block on the in-flight load
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (waiter.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+
+        release.countDown();
+        loader.join();
+        waiter.join();
+
+        assertEquals(Integer.valueOf(1), cache.getIfPresent("key"));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getStats().getLoadCount());
+    }
+
+    @Test
+    public void testNullNotCached() throws Exception {
+        Cache<String, Integer> cache = new BoundedCache.Builder().setMaximumSize(16).build("test");
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get("key", key -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.get("key", key -> { loads.incrementAndGet(); return null; }));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidatedDuringLoad() throws Exception {
+        Cache<String, Integer> cache = new BoundedCache.Builder().setMaximumSize(16).build("test");
+
+        assertEquals(Integer.valueOf(1), cache.get("key", key -> {
+            cache.invalidate(key);
+            return 1;
+        }));
+        assertNull(cache.getIfPresent("key"));
+
+        assertEquals(Integer.valueOf(2), cache.get("key", key -> {
+            cache.invalidateAll();
+            return 2;
+        }));
+        assertNull(cache.getIfPresent("key"));
+
+        assertEquals(Integer.valueOf(3), cache.get("key", key -> 3));
+        assertEquals(Integer.valueOf(3), cache.getIfPresent("key"));
+    }
+
+    @Test
+    public void testExpireAfterWrite() throws Exception {
+        Cache<String, Integer> cache = new BoundedCache.Builder()
+                .setMaximumSize(16)
+                .setExpireAfterWrite(1, TimeUnit.NANOSECONDS)
+                .build("test");
+
+        cache.put("key", 1);
+        Thread.sleep(1);
+
+        assertNull(cache.getIfPresent("key"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCacheManager() throws Exception {
+        CacheManager manager = new CacheManager();
+
+        Cache<String, Integer> cache = manager.getCache("test", builder -> builder.setMaximumSize(10));
+        assertSame(cache, manager.getCache("test", builder -> builder.setMaximumSize(20)));
+        assertEquals(10, manager.getMaximumSize());
+
+        cache.put("key", 1);
+        manager.invalidateAll();
+        assertNull(cache.getIfPresent("key"));
+
+        assertTrue(manager.removeCache("test"));
+        assertNull(manager.getCache("test"));
+    }
+
+}
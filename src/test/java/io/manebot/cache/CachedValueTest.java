@@ -0,0 +1,127 @@
+package io.manebot.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class CachedValueTest {
+
+    @Test
+    public void testCachesWithinTimeout() throws Exception {
+        AtomicInteger supplied = new AtomicInteger();
+        CachedValue<Integer> value = new CachedValue<>(60_000L, supplied::incrementAndGet);
+
+        assertEquals(1, (int) value.get());
+        assertEquals(1, (int) value.get());
+        assertEquals(1, supplied.get());
+
+        value.unset();
+
+        assertEquals(2, (int) value.get());
+    }
+
+    @Test
+    public void testUnsetDuringLoad() throws Exception {
+        AtomicInteger supplied = new AtomicInteger();
+        AtomicReference<CachedValue<Integer>> holder = new AtomicReference<>();
+
+        CachedValue<Integer> value = new CachedValue<>(60_000L, () -> {
+            int next = supplied.incrementAndGet();
+            if (next == 1) holder.get().unset(); // the value read here is already out of date
+            return next;
+        });
+        holder.set(value);
+
+        assertEquals(1, (int) value.get());
+        assertFalse(value.isSet());
+        assertEquals(2, (int) value.get());
+        assertEquals(2, (int) value.get());
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception {
+        AtomicInteger supplied = new AtomicInteger();
+
+        CachedValue<Integer> uncached = new CachedValue<>(60_000L, () -> {
+            supplied.incrementAndGet();
+            return null;
+        });
+
+        assertNull(uncached.get());
+        assertNull(uncached.get());
+        assertEquals(2, supplied.get());
+        assertFalse(uncached.isSet());
+
+        supplied.set(0);
+
+        CachedValue<Integer> cached = new CachedValue<>(60_000L, () -> {
+            supplied.incrementAndGet();
+            return null;
+        }, true);
+
+        assertNull(cached.get());
+        assertNull(cached.get());
+        assertEquals(1, supplied.get());
+        assertTrue(cached.isSet());
+    }
+
+    @Test
+    public void testServesStaleValueDuringRefresh() throws Exception {
+        AtomicInteger supplied = new AtomicInteger();
+        CountDownLatch refreshing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CachedValue<Integer> value = new CachedValue<>(0L, () -> {
+            int next = supplied.incrementAndGet();
+
+            if (next == 2) {
+                refreshing.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            return next;
+        });
+
+        assertEquals(1, (int) value.get());
+
+        Thread refresher = new Thread(value::get);
+        refresher.start();
+
+        assertTrue(refreshing.await(5, TimeUnit.SECONDS));
+
+        // The refresher is blocked in the supplier; this read must not wait for it
+        assertEquals(1, (int) value.get());
+        assertEquals(2, supplied.get());
+
+        release.countDown();
+        refresher.join();
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        AtomicInteger supplied = new AtomicInteger();
+        CachedValue<Integer> value = new CachedValue<>(
+                60_000L, 60_000L, Runnable::run,
+                supplied::incrementAndGet,
+                false
+        );
+
+        assertEquals(1, (int) value.get());
+
+        // Within the refresh-ahead window: the current value is returned and a refresh is started
+        assertEquals(1, (int) value.get());
+        assertEquals(2, supplied.get());
+        assertEquals(2, (int) value.get());
+    }
+
+}
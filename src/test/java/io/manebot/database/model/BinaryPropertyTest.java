@@ -0,0 +1,176 @@
+package io.manebot.database.model;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class BinaryPropertyTest {
+
+    private static class MemoryProperty extends BinaryProperty {
+        private byte[] value;
+        private Integer format;
+
+        @Override
+        public String getName() {
+            return "test";
+        }
+
+        @Override
+        public void unset() {
+            value = null;
+            format = null;
+        }
+
+        @Override
+        public boolean isNull() {
+            return value == null;
+        }
+
+        @Override
+        protected byte[] getStoredValue() {
+            return value;
+        }
+
+        @Override
+        protected Integer getStoredFormat() {
+            return format;
+        }
+
+        @Override
+        protected void store(byte[] value, Integer format) {
+            this.value = value;
+            this.format = format;
+        }
+
+        private void storeLegacy(byte[] value) {
+            store(value, null);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        MemoryProperty property = new MemoryProperty();
+
+        property.set("hello, world");
+        assertEquals("hello, world", property.getString());
+        assertEquals(1 + 12, property.getStoredValue().length);
+
+        property.set("\u00e9\u6f22\ud83d\ude00");
+        assertEquals("\u00e9\u6f22\ud83d\ude00", property.getString());
+
+        property.set(true);
+        assertTrue(property.getBoolean());
+
+        property.set((byte) -7);
+        assertEquals((byte) -7, property.getByte());
+
+        property.set((short) -300);
+        assertEquals((short) -300, property.getShort());
+
+        for (int i : new int[] { 0, 1, -1, 63, -64, 64, 300, Integer.MAX_VALUE, Integer.MIN_VALUE }) {
+            property.set(i);
+            assertEquals(i, property.getInteger());
+        }
+
+        for (long l : new long[] { 0L, Long.MAX_VALUE, Long.MIN_VALUE, 1L << 40 }) {
+            property.set(l);
+            assertEquals(l, property.getLong());
+        }
+
+        property.set(1.5F);
+        assertEquals(1.5F, property.getFloat(), 0F);
+
+        property.set(-2.25D);
+        assertEquals(-2.25D, property.getDouble(), 0D);
+
+        property.set('x');
+        assertEquals('x', property.getChar());
+
+        Date date = new Date(4102444800000L); // beyond 2038, in whole seconds
+        property.set(date);
+        assertEquals(date, property.getDate());
+
+        property.set(new byte[] { 1, 2, 3 });
+        assertArrayEquals(new byte[] { 1, 2, 3 }, property.getBytes());
+    }
+
+    @Test
+    public void testCompactEncoding() throws Exception {
+        MemoryProperty property = new MemoryProperty();
+
+        property.set(5);
+        assertEquals(2, property.getStoredValue().length);
+
+        property.set(5L);
+        assertEquals(2, property.getStoredValue().length);
+
+        property.set("abc");
+        assertEquals(4, property.getStoredValue().length);
+    }
+
+    @Test
+    public void testNumericConversion() throws Exception {
+        MemoryProperty property = new MemoryProperty();
+
+        property.set(42);
+        assertEquals(42L, property.getLong());
+        assertEquals(42D, property.getDouble(), 0D);
+        assertEquals("42", property.getString());
+
+        property.set("17");
+        assertEquals(17, property.getInteger());
+    }
+
+    @Test
+    public void testLegacyValues() throws Exception {
+        MemoryProperty property = new MemoryProperty();
+
+        property.storeLegacy("legacy".getBytes("UTF-16"));
+        assertTrue(property.isLegacy());
+        assertEquals("legacy", property.getString());
+
+        property.storeLegacy(ByteBuffer.allocate(4).putInt(123456).array());
+        assertEquals(123456, property.getInteger());
+
+        property.storeLegacy(ByteBuffer.allocate(8).putDouble(0.5D).array());
+        assertEquals(0.5D, property.getDouble(), 0D);
+
+        // Setting a legacy property migrates it to the tagged encoding
+        property.set(123456);
+        assertFalse(property.isLegacy());
+        assertEquals(123456, property.getInteger());
+    }
+
+    @Test
+    public void testMixedAccessors() throws Exception {
+        MemoryProperty property = new MemoryProperty();
+        assertEquals(-1, property.size());
+
+        // Typed values read back through the raw accessors without their header
+        property.set("abc");
+        assertEquals(3, property.size());
+        assertArrayEquals("abc".getBytes("UTF-8"), property.read().array());
+
+        byte[] buffer = new byte[8];
+        assertEquals(3, property.read(buffer, 2, buffer.length - 2));
+        assertEquals('a', buffer[2]);
+        assertEquals('c', buffer[4]);
+
+        // Bytes written through the raw accessors are stored tagged, and read back by the typed accessors
+        property.write(new byte[] { 9, 1, 2, 3, 9 }, 1, 3);
+        assertFalse(property.isLegacy());
+        assertEquals(3, property.size());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, property.getBytes());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, property.read().array());
+
+        // Legacy values are read raw by both
+        property.storeLegacy(new byte[] { 4, 5 });
+        assertEquals(2, property.size());
+        assertArrayEquals(new byte[] { 4, 5 }, property.read().array());
+        assertArrayEquals(new byte[] { 4, 5 }, property.getBytes());
+    }
+
+}
@@ -0,0 +1,77 @@
+package io.manebot.database.search;
+
+import org.junit.Test;
+
+import javax.persistence.criteria.Expression;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SearchKeysetTest {
+
+    @Test
+    public void testRoundTrip() {
+        List<Object> values = Arrays.asList(
+                null, true, 7, -8L, 1.5D, 2.5F, "some \u00e9 text", new Date(1234567890123L),
+                (short) 3, (byte) -4, 'c'
+        );
+
+        String continuation = SearchKeyset.encode(values);
+        assertTrue(continuation.matches("[A-Za-z0-9_-]+"));
+        assertEquals(values, SearchKeyset.decode(continuation));
+    }
+
+    @Test
+    public void testInvalid() {
+        for (String continuation : new String[] { "", "!!!", "AAAA", "Ag" }) {
+            try {
+                SearchKeyset.decode(continuation);
+                fail("Continuation should not decode: " + continuation);
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+
+        try {
+            SearchKeyset.encode(Arrays.asList(new Object()));
+            fail("Unsupported key type should not encode");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    private static Expression<?> expression(Class<?> javaType) {
+        return (Expression<?>) Proxy.newProxyInstance(
+                Expression.class.getClassLoader(),
+                new Class<?>[] { Expression.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getJavaType")) return javaType;
+                    throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+
+    @Test
+    public void testSeekTypeMismatch() {
+        SearchKeyset keyset = new SearchKeyset(
+                Arrays.asList(expression(String.class), expression(int.class)),
+                Arrays.asList(SortOrder.ASCENDING, SortOrder.ASCENDING)
+        );
+
+        for (List<?> values : Arrays.<List<?>>asList(
+                Arrays.asList(42, 42),
+                Arrays.asList("name", "42"),
+                Arrays.asList("name", 42L))) {
+            try {
+                keyset.seek(null, SearchKeyset.encode(values));
+                fail("Continuation should not seek with keys " + values);
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+    }
+
+}
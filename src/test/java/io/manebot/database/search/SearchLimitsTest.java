@@ -0,0 +1,86 @@
+package io.manebot.database.search;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchLimitsTest {
+
+    private static String nest(String value, int depth) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i ++) builder.append('(');
+        builder.append(value);
+        for (int i = 0; i < depth; i ++) builder.append(')');
+        return builder.toString();
+    }
+
+    private static String terms(int count) {
+        StringBuilder builder = new StringBuilder("a");
+        for (int i = 1; i < count; i ++) builder.append(" ~a").append(i);
+        return builder.toString();
+    }
+
+    @Test
+    public void testCheck_WithinLimits() {
+        SearchLimits limits = new SearchLimits.Builder().setMaximumDepth(2).setMaximumPredicates(3).build();
+        limits.check(Search.parse("a ~(b ~(c))"));
+        limits.check(Search.parse(""));
+    }
+
+    @Test
+    public void testCheck_Depth() {
+        SearchLimits limits = new SearchLimits.Builder().setMaximumDepth(3).build();
+        limits.check(Search.parse(nest("a", 3)));
+
+        try {
+            limits.check(Search.parse(nest("a", 4)));
+            fail("Expected depth to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("nested too deeply"));
+        }
+    }
+
+    @Test
+    public void testCheck_DeepNesting() {
+        try {
+            SearchLimits.DEFAULT.check(Search.parse(nest("a", 10000)));
+            fail("Expected depth to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("nested too deeply"));
+        }
+    }
+
+    @Test
+    public void testCheck_Predicates() {
+        SearchLimits limits = new SearchLimits.Builder().setMaximumPredicates(10).build();
+        limits.check(Search.parse(terms(10)));
+
+        try {
+            limits.check(Search.parse(terms(11)));
+            fail("Expected predicate count to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("too many terms"));
+        }
+
+        // Terms are counted across nested clauses
+        try {
+            limits.check(Search.parse(terms(6) + " ~(" + terms(5) + ")"));
+            fail("Expected predicate count to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("too many terms"));
+        }
+    }
+
+    @Test
+    public void testCheckListSize() {
+        SearchLimits limits = new SearchLimits.Builder().setMaximumListSize(5).build();
+        limits.checkListSize(5);
+
+        try {
+            limits.checkListSize(6);
+            fail("Expected list size to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("too many values"));
+        }
+    }
+}
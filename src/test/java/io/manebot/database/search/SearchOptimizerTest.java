@@ -0,0 +1,92 @@
+package io.manebot.database.search;
+
+import org.junit.Test;
+
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class SearchOptimizerTest {
+
+    private static String describe(SearchPredicate predicate) {
+        SearchOperator operator = predicate instanceof Search.PushedLexicalClause ?
+                ((Search.PushedLexicalClause) predicate).getOperator() :
+                predicate.getArgument().getOperator();
+
+        String prefix = operator == SearchOperator.UNSPECIFIED ? "" : Character.toString(operator.getCharacter());
+
+        if (predicate instanceof Search.PushedLexicalClause)
+            return prefix + "(" + describe(((Search.PushedLexicalClause) predicate).getActions()) + ")";
+        else if (predicate instanceof SearchPredicateString)
+            return prefix + "\"" + predicate.getArgument().getValue() + "\"";
+        else
+            return prefix + predicate.getArgument().getValue();
+    }
+
+    private static String describe(java.util.List<SearchPredicate> predicates) {
+        return predicates.stream().map(SearchOptimizerTest::describe).collect(Collectors.joining(" "));
+    }
+
+    private static String optimize(String query) {
+        Search search = SearchOptimizer.optimize(Search.parse(query));
+        assertFalse("Search should be satisfiable: " + query, search.isUnsatisfiable());
+        return describe(search.getLexicalClause().getActions());
+    }
+
+    private static void assertUnsatisfiable(String query) {
+        Search parsed = Search.parse(query);
+        Search search = SearchOptimizer.optimize(parsed);
+        assertTrue("Search should be unsatisfiable: " + query, search.isUnsatisfiable());
+
+        // Handlers ignoring the flag must still see the contradiction, rather than an empty search
+        assertSame(parsed.getLexicalClause(), search.getLexicalClause());
+    }
+
+    @Test
+    public void testFlatten() {
+        assertEquals("a", optimize("a"));
+        assertEquals("a", optimize("(((a)))"));
+        assertEquals("a ~b ~c", optimize("a ~(b ~c)"));
+        assertEquals("a ~b ~c +d", optimize("(a ~b) ~c +d"));
+        assertEquals("a +b +c", optimize("a +(b +c)"));
+        assertEquals("a -b -c", optimize("a -(b ~c)"));
+        assertEquals("a +(b ~c)", optimize("a +(b ~c)"));
+        assertEquals("a -(b +c)", optimize("a -(b +c)"));
+        assertEquals("a ~\"b c\"", optimize("a ~(\"b c\")"));
+    }
+
+    @Test
+    public void testDuplicates() {
+        assertEquals("a ~b", optimize("a ~a ~b ~a"));
+        assertEquals("a +b", optimize("a +b +b"));
+        assertEquals("a ~b +c -d", optimize("a ~b +c -d -d +c"));
+        assertEquals("a ~b", optimize("a ~(b ~a)"));
+        assertEquals("a ~\"a\"", optimize("a ~\"a\""));
+        assertEquals("a +b ~a", optimize("a +b ~a"));
+    }
+
+    @Test
+    public void testContradictions() {
+        assertUnsatisfiable("a -a");
+        assertUnsatisfiable("a +b -a");
+        assertUnsatisfiable("a ~b +c -c");
+        assertUnsatisfiable("(a -a)");
+        assertUnsatisfiable("x +(a -a)");
+
+        assertEquals("x", optimize("x ~(a -a)"));
+        assertEquals("y", optimize("x +(a -a) ~y"));
+        assertEquals("x", optimize("x -(a -a)"));
+        assertEquals("a +b ~c -b", optimize("a +b ~c -b"));
+    }
+
+    @Test
+    public void testSearchPreserved() {
+        Search search = Search.parse("a ~(b ~c)").withPage(3).withOrders(new Search.DefaultOrder("a", SortOrder.DESCENDING));
+        Search optimized = SearchOptimizer.optimize(search);
+
+        assertEquals(3, optimized.getPage());
+        assertEquals(1, optimized.getOrders().size());
+        assertEquals("a ~b ~c", describe(optimized.getLexicalClause().getActions()));
+    }
+
+}
@@ -0,0 +1,54 @@
+package io.manebot.database.search;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SearchSamplerTest {
+
+    @Test
+    public void testDistinctOffsets() {
+        Random random = new Random(1234L);
+
+        for (int i = 0; i < 1000; i ++) {
+            Set<Long> offsets = SearchSampler.distinctOffsets(random, 10, 25L);
+            assertEquals(10, offsets.size());
+            for (long offset : offsets) assertTrue(offset >= 0L && offset < 25L);
+        }
+    }
+
+    @Test
+    public void testDistinctOffsets_MoreThanBound() {
+        Set<Long> offsets = SearchSampler.distinctOffsets(new Random(1L), 10, 4L);
+        assertEquals(4, offsets.size());
+        for (long offset = 0L; offset < 4L; offset ++) assertTrue(offsets.contains(offset));
+    }
+
+    @Test
+    public void testDistinctOffsets_LargeBound() {
+        Set<Long> offsets = SearchSampler.distinctOffsets(new Random(1L), 3, Long.MAX_VALUE);
+        assertEquals(3, offsets.size());
+        for (long offset : offsets) assertTrue(offset >= 0L);
+    }
+
+    @Test
+    public void testDistinctOffsets_Uniform() {
+        Random random = new Random(42L);
+        int[] counts = new int[8];
+        int trials = 40000;
+
+        for (int i = 0; i < trials; i ++)
+            for (long offset : SearchSampler.distinctOffsets(random, 2, counts.length))
+                counts[(int) offset] ++;
+
+        // Each offset is expected 2/8 of the time
+        int expected = trials * 2 / counts.length;
+        for (int count : counts)
+            assertTrue("Offset drawn " + count + " times, expected about " + expected,
+                    Math.abs(count - expected) < expected / 10);
+    }
+
+}
@@ -0,0 +1,184 @@
+package io.manebot.database.search;
+
+import io.manebot.database.Database;
+import io.manebot.database.search.handler.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SearchShapeTest {
+
+    private static class TestSearchHandler implements SearchHandler<Object> {
+        @Override
+        public Class<Object> getEntityClass() {
+            return Object.class;
+        }
+
+        @Override
+        public Database getDatabase() {
+            return null;
+        }
+
+        @Override
+        public SearchArgumentHandler getArgumentHandler(String name) {
+            switch (name) {
+                case "name":
+                    return new SearchHandlerPropertyEquals("name");
+                case "count":
+                    return new SearchHandlerPropertyNumeric("count", Integer::parseInt);
+                case "total":
+                    return new SearchHandlerPropertyNumeric("total");
+                case "raw":
+                    return (root, criteriaBuilder, value) -> null;
+                case "ids":
+                    return new ListSearchArgumentHandler();
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public SearchArgumentHandler getCommandHandler(String name) {
+            return name.equals("banned") ? new SearchHandlerPropertyIsNull("banned") : null;
+        }
+
+        @Override
+        public SearchArgumentHandler getStringHandler() {
+            return new SearchHandlerPropertyContains("name");
+        }
+
+        @Override
+        public SearchResult<Object> search(Search search, int maxResults) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SearchResult<Object> random(Search search, int maxResults) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Binds a comma-separated argument as a list, or as a single value where the list would exceed the limits.
+     */
+    private static class ListSearchArgumentHandler implements SearchArgumentHandler {
+        @Override
+        public javax.persistence.criteria.Predicate handle(javax.persistence.criteria.Root root,
+                                                           javax.persistence.criteria.CriteriaBuilder criteriaBuilder,
+                                                           SearchArgument value) {
+            return null;
+        }
+
+        @Override
+        public String bind(SearchArgument value, List<Object> parameters) {
+            return bind(value, parameters, SearchLimits.DEFAULT);
+        }
+
+        @Override
+        public String bind(SearchArgument value, List<Object> parameters, SearchLimits limits) {
+            List<String> values = Arrays.asList(value.getValue().split(","));
+            if (values.size() > limits.getMaximumListSize()) {
+                parameters.add(value.getValue());
+                return "s";
+            }
+
+            parameters.add(values);
+            return "i";
+        }
+    }
+
+    private static class LimitedSearchHandler extends TestSearchHandler {
+        @Override
+        public SearchLimits getLimits() {
+            return new SearchLimits.Builder().setMaximumListSize(2).build();
+        }
+    }
+
+    private static SearchShape shape(String query) {
+        return shape(Search.parse(query));
+    }
+
+    private static SearchShape shape(Search search) {
+        return SearchShape.of(search, new TestSearchHandler());
+    }
+
+    private static Search sorted(String query, SortOrder order) {
+        return Search.parse(query).withOrders(new Search.DefaultOrder("name", order));
+    }
+
+    @Test
+    public void testSameShape() {
+        SearchShape a = shape(sorted("name:alice +(\"some text\" ~count:>5) -banned", SortOrder.DESCENDING)
+                .withPage(2));
+        SearchShape b = shape(sorted("name:bob +(\"other\" ~count:>70) -banned", SortOrder.DESCENDING));
+
+        assertEquals(a, b);
+        assertEquals(a.getKey(), b.getKey());
+        assertEquals(Arrays.asList("alice", "%some text%", 5), a.getParameters());
+        assertEquals(Arrays.asList("bob", "%other%", 70), b.getParameters());
+    }
+
+    @Test
+    public void testDifferentShape() {
+        assertNotEquals(shape("count:>5"), shape("count:<5"));
+        assertNotEquals(shape("name:a ~count:1"), shape("name:a +count:1"));
+        assertNotEquals(shape(sorted("name:a", SortOrder.ASCENDING)), shape(sorted("name:a", SortOrder.DESCENDING)));
+        assertNotEquals(shape("name:a"), shape("(name:a)"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNumber() {
+        shape("count:>abc");
+    }
+
+    @Test
+    public void testLiteralArguments() {
+        SearchShape a = shape("raw:one");
+        assertEquals(Collections.emptyList(), a.getParameters());
+        assertNotEquals(a, shape("raw:two"));
+        assertEquals(a, shape("raw:one"));
+
+        // Numeric operands of an unknown type are left to the persistence provider to convert
+        assertEquals(Collections.emptyList(), shape("total:>5").getParameters());
+    }
+
+    @Test
+    public void testContinuation() {
+        Search search = Search.parse("name:alice").withContinuation(SearchKeyset.encode(Arrays.asList("x", 3)));
+        SearchShape shape = shape(search);
+
+        assertEquals(Arrays.asList("alice", "x", 3), shape.getParameters());
+        assertNotEquals(shape, shape("name:alice"));
+
+        // Continuations of the same search share the shape of the rows they filter
+        SearchShape other = shape(search.withContinuation(SearchKeyset.encode(Arrays.asList("y", 4))));
+        assertEquals(shape("name:alice"), shape.getFilter());
+        assertEquals(Collections.singletonList("alice"), shape.getFilter().getParameters());
+        assertEquals(shape.getFilter(), other.getFilter());
+
+        SearchShape plain = shape("name:alice");
+        assertSame(plain, plain.getFilter());
+    }
+
+    @Test
+    public void testListLimit() {
+        Search search = Search.parse("ids:a,b,c");
+
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b", "c")), shape(search).getParameters());
+
+        // Handlers are given the limits, and bind another shape rather than having the search rejected
+        SearchShape limited = SearchShape.of(search, new LimitedSearchHandler());
+        assertEquals(Collections.singletonList("a,b,c"), limited.getParameters());
+        assertNotEquals(shape(search), limited);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownArgument() {
+        shape("unknown:value");
+    }
+
+}
@@ -72,6 +72,41 @@ public class SearchTest {
         }
     }
 
+    @Test
+    public void testParse_Continuation() {
+        String continuation = SearchKeyset.encode(Arrays.asList("name", 42));
+
+        Search search = Search.parse("value after:" + continuation);
+        assertEquals("Unexpected search continuation", search.getContinuation(), continuation);
+        assertEquals("Unexpected search page", search.getPage(), 1);
+
+        assertNull("Unexpected search continuation", Search.parse("value").getContinuation());
+
+        try {
+            Search.parse("after:" + continuation + " " + String.format(pageFormat, "2"));
+            throw new AssertionError("Search did not fail for having both a page number and a continuation");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+
+        try {
+            Search.parse("after:" + continuation + " lastItem");
+            throw new AssertionError("Search did not fail for a misplaced continuation");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+
+        // Commands which only look like continuations are left in the search
+        Search command = Search.parse("quote after:2019");
+        assertNull("Unexpected search continuation", command.getContinuation());
+
+        List<SearchPredicate> actions =
+                ((Search.PushedLexicalClause) command.getLexicalClause().getActions().get(0)).getActions();
+        assertEquals("Unexpected search actions", actions.size(), 2);
+        assertEquals("Unexpected search command", "after:2019",
+                ((SearchPredicateArgument) actions.get(1)).getArgument().getValue());
+    }
+
     @Test
     public void testParse_Ordered_Valid() {
         String searchKey = "fieldKey";
@@ -0,0 +1,52 @@
+package io.manebot.database.search;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class SearchTextIndexTest {
+
+    @Test
+    public void testNormalize() {
+        assertEquals("cafe creme", SearchTextIndex.normalize("Caf\u00e9 Cr\u00e8me"));
+        assertEquals("istanbul", SearchTextIndex.normalize("\u0130stanbul"));
+        assertEquals("abc", SearchTextIndex.normalize("ABC"));
+    }
+
+    @Test
+    public void testGrams() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("abc", "bcd")), SearchTextIndex.grams("abcd"));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("aaa")), SearchTextIndex.grams("aaaaa"));
+        assertTrue(SearchTextIndex.grams("ab").isEmpty());
+    }
+
+    @Test
+    public void testGrams_Substring() {
+        // Every trigram of a substring is a trigram of the text containing it
+        String text = SearchTextIndex.normalize("The Quick Brown Fox");
+        String query = SearchTextIndex.normalize("QUICK BR");
+        assertTrue(SearchTextIndex.grams(text).containsAll(SearchTextIndex.grams(query)));
+    }
+
+    @Test
+    public void testParseId() {
+        assertEquals(42, SearchTextIndex.parseId(int.class, "42"));
+        assertEquals(42L, SearchTextIndex.parseId(Long.class, "42"));
+        assertEquals("42", SearchTextIndex.parseId(String.class, "42"));
+
+        UUID uuid = UUID.randomUUID();
+        assertEquals(uuid, SearchTextIndex.parseId(UUID.class, uuid.toString()));
+
+        try {
+            SearchTextIndex.parseId(Object.class, "42");
+            fail("IDs of an unknown type should not parse");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+}